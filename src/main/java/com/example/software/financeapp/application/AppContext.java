@@ -26,6 +26,9 @@ public class AppContext {
     private ApiService apiService;
     private UserService userService;
 
+    // 导航视图预加载器
+    private final ViewPreloader viewPreloader = new ViewPreloader();
+
     // 应用程序配置
     private String apiBaseUrl;
     private String appVersion = "1.0.0";
@@ -139,6 +142,14 @@ public class AppContext {
         return userService;
     }
 
+    /**
+     * 获取视图预加载器
+     * @return 视图预加载器
+     */
+    public ViewPreloader getViewPreloader() {
+        return viewPreloader;
+    }
+
     /**
      * 获取应用版本
      * @return 应用版本
@@ -0,0 +1,176 @@
+package com.example.software.financeapp.application;
+
+import javafx.concurrent.Task;
+import javafx.scene.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 后台数据加载器 - 把控制器的数据查询和分析放到后台线程执行，结果回到JavaFX应用线程更新界面
+ * 每个加载器同一时间只有一个有效的加载任务，重新加载时取消上一个任务，被取消或过期的任务结果直接丢弃。
+ * 所有加载器共用一个有界线程池(线程数和排队数都有上限)，排队已满时本次加载按失败处理。
+ * 绑定到视图节点后，节点离开场景(用户切换到其他视图)时自动取消正在进行的加载和未发布的批量结果。
+ * load/cancel只能在JavaFX应用线程上调用
+ */
+public class BackgroundLoader<T> {
+
+    // 线程数上限
+    private static final int MAX_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    // 排队任务数上限
+    private static final int MAX_QUEUED = 32;
+
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private final String name;
+    private final List<FxBatchPublisher<?>> publishers = new ArrayList<>();
+
+    private Task<T> current;
+
+    /**
+     * @param name 加载器名称，用于日志
+     */
+    public BackgroundLoader(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 节点离开场景时取消加载
+     * @param node 视图中的任意节点
+     * @return 当前加载器
+     */
+    public BackgroundLoader<T> cancelWhenRemoved(Node node) {
+        node.sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (oldScene != null && newScene == null) {
+                cancel();
+            }
+        });
+        return this;
+    }
+
+    /**
+     * 创建与本加载器关联的批量发布器，取消加载时一并丢弃尚未发布的结果
+     * @param maxBatchSize 每次发布的最大条数
+     * @param consumer 在JavaFX应用线程上处理一批结果
+     */
+    public <E> FxBatchPublisher<E> batchPublisher(int maxBatchSize, Consumer<List<E>> consumer) {
+        FxBatchPublisher<E> publisher = new FxBatchPublisher<>(maxBatchSize, consumer);
+        publishers.add(publisher);
+        return publisher;
+    }
+
+    /**
+     * 在后台线程上执行加载，取消上一个尚未完成的加载
+     * @param work 加载和分析逻辑(后台线程，不能访问界面)
+     * @param onLoaded 加载成功后在JavaFX应用线程上更新界面
+     * @param onFailed 加载失败后在JavaFX应用线程上处理异常
+     */
+    public void load(Callable<T> work, Consumer<T> onLoaded, Consumer<Throwable> onFailed) {
+        cancel();
+
+        Task<T> task = new Task<T>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        current = task;
+
+        // 事件在JavaFX应用线程上触发，只处理仍然有效的任务
+        task.setOnSucceeded(event -> {
+            if (current == task) {
+                current = null;
+                onLoaded.accept(task.getValue());
+            }
+        });
+        task.setOnFailed(event -> {
+            if (current == task) {
+                current = null;
+                System.err.println(name + "加载失败: " + task.getException());
+                onFailed.accept(task.getException());
+            }
+        });
+
+        try {
+            EXECUTOR.execute(task);
+        } catch (RejectedExecutionException e) {
+            current = null;
+            System.err.println(name + "加载任务过多，已拒绝: " + e.getMessage());
+            onFailed.accept(e);
+        }
+    }
+
+    /**
+     * 取消正在进行的加载并丢弃未发布的批量结果
+     */
+    public void cancel() {
+        Task<T> task = current;
+        current = null;
+        if (task != null && task.cancel(true)) {
+            // 移出排队中已取消的任务，释放排队位置
+            EXECUTOR.purge();
+        }
+        for (FxBatchPublisher<?> publisher : publishers) {
+            publisher.clear();
+        }
+    }
+
+    /**
+     * 是否有正在进行的加载
+     */
+    public boolean isLoading() {
+        return current != null;
+    }
+
+    /**
+     * 在共用线程池上执行不需要更新界面的后台工作(如服务层的缓存预热)，不能取消
+     * @param name 工作名称，用于日志
+     * @param work 后台工作
+     * @throws RejectedExecutionException 排队已满
+     */
+    public static void execute(String name, Runnable work) {
+        Task<Void> task = new Task<Void>() {
+            @Override
+            protected Void call() {
+                work.run();
+                return null;
+            }
+        };
+        task.setOnFailed(event -> System.err.println(name + "失败: " + task.getException()));
+        EXECUTOR.execute(task);
+    }
+
+    /**
+     * 在加载逻辑中检查当前线程是否已被取消，已取消时抛出异常结束加载
+     */
+    public static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("加载已取消");
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                MAX_THREADS, MAX_THREADS,
+                30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUED),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "background-loader-" + threadCount.incrementAndGet());
+                    // 不阻止应用退出
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
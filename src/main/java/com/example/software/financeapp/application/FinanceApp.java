@@ -1,5 +1,6 @@
 package com.example.software.financeapp.application;
 
+import com.example.software.financeapp.service.fraud.OnlineFraudEngine;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -19,6 +20,10 @@ public class FinanceApp extends Application {
 
     @Override
     public void start(Stage primaryStage) {
+        // 实时风控会话在共用的后台线程池上预热
+        OnlineFraudEngine.getInstance().setWarmUpExecutor(
+                work -> BackgroundLoader.execute("实时风控会话预热", work));
+
         try {
             // 加载主视图
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/main.fxml"));
@@ -46,6 +51,9 @@ public class FinanceApp extends Application {
             // 保存主窗口引用
             AppContext.getInstance().setPrimaryStage(primaryStage);
 
+            // 登录界面显示后，在后台预先读取各导航视图
+            AppContext.getInstance().getViewPreloader().start();
+
         } catch (IOException e) {
             e.printStackTrace();
             System.err.println("无法加载主视图: " + e.getMessage());
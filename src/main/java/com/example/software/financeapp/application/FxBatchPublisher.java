@@ -0,0 +1,81 @@
+package com.example.software.financeapp.application;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 批量发布器 - 任意线程发布的结果先进入队列，合并成批次后通过Platform.runLater交给JavaFX应用线程处理
+ * 同一时间最多只有一个待执行的runLater，每批最多处理maxBatchSize条，
+ * 剩余的结果留到下一次runLater，避免一次处理大量结果导致界面卡顿
+ */
+public class FxBatchPublisher<E> {
+
+    private final int maxBatchSize;
+    private final Consumer<List<E>> consumer;
+    private final ConcurrentLinkedQueue<E> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * @param maxBatchSize 每批的最大条数
+     * @param consumer 在JavaFX应用线程上处理一批结果
+     */
+    public FxBatchPublisher(int maxBatchSize, Consumer<List<E>> consumer) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.consumer = consumer;
+    }
+
+    /**
+     * 发布一条结果(可在任意线程调用)
+     */
+    public void publish(E item) {
+        pending.add(item);
+        schedule();
+    }
+
+    /**
+     * 发布多条结果(可在任意线程调用)
+     */
+    public void publishAll(Collection<? extends E> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        pending.addAll(items);
+        schedule();
+    }
+
+    /**
+     * 丢弃尚未发布的结果
+     */
+    public void clear() {
+        pending.clear();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::flush);
+        }
+    }
+
+    private void flush() {
+        List<E> batch = new ArrayList<>(Math.min(maxBatchSize, 64));
+        E item;
+        while (batch.size() < maxBatchSize && (item = pending.poll()) != null) {
+            batch.add(item);
+        }
+
+        scheduled.set(false);
+        if (!pending.isEmpty()) {
+            schedule();
+        }
+
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+    }
+}
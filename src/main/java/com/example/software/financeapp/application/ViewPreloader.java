@@ -0,0 +1,177 @@
+package com.example.software.financeapp.application;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 视图预加载器 - 启动后在后台线程上按优先级预先读取导航视图的FXML文档，
+ * 并加载文档中引用的控件类和控制器类，第一次打开视图时不需要再读取资源和加载类。
+ * 创建控件和控制器仍在JavaFX应用线程上进行(控制器初始化依赖登录用户)，
+ * 导航层通过 {@link #getDocument} 取得已读取的文档
+ */
+public class ViewPreloader {
+
+    // 导航视图，按预计的打开顺序排列
+    private static final List<String> VIEW_PATHS = Collections.unmodifiableList(Arrays.asList(
+            "/view/savings_plan.fxml",
+            "/view/transactions.fxml",
+            "/view/spending_analysis.fxml",
+            "/view/budget_insights.fxml",
+            "/view/family_finance.fxml",
+            "/view/ai_chat.fxml",
+            "/view/localization_settings.fxml"
+    ));
+
+    // FXML路径 -> 文档内容
+    private final Map<String, byte[]> documents = new ConcurrentHashMap<>();
+
+    private boolean started;
+
+    /**
+     * 启动后台预加载，重复调用时忽略
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        Thread thread = new Thread(() -> {
+            long startTime = System.currentTimeMillis();
+            for (String path : VIEW_PATHS) {
+                preload(path);
+            }
+            System.out.println("视图预加载完成: " + documents.size() + "个视图, 耗时"
+                    + (System.currentTimeMillis() - startTime) + "ms");
+        }, "view-preloader");
+        // 不阻止应用退出，优先级低于界面线程
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * 按优先级排列的导航视图
+     */
+    public List<String> getViewPaths() {
+        return VIEW_PATHS;
+    }
+
+    /**
+     * 获取已读取的FXML文档
+     * @param fxmlPath FXML资源路径
+     * @return 文档内容，尚未读取或读取失败时返回null
+     */
+    public byte[] getDocument(String fxmlPath) {
+        return documents.get(fxmlPath);
+    }
+
+    /**
+     * 读取一个FXML文档并加载其中引用的类
+     */
+    private void preload(String path) {
+        try (InputStream in = ViewPreloader.class.getResourceAsStream(path)) {
+            if (in == null) {
+                System.err.println("预加载视图失败, 找不到文件: " + path);
+                return;
+            }
+            byte[] document = in.readAllBytes();
+            loadReferencedClasses(document);
+            documents.put(path, document);
+        } catch (IOException | XMLStreamException e) {
+            System.err.println("预加载视图失败: " + path + ", " + e.getMessage());
+        }
+    }
+
+    /**
+     * 解析文档，加载导入的控件类和控制器类
+     */
+    private static void loadReferencedClasses(byte[] document) throws XMLStreamException {
+        List<String> classImports = new ArrayList<>();
+        List<String> packageImports = new ArrayList<>();
+        Set<String> elementNames = new HashSet<>();
+        String controller = null;
+
+        XMLStreamReader reader = XMLInputFactory.newFactory().createXMLStreamReader(new ByteArrayInputStream(document));
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.PROCESSING_INSTRUCTION && "import".equals(reader.getPITarget())) {
+                    String name = reader.getPIData().trim();
+                    if (name.endsWith(".*")) {
+                        packageImports.add(name.substring(0, name.length() - 2));
+                    } else {
+                        classImports.add(name);
+                    }
+                } else if (event == XMLStreamConstants.START_ELEMENT) {
+                    // 类名元素以大写字母开头，属性元素以小写字母开头
+                    String localName = reader.getLocalName();
+                    if (reader.getPrefix() == null || reader.getPrefix().isEmpty()) {
+                        if (Character.isUpperCase(localName.charAt(0))) {
+                            elementNames.add(localName);
+                        }
+                    }
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        if ("controller".equals(reader.getAttributeLocalName(i))
+                                && "fx".equals(reader.getAttributePrefix(i))) {
+                            controller = reader.getAttributeValue(i);
+                        }
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        for (String className : classImports) {
+            loadClass(className);
+        }
+        for (String elementName : elementNames) {
+            if (!isImportedClass(elementName, classImports)) {
+                for (String packageName : packageImports) {
+                    if (loadClass(packageName + "." + elementName)) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (controller != null) {
+            loadClass(controller);
+        }
+    }
+
+    private static boolean isImportedClass(String simpleName, List<String> classImports) {
+        for (String className : classImports) {
+            if (className.endsWith("." + simpleName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 加载类但不执行静态初始化
+     * @return 类是否存在
+     */
+    private static boolean loadClass(String className) {
+        try {
+            Class.forName(className, false, ViewPreloader.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.software.financeapp.controller;
 
 import com.example.software.financeapp.application.AppContext;
+import com.example.software.financeapp.application.BackgroundLoader;
 import com.example.software.financeapp.model.entity.Category;
-import com.example.software.financeapp.model.entity.Transaction;
 import com.example.software.financeapp.model.entity.User;
+import com.example.software.financeapp.model.enums.TransactionType;
 import com.example.software.financeapp.service.ApiService;
+import com.example.software.financeapp.service.analysis.BudgetRecommendationEngine;
 import com.example.software.financeapp.service.analysis.ExpenditureAnalysisService;
 
 import javafx.collections.FXCollections;
@@ -25,7 +27,6 @@ import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.text.TextAlignment;
 
-import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.time.LocalDate;
@@ -38,7 +39,7 @@ import java.util.ResourceBundle;
 /**
  * 支出洞察与预算建议控制器
  */
-public class BudgetInsightsController implements Initializable {
+public class BudgetInsightsController implements Initializable, ViewLifecycle {
 
     @FXML
     private ComboBox<String> timeRangeComboBox;
@@ -77,16 +78,20 @@ public class BudgetInsightsController implements Initializable {
     private final AppContext appContext = AppContext.getInstance();
     private ApiService apiService;
     private ExpenditureAnalysisService analysisService;
+    private BudgetRecommendationEngine recommendationEngine;
 
     // 数据相关字段
-    private List<Transaction> transactions;
     private Map<YearMonth, BigDecimal> monthlyTrendData;
     private ExpenditureAnalysisService.BudgetRecommendation currentRecommendation;
 
+    // 后台计算分析结果，切换时间范围时取消上一次计算
+    private final BackgroundLoader<InsightsData> insightsLoader = new BackgroundLoader<>("支出洞察");
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         this.apiService = appContext.getApiService();
-        this.analysisService = new ExpenditureAnalysisService();
+        this.analysisService = new ExpenditureAnalysisService(apiService.getTransactionRollup());
+        this.recommendationEngine = apiService.getBudgetRecommendationEngine();
 
         // 初始化时间范围选择器
         timeRangeComboBox.setItems(FXCollections.observableArrayList(
@@ -102,61 +107,76 @@ public class BudgetInsightsController implements Initializable {
         // 设置应用建议按钮点击事件
         applyRecommendationsButton.setOnAction(event -> applyRecommendations());
 
+        // 离开洞察视图时取消未完成的计算
+        insightsLoader.cancelWhenRemoved(spendingTrendChart);
+
         // 加载初始数据
         loadData();
     }
 
     /**
-     * 加载数据
+     * 视图重新显示时刷新分析结果
      */
+    @Override
+    public void onActivated() {
+        refreshData();
+    }
+
     /**
      * 加载数据
      */
     private void loadData() {
-        try {
-            // 获取当前用户
-            User currentUser = appContext.getCurrentUser();
-            if (currentUser == null) return;
-
-            // 首先获取所有交易记录（使用分页参数）
-            // 这里使用0作为页码，1000作为大小以获取足够多的记录
-            List<Transaction> allTransactions = apiService.getTransactions(currentUser.getId(), 0, 1000);
-
-            // 然后根据选择的时间范围在内存中过滤
-            int monthsCount = getSelectedMonthsCount();
-            LocalDate startDate = LocalDate.now().minusMonths(monthsCount).withDayOfMonth(1);
-            LocalDate endDate = LocalDate.now();
-
-            // 过滤交易记录
-            transactions = allTransactions.stream()
-                    .filter(t -> {
-                        LocalDate transactionDate = t.getTransactionDate().toLocalDate();
-                        return !transactionDate.isBefore(startDate) && !transactionDate.isAfter(endDate);
-                    })
-                    .collect(Collectors.toList());
-
-            // 刷新分析和可视化
-            refreshData();
-
-        } catch (IOException e) {
-            showErrorAlert("加载数据失败", e.getMessage());
-        }
+        refreshData();
     }
 
     /**
      * 刷新数据分析和可视化
+     * 趋势和分布从交易汇总立方体读取，预算建议由增量引擎维护，切换时间范围时不需要重新查询交易记录。
+     * 分析在后台线程上进行，完成后回到JavaFX应用线程更新图表
      */
+    private void refreshData() {
+        // 获取当前用户
+        User currentUser = appContext.getCurrentUser();
+        if (currentUser == null) return;
+
+        Long userId = currentUser.getId();
+        int monthsCount = getSelectedMonthsCount();
+        insightsLoader.load(() -> computeInsights(userId, monthsCount), this::showInsights,
+                e -> showErrorAlert("加载数据失败", e.getMessage()));
+    }
+
     /**
-     * 刷新数据分析和可视化
+     * 计算分析结果(后台线程)
+     * @return 分析结果，所选时间范围内没有支出时返回null
      */
-    private void refreshData() {
-        if (transactions == null || transactions.isEmpty()) {
+    private InsightsData computeInsights(Long userId, int monthsCount) {
+        YearMonth currentMonth = YearMonth.now();
+        YearMonth startMonth = currentMonth.minusMonths(monthsCount);
+
+        if (apiService.getTransactionRollup().total(userId, TransactionType.EXPENSE, startMonth, currentMonth).getCount() == 0) {
+            return null;
+        }
+
+        InsightsData data = new InsightsData();
+        // 计算月度支出趋势
+        data.monthlyTrend = analysisService.calculateMonthlyTrend(userId, monthsCount);
+        // 计算类别分布
+        data.categoryDistribution = analysisService.calculateCategoryDistribution(userId, startMonth, currentMonth);
+        // 获取预算建议，引擎随交易变化增量维护，这里只读取当前结果
+        data.recommendation = recommendationEngine.getRecommendation(userId, monthsCount);
+        return data;
+    }
+
+    /**
+     * 显示分析结果
+     * @param data 分析结果，null表示没有数据
+     */
+    private void showInsights(InsightsData data) {
+        if (data == null) {
             showNoDataMessage();
             return;
         }
 
-        int monthsCount = getSelectedMonthsCount();
-
         // 清除所有图表和容器内容
         spendingTrendChart.getData().clear();
         categoryDistributionChart.getData().clear();
@@ -164,19 +184,12 @@ public class BudgetInsightsController implements Initializable {
         budgetRecommendationsContainer.getChildren().clear();
         savingSuggestionsContainer.getChildren().clear();
 
-        // 计算月度支出趋势
-        monthlyTrendData = analysisService.calculateMonthlyTrend(transactions, monthsCount);
+        monthlyTrendData = data.monthlyTrend;
         updateTrendChart();
 
-        // 计算类别分布
-        LocalDate startDate = LocalDate.now().minusMonths(monthsCount).withDayOfMonth(1);
-        LocalDate endDate = LocalDate.now();
-        Map<Category, BigDecimal> categoryDistribution =
-                analysisService.calculateCategoryDistribution(transactions, startDate, endDate);
-        updateDistributionChart(categoryDistribution);
-
-        // 生成预算建议
-        currentRecommendation = analysisService.generateBudgetRecommendation(transactions, monthsCount);
+        updateDistributionChart(data.categoryDistribution);
+
+        currentRecommendation = data.recommendation;
         updateInsights();
 
         // 强制重新布局
@@ -467,4 +480,13 @@ public class BudgetInsightsController implements Initializable {
             }
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * 后台计算的分析结果
+     */
+    private static class InsightsData {
+        private Map<YearMonth, BigDecimal> monthlyTrend;
+        private Map<Category, BigDecimal> categoryDistribution;
+        private ExpenditureAnalysisService.BudgetRecommendation recommendation;
+    }
+}
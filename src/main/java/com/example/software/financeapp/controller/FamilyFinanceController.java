@@ -1,11 +1,13 @@
 package com.example.software.financeapp.controller;
 
 import com.example.software.financeapp.application.AppContext;
+import com.example.software.financeapp.application.BackgroundLoader;
 import com.example.software.financeapp.model.entity.Transaction;
 import com.example.software.financeapp.model.entity.User;
 import com.example.software.financeapp.model.enums.TransactionType;
 import com.example.software.financeapp.service.ApiService;
 import com.example.software.financeapp.service.MockDataService;
+import com.example.software.financeapp.util.FenAccumulator;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -26,10 +28,11 @@ import java.net.URL;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
-public class FamilyFinanceController implements Initializable {
+public class FamilyFinanceController implements Initializable, ViewLifecycle {
 
     @FXML
     private ComboBox<User> familyMemberComboBox;
@@ -70,7 +73,12 @@ public class FamilyFinanceController implements Initializable {
     private ApiService apiService;
     private User currentUser;
     private User selectedMember;
-    private List<Transaction> currentTransactions = new ArrayList<>();
+
+    // 收支柱状图显示的天数
+    private static final int RECENT_DAYS = 7;
+
+    // 后台查询和统计成员交易，切换成员时取消上一次查询
+    private final BackgroundLoader<FinancialData> financialDataLoader = new BackgroundLoader<>("家庭财务");
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -80,6 +88,9 @@ public class FamilyFinanceController implements Initializable {
         // 初始化家庭成员下拉框
         initializeFamilyMembersComboBox();
 
+        // 离开家庭财务视图时取消未完成的查询
+        financialDataLoader.cancelWhenRemoved(familyMemberComboBox);
+
         // 默认显示当前用户的财务情况
         selectedMember = currentUser;
         currentMemberLabel.setText(selectedMember.getFullName());
@@ -94,6 +105,14 @@ public class FamilyFinanceController implements Initializable {
         parentAdviceContainer.setManaged(isParent && viewingChild);
     }
 
+    /**
+     * 视图重新显示时重新加载所选成员的数据
+     */
+    @Override
+    public void onActivated() {
+        loadFinancialData();
+    }
+
     /**
      * 初始化家庭成员下拉框
      */
@@ -174,38 +193,113 @@ public class FamilyFinanceController implements Initializable {
 
     /**
      * 加载财务数据
+     * 成员交易的查询和统计都在后台线程上进行，完成后回到JavaFX应用线程更新概况和图表
      */
     private void loadFinancialData() {
-        try {
-            // 获取所选用户的交易数据
-            if (MockDataService.hasPermissionToView(currentUser.getId(), selectedMember.getId())) {
-                // 获取特定用户的交易数据
-                currentTransactions = MockDataService.getMockTransactionsForUser(selectedMember.getId());
+        // 获取所选用户的交易数据
+        if (MockDataService.hasPermissionToView(currentUser.getId(), selectedMember.getId())) {
+            // 获取特定用户的交易数据
+            Long memberId = selectedMember.getId();
+            boolean withAdvice = isParentUser() && isViewingChildAccount();
+            financialDataLoader.load(() -> analyze(MockDataService.getMockTransactionsForUser(memberId), withAdvice),
+                    this::showFinancialData,
+                    e -> showAlert("加载失败", "无法加载财务数据: " + e.getMessage()));
+        } else {
+            showAlert("没有权限", "您没有权限查看此用户的财务信息");
+            // 重置为当前用户
+            selectedMember = currentUser;
+            familyMemberComboBox.getSelectionModel().select(currentUser);
+            currentMemberLabel.setText(currentUser.getFullName());
+            loadFinancialData(); // 重新加载当前用户数据
+        }
+    }
 
-                // 更新财务概况
-                updateFinancialOverview();
+    /**
+     * 统计成员的财务数据(后台线程，不能访问界面)
+     * @param transactions 成员的交易
+     * @param withAdvice 是否生成父母建议
+     */
+    private static FinancialData analyze(List<Transaction> transactions, boolean withAdvice) {
+        FinancialData data = new FinancialData();
 
-                // 更新图表
-                updateCharts();
+        // 过滤当月交易
+        List<Transaction> currentMonthTransactions = filterCurrentMonth(transactions);
 
-                // 更新最近交易列表
-                updateRecentTransactions();
+        // 计算当月收入和支出总额，按分累加
+        FenAccumulator incomeTotal = new FenAccumulator();
+        FenAccumulator expenseTotal = new FenAccumulator();
+        for (Transaction t : currentMonthTransactions) {
+            if (t.getType() == TransactionType.INCOME) {
+                incomeTotal.add(t.getAmount());
+            } else if (t.getType() == TransactionType.EXPENSE) {
+                expenseTotal.add(t.getAmount());
+            }
+        }
+        data.monthlyIncome = incomeTotal.get(0);
+        data.monthlyExpense = expenseTotal.get(0);
+        data.monthlyCount = currentMonthTransactions.size();
 
-                // 更新建议内容（如果是父亲查看儿子账户）
-                if (isParentUser() && isViewingChildAccount()) {
-                    updateParentAdvice();
-                } else {
-                    // 如果不是父亲查看儿子账户，隐藏建议区域
-                    parentAdviceContainer.setVisible(false);
-                    parentAdviceContainer.setManaged(false);
-                }
+        // 按类别分组统计支出
+        data.expenseByCategory = sumExpensesByCategory(transactions);
+        BackgroundLoader.checkCancelled();
+
+        // 一次遍历计算最近7天每一天的收入和支出，分组序号为距第一天的天数
+        LocalDate firstDay = LocalDate.now().minusDays(RECENT_DAYS - 1);
+        FenAccumulator dayIncomes = new FenAccumulator(RECENT_DAYS);
+        FenAccumulator dayExpenses = new FenAccumulator(RECENT_DAYS);
+        for (Transaction t : transactions) {
+            long index = ChronoUnit.DAYS.between(firstDay, t.getTransactionDate().toLocalDate());
+            if (index < 0 || index >= RECENT_DAYS) {
+                continue;
+            }
+            if (t.getType() == TransactionType.INCOME) {
+                dayIncomes.add((int) index, t.getAmount());
+            } else if (t.getType() == TransactionType.EXPENSE) {
+                dayExpenses.add((int) index, t.getAmount());
+            }
+        }
+        data.firstDay = firstDay;
+        for (int i = 0; i < RECENT_DAYS; i++) {
+            data.dayIncomes.add(dayIncomes.get(i));
+            data.dayExpenses.add(dayExpenses.get(i));
+        }
+
+        // 获取最近5笔交易
+        data.recentTransactions = transactions.stream()
+                .sorted(Comparator.comparing(Transaction::getTransactionDate).reversed())
+                .limit(5)
+                .collect(Collectors.toList());
+
+        // 生成建议内容（如果是父亲查看儿子账户）
+        if (withAdvice) {
+            BackgroundLoader.checkCancelled();
+            data.adviceList = buildParentAdvice(currentMonthTransactions);
+        }
+        return data;
+    }
+
+    /**
+     * 显示成员的财务数据
+     * @param data 后台统计的结果
+     */
+    private void showFinancialData(FinancialData data) {
+        try {
+            // 更新财务概况
+            updateFinancialOverview(data);
+
+            // 更新图表
+            updateCharts(data);
+
+            // 更新最近交易列表
+            updateRecentTransactions(data.recentTransactions);
+
+            // 更新建议内容（如果是父亲查看儿子账户）
+            if (data.adviceList != null) {
+                updateParentAdvice(data.adviceList);
             } else {
-                showAlert("没有权限", "您没有权限查看此用户的财务信息");
-                // 重置为当前用户
-                selectedMember = currentUser;
-                familyMemberComboBox.getSelectionModel().select(currentUser);
-                currentMemberLabel.setText(currentUser.getFullName());
-                loadFinancialData(); // 重新加载当前用户数据
+                // 如果不是父亲查看儿子账户，隐藏建议区域
+                parentAdviceContainer.setVisible(false);
+                parentAdviceContainer.setManaged(false);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -214,33 +308,27 @@ public class FamilyFinanceController implements Initializable {
     }
 
     /**
-     * 更新财务概况
+     * 过滤当月交易
      */
-    private void updateFinancialOverview() {
-        // 获取当前月份
+    private static List<Transaction> filterCurrentMonth(List<Transaction> transactions) {
         LocalDate now = LocalDate.now();
         int currentMonth = now.getMonthValue();
         int currentYear = now.getYear();
 
-        // 过滤当月交易
-        List<Transaction> currentMonthTransactions = currentTransactions.stream()
+        return transactions.stream()
                 .filter(t -> {
                     LocalDateTime date = t.getTransactionDate();
                     return date.getMonthValue() == currentMonth && date.getYear() == currentYear;
                 })
                 .collect(Collectors.toList());
+    }
 
-        // 计算收入总额
-        BigDecimal totalIncome = currentMonthTransactions.stream()
-                .filter(t -> t.getType() == TransactionType.INCOME)
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // 计算支出总额
-        BigDecimal totalExpense = currentMonthTransactions.stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    /**
+     * 更新财务概况
+     */
+    private void updateFinancialOverview(FinancialData data) {
+        BigDecimal totalIncome = data.monthlyIncome;
+        BigDecimal totalExpense = data.monthlyExpense;
 
         // 计算结余
         BigDecimal balance = totalIncome.subtract(totalExpense);
@@ -258,39 +346,28 @@ public class FamilyFinanceController implements Initializable {
         }
 
         // 设置交易笔数
-        transactionCountLabel.setText(String.valueOf(currentMonthTransactions.size()));
+        transactionCountLabel.setText(String.valueOf(data.monthlyCount));
     }
 
     /**
      * 更新图表
      */
-    private void updateCharts() {
+    private void updateCharts(FinancialData data) {
         // 清空现有图表数据
         expenseCategoryChart.getData().clear();
         incomeExpenseChart.getData().clear();
 
         // 更新支出类别饼图
-        updateExpenseCategoryChart();
+        updateExpenseCategoryChart(data.expenseByCategory);
 
         // 更新收支柱状图
-        updateIncomeExpenseChart();
+        updateIncomeExpenseChart(data);
     }
 
     /**
      * 更新支出类别饼图
      */
-    private void updateExpenseCategoryChart() {
-        // 按类别分组统计支出
-        Map<String, BigDecimal> expenseByCategory = new HashMap<>();
-
-        for (Transaction t : currentTransactions) {
-            if (t.getType() == TransactionType.EXPENSE && t.getCategory() != null) {
-                String categoryName = t.getCategory().getName();
-                BigDecimal currentAmount = expenseByCategory.getOrDefault(categoryName, BigDecimal.ZERO);
-                expenseByCategory.put(categoryName, currentAmount.add(t.getAmount()));
-            }
-        }
-
+    private void updateExpenseCategoryChart(Map<String, BigDecimal> expenseByCategory) {
         // 创建饼图数据
         for (Map.Entry<String, BigDecimal> entry : expenseByCategory.entrySet()) {
             PieChart.Data slice = new PieChart.Data(
@@ -301,17 +378,33 @@ public class FamilyFinanceController implements Initializable {
     }
 
     /**
-     * 更新收支柱状图
+     * 按类别名称统计支出，按分累加
      */
-    private void updateIncomeExpenseChart() {
-        // 获取最近7天的日期
-        List<LocalDate> last7Days = new ArrayList<>();
-        LocalDate today = LocalDate.now();
+    private static Map<String, BigDecimal> sumExpensesByCategory(List<Transaction> transactions) {
+        Map<String, Integer> categoryIndexes = new HashMap<>();
+        FenAccumulator totals = new FenAccumulator(16);
 
-        for (int i = 6; i >= 0; i--) {
-            last7Days.add(today.minusDays(i));
+        for (Transaction t : transactions) {
+            if (t.getType() == TransactionType.EXPENSE && t.getCategory() != null) {
+                String categoryName = t.getCategory().getName();
+                Integer index = categoryIndexes.get(categoryName);
+                if (index == null) {
+                    index = categoryIndexes.size();
+                    categoryIndexes.put(categoryName, index);
+                }
+                totals.add(index, t.getAmount());
+            }
         }
 
+        Map<String, BigDecimal> expenseByCategory = new HashMap<>();
+        categoryIndexes.forEach((categoryName, index) -> expenseByCategory.put(categoryName, totals.get(index)));
+        return expenseByCategory;
+    }
+
+    /**
+     * 更新收支柱状图(最近7天)
+     */
+    private void updateIncomeExpenseChart(FinancialData financialData) {
         // 创建收入系列
         XYChart.Series<String, Number> incomeSeries = new XYChart.Series<>();
         incomeSeries.setName("收入");
@@ -323,28 +416,11 @@ public class FamilyFinanceController implements Initializable {
         // 日期格式化
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM-dd");
 
-        // 为每一天计算收入和支出
-        for (LocalDate date : last7Days) {
-            final LocalDate currentDate = date;
-
-            // 当天收入
-            BigDecimal dayIncome = currentTransactions.stream()
-                    .filter(t -> t.getType() == TransactionType.INCOME)
-                    .filter(t -> t.getTransactionDate().toLocalDate().equals(currentDate))
-                    .map(Transaction::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            // 当天支出
-            BigDecimal dayExpense = currentTransactions.stream()
-                    .filter(t -> t.getType() == TransactionType.EXPENSE)
-                    .filter(t -> t.getTransactionDate().toLocalDate().equals(currentDate))
-                    .map(Transaction::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
+        for (int i = 0; i < RECENT_DAYS; i++) {
             // 添加到系列
-            String dateStr = date.format(formatter);
-            incomeSeries.getData().add(new XYChart.Data<>(dateStr, dayIncome));
-            expenseSeries.getData().add(new XYChart.Data<>(dateStr, dayExpense));
+            String dateStr = financialData.firstDay.plusDays(i).format(formatter);
+            incomeSeries.getData().add(new XYChart.Data<>(dateStr, financialData.dayIncomes.get(i)));
+            expenseSeries.getData().add(new XYChart.Data<>(dateStr, financialData.dayExpenses.get(i)));
         }
 
         // 添加系列到图表
@@ -367,15 +443,9 @@ public class FamilyFinanceController implements Initializable {
     /**
      * 更新最近交易列表
      */
-    private void updateRecentTransactions() {
+    private void updateRecentTransactions(List<Transaction> recentTransactions) {
         recentTransactionsContainer.getChildren().clear();
 
-        // 获取最近5笔交易
-        List<Transaction> recentTransactions = currentTransactions.stream()
-                .sorted(Comparator.comparing(Transaction::getTransactionDate).reversed())
-                .limit(5)
-                .collect(Collectors.toList());
-
         if (recentTransactions.isEmpty()) {
             Label emptyLabel = new Label("暂无交易记录");
             emptyLabel.setStyle("-fx-text-fill: #95a5a6; -fx-font-style: italic;");
@@ -460,36 +530,22 @@ public class FamilyFinanceController implements Initializable {
     }
 
     /**
-     * 更新父母建议内容
+     * 生成父母建议内容(后台线程)
+     * @param currentMonthTransactions 孩子账户的当月交易
      */
-    private void updateParentAdvice() {
-        adviceItemsContainer.getChildren().clear();
-
-        // 计算儿子账户的财务指标
-        BigDecimal monthlyIncome = BigDecimal.ZERO;
-        BigDecimal monthlyExpense = BigDecimal.ZERO;
-
-        // 当前月份
-        LocalDate now = LocalDate.now();
-        int currentMonth = now.getMonthValue();
-        int currentYear = now.getYear();
-
-        // 过滤当月交易
-        List<Transaction> currentMonthTransactions = currentTransactions.stream()
-                .filter(t -> {
-                    LocalDateTime date = t.getTransactionDate();
-                    return date.getMonthValue() == currentMonth && date.getYear() == currentYear;
-                })
-                .collect(Collectors.toList());
-
-        // 计算收入和支出
+    private static List<Map<String, String>> buildParentAdvice(List<Transaction> currentMonthTransactions) {
+        // 计算儿子账户的收入和支出，按分累加
+        FenAccumulator incomeTotal = new FenAccumulator();
+        FenAccumulator expenseTotal = new FenAccumulator();
         for (Transaction t : currentMonthTransactions) {
             if (t.getType() == TransactionType.INCOME) {
-                monthlyIncome = monthlyIncome.add(t.getAmount());
+                incomeTotal.add(t.getAmount());
             } else {
-                monthlyExpense = monthlyExpense.add(t.getAmount());
+                expenseTotal.add(t.getAmount());
             }
         }
+        BigDecimal monthlyIncome = incomeTotal.get(0);
+        BigDecimal monthlyExpense = expenseTotal.get(0);
 
         // 生成建议
         List<Map<String, String>> adviceList = new ArrayList<>();
@@ -530,14 +586,7 @@ public class FamilyFinanceController implements Initializable {
         }
 
         // 4. 消费类别分析
-        Map<String, BigDecimal> categoryExpenses = new HashMap<>();
-        for (Transaction t : currentMonthTransactions) {
-            if (t.getType() == TransactionType.EXPENSE && t.getCategory() != null) {
-                String categoryName = t.getCategory().getName();
-                BigDecimal amount = categoryExpenses.getOrDefault(categoryName, BigDecimal.ZERO);
-                categoryExpenses.put(categoryName, amount.add(t.getAmount()));
-            }
-        }
+        Map<String, BigDecimal> categoryExpenses = sumExpensesByCategory(currentMonthTransactions);
 
         // 找出最高支出类别
         String highestCategory = "";
@@ -569,6 +618,15 @@ public class FamilyFinanceController implements Initializable {
             adviceList.add(advice);
         }
 
+        return adviceList;
+    }
+
+    /**
+     * 更新父母建议内容
+     */
+    private void updateParentAdvice(List<Map<String, String>> adviceList) {
+        adviceItemsContainer.getChildren().clear();
+
         // 创建建议卡片
         for (Map<String, String> advice : adviceList) {
             VBox adviceCard = createAdviceCard(advice);
@@ -685,4 +743,27 @@ public class FamilyFinanceController implements Initializable {
         alert.setContentText(message);
         alert.showAndWait();
     }
+
+    /**
+     * 后台统计的成员财务数据
+     */
+    private static class FinancialData {
+        // 当月收支和交易笔数
+        private BigDecimal monthlyIncome;
+        private BigDecimal monthlyExpense;
+        private int monthlyCount;
+
+        // 类别名称 -> 支出合计
+        private Map<String, BigDecimal> expenseByCategory;
+
+        // 最近7天每天的收入和支出
+        private LocalDate firstDay;
+        private final List<BigDecimal> dayIncomes = new ArrayList<>();
+        private final List<BigDecimal> dayExpenses = new ArrayList<>();
+
+        private List<Transaction> recentTransactions;
+
+        // 父母建议，不是父亲查看儿子账户时为null
+        private List<Map<String, String>> adviceList;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package com.example.software.financeapp.controller;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.util.function.IntFunction;
+
+/**
+ * 热图画布 - 在一个Canvas上绘制 行 × 列 的热图，颜色从白色(0)渐变到红色(最大值)
+ * 单元格不是节点，鼠标位置直接换算成单元格序号，整个热图共用一个工具提示。
+ * 数据或大小变化时整体重绘，单元格数量在几百到几千个时重绘耗时远小于一帧
+ */
+class HeatmapCanvas extends Region {
+
+    // 行标签和列标签占用的边距
+    private static final double LEFT_MARGIN = 56;
+    private static final double BOTTOM_MARGIN = 24;
+    private static final double TOP_MARGIN = 4;
+    private static final double RIGHT_MARGIN = 4;
+
+    // 估算标签宽度和高度，用于在单元格较小时隔行/隔列显示标签
+    private static final double LABEL_CHAR_WIDTH = 8;
+    private static final double LABEL_HEIGHT = 14;
+
+    private static final Color GRID_COLOR = Color.LIGHTGRAY;
+    private static final Color EMPTY_COLOR = Color.rgb(240, 240, 240);
+    private static final Font LABEL_FONT = new Font(12);
+
+    private final Canvas canvas = new Canvas();
+    private final Tooltip tooltip = new Tooltip();
+
+    private String[] rowLabels = new String[0];
+    private String[] columnLabels = new String[0];
+    private double[] values = new double[0];
+    private double maxValue;
+    private IntFunction<String> cellDescriber = cell -> "";
+    private int hoveredCell = -1;
+
+    HeatmapCanvas() {
+        getChildren().add(canvas);
+        setPrefSize(800, 400);
+
+        canvas.setOnMouseMoved(this::handleMouseMoved);
+        canvas.setOnMouseExited(event -> hideTooltip());
+    }
+
+    /**
+     * 设置热图数据并重绘
+     * @param rowLabels 行标签
+     * @param columnLabels 列标签
+     * @param values 单元格的值，按行排列(序号 = 行 * 列数 + 列)，NaN表示该单元格不在数据范围内
+     * @param cellDescriber 单元格序号 -> 工具提示文本，鼠标停在单元格上时才调用
+     */
+    void setData(String[] rowLabels, String[] columnLabels, double[] values, IntFunction<String> cellDescriber) {
+        if (values.length != rowLabels.length * columnLabels.length) {
+            throw new IllegalArgumentException("单元格数量与行列数不一致");
+        }
+        this.rowLabels = rowLabels;
+        this.columnLabels = columnLabels;
+        this.values = values;
+        this.cellDescriber = cellDescriber;
+
+        double max = 0;
+        for (double value : values) {
+            if (value > max) {
+                max = value;
+            }
+        }
+        this.maxValue = max;
+
+        hideTooltip();
+        redraw();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double width = snapSizeX(getWidth());
+        double height = snapSizeY(getHeight());
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+            redraw();
+        }
+    }
+
+    /**
+     * 坐标所在的单元格
+     * @return 单元格序号，不在单元格上时返回-1
+     */
+    int cellAt(double x, double y) {
+        int rows = rowLabels.length;
+        int columns = columnLabels.length;
+        double cellWidth = cellWidth();
+        double cellHeight = cellHeight();
+        if (rows == 0 || columns == 0 || cellWidth <= 0 || cellHeight <= 0
+                || x < LEFT_MARGIN || y < TOP_MARGIN) {
+            return -1;
+        }
+
+        int column = (int) ((x - LEFT_MARGIN) / cellWidth);
+        int row = (int) ((y - TOP_MARGIN) / cellHeight);
+        if (column >= columns || row >= rows) {
+            return -1;
+        }
+        return row * columns + column;
+    }
+
+    private double cellWidth() {
+        return columnLabels.length == 0 ? 0 : (canvas.getWidth() - LEFT_MARGIN - RIGHT_MARGIN) / columnLabels.length;
+    }
+
+    private double cellHeight() {
+        return rowLabels.length == 0 ? 0 : (canvas.getHeight() - TOP_MARGIN - BOTTOM_MARGIN) / rowLabels.length;
+    }
+
+    /**
+     * 重绘整个热图
+     */
+    private void redraw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        int rows = rowLabels.length;
+        int columns = columnLabels.length;
+        double cellWidth = cellWidth();
+        double cellHeight = cellHeight();
+        if (rows == 0 || columns == 0 || cellWidth <= 0 || cellHeight <= 0) {
+            return;
+        }
+
+        // 单元格
+        for (int row = 0; row < rows; row++) {
+            double y = TOP_MARGIN + row * cellHeight;
+            for (int column = 0; column < columns; column++) {
+                double value = values[row * columns + column];
+                gc.setFill(colorOf(value));
+                gc.fillRect(LEFT_MARGIN + column * cellWidth, y, cellWidth, cellHeight);
+            }
+        }
+
+        // 网格线，每条线只画一次
+        double right = LEFT_MARGIN + columns * cellWidth;
+        double bottom = TOP_MARGIN + rows * cellHeight;
+        gc.setStroke(GRID_COLOR);
+        gc.setLineWidth(1);
+        for (int row = 0; row <= rows; row++) {
+            double y = snapLine(TOP_MARGIN + row * cellHeight);
+            gc.strokeLine(LEFT_MARGIN, y, right, y);
+        }
+        for (int column = 0; column <= columns; column++) {
+            double x = snapLine(LEFT_MARGIN + column * cellWidth);
+            gc.strokeLine(x, TOP_MARGIN, x, bottom);
+        }
+
+        // 行标签和列标签，单元格较小时隔行/隔列显示
+        gc.setFill(Color.BLACK);
+        gc.setFont(LABEL_FONT);
+        gc.setTextBaseline(VPos.CENTER);
+
+        gc.setTextAlign(TextAlignment.LEFT);
+        int rowStep = Math.max(1, (int) Math.ceil(LABEL_HEIGHT / cellHeight));
+        for (int row = 0; row < rows; row += rowStep) {
+            gc.fillText(rowLabels[row], 4, TOP_MARGIN + (row + 0.5) * cellHeight, LEFT_MARGIN - 8);
+        }
+
+        gc.setTextAlign(TextAlignment.CENTER);
+        int columnStep = Math.max(1, (int) Math.ceil((maxLength(columnLabels) * LABEL_CHAR_WIDTH + 4) / cellWidth));
+        for (int column = 0; column < columns; column += columnStep) {
+            gc.fillText(columnLabels[column], LEFT_MARGIN + (column + 0.5) * cellWidth, bottom + BOTTOM_MARGIN / 2);
+        }
+    }
+
+    /**
+     * 从白色到红色的渐变
+     */
+    private Color colorOf(double value) {
+        if (Double.isNaN(value)) {
+            return EMPTY_COLOR;
+        }
+        double intensity = maxValue > 0 ? Math.max(0, value / maxValue) : 0;
+        int level = (int) (255 * (1 - intensity));
+        return Color.rgb(255, level, level);
+    }
+
+    private void handleMouseMoved(MouseEvent event) {
+        int cell = cellAt(event.getX(), event.getY());
+        if (cell < 0 || Double.isNaN(values[cell])) {
+            hideTooltip();
+            return;
+        }
+
+        if (cell != hoveredCell) {
+            hoveredCell = cell;
+            tooltip.setText(cellDescriber.apply(cell));
+        }
+        if (tooltip.isShowing()) {
+            tooltip.setAnchorX(event.getScreenX() + 12);
+            tooltip.setAnchorY(event.getScreenY() + 12);
+        } else {
+            tooltip.show(canvas, event.getScreenX() + 12, event.getScreenY() + 12);
+        }
+    }
+
+    private void hideTooltip() {
+        hoveredCell = -1;
+        tooltip.hide();
+    }
+
+    /**
+     * 1像素线条对齐到像素中心，避免模糊
+     */
+    private static double snapLine(double position) {
+        return Math.floor(position) + 0.5;
+    }
+
+    private static int maxLength(String[] labels) {
+        int max = 0;
+        for (String label : labels) {
+            max = Math.max(max, label.length());
+        }
+        return max;
+    }
+}
@@ -4,6 +4,8 @@ import com.example.software.financeapp.application.AppContext;
 import com.example.software.financeapp.model.entity.Transaction;
 import com.example.software.financeapp.model.entity.User;
 import com.example.software.financeapp.service.ApiService;
+import com.example.software.financeapp.service.fraud.FraudAlert;
+import com.example.software.financeapp.service.fraud.OnlineFraudEngine;
 import com.example.software.financeapp.util.CSVParser;
 
 import javafx.collections.FXCollections;
@@ -18,6 +20,7 @@ import javafx.stage.Stage;
 import java.io.File;
 import java.net.URL;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.function.Consumer;
@@ -239,8 +242,9 @@ public class ImportOptionsController implements Initializable {
                     sourceTypeComboBox.getValue(),
                     appContext.getCurrentUser());
 
-            // 解析文件
-            previewTransactions = parser.parseFile(file);
+            // 分块并行解析文件(只有一个分块的小文件在当前线程上解析)，出错行单独记录，不影响其余行
+            previewTransactions = new ArrayList<>();
+            CSVParser.ImportReport report = parser.parseFileParallel(file, previewTransactions::add);
 
             // 更新记录数量
             recordCountLabel.setText(String.valueOf(previewTransactions.size()));
@@ -253,6 +257,11 @@ public class ImportOptionsController implements Initializable {
             // 启用导入按钮
             importButton.setDisable(previewTransactions.isEmpty());
 
+            // 提示无法解析的行
+            if (report.getErrorCount() > 0) {
+                showWarningAlert("部分记录解析失败", buildErrorSummary(report));
+            }
+
         } catch (Exception e) {
             showErrorAlert("解析错误", "解析CSV文件时出错: " + e.getMessage());
         }
@@ -281,6 +290,12 @@ public class ImportOptionsController implements Initializable {
             // 显示成功消息
             showSuccessAlert("导入成功", "成功导入 " + importedTransactions.size() + " 条交易记录。");
 
+            // 导入时实时风控检测到的可疑交易
+            List<FraudAlert> alerts = OnlineFraudEngine.getInstance().findAlerts(importedTransactions);
+            if (!alerts.isEmpty()) {
+                showWarningAlert("发现可疑交易", buildAlertSummary(alerts));
+            }
+
             // 调用回调
             if (onImportFinishedCallback != null) {
                 onImportFinishedCallback.accept(importedTransactions);
@@ -297,6 +312,22 @@ public class ImportOptionsController implements Initializable {
         }
     }
 
+    /**
+     * 生成可疑交易摘要(最多列出前5条)
+     */
+    private String buildAlertSummary(List<FraudAlert> alerts) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("导入的交易中有 ").append(alerts.size()).append(" 条可疑交易，请到安全中心核实：\n");
+        int shown = Math.min(5, alerts.size());
+        for (int i = 0; i < shown; i++) {
+            sb.append("\n").append(alerts.get(i).getReasons().get(0));
+        }
+        if (alerts.size() > shown) {
+            sb.append("\n...");
+        }
+        return sb.toString();
+    }
+
     /**
      * 处理取消按钮点击
      */
@@ -334,6 +365,29 @@ public class ImportOptionsController implements Initializable {
         alert.showAndWait();
     }
 
+    /**
+     * 生成解析错误摘要(最多列出前5行)
+     */
+    private String buildErrorSummary(CSVParser.ImportReport report) {
+        StringBuilder summary = new StringBuilder();
+        summary.append("共有 ").append(report.getErrorCount()).append(" 行无法解析，已跳过：");
+        report.getErrors().stream()
+                .limit(5)
+                .forEach(error -> summary.append("\n").append(error));
+        return summary.toString();
+    }
+
+    /**
+     * 显示警告提示对话框
+     */
+    private void showWarningAlert(String title, String message) {
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+
     /**
      * 显示成功提示对话框
      */
@@ -3,6 +3,7 @@ package com.example.software.financeapp.controller;
 import com.example.software.financeapp.application.AppContext;
 import com.example.software.financeapp.model.entity.User;
 import com.example.software.financeapp.service.ApiService;
+import com.example.software.financeapp.service.fraud.OnlineFraudEngine;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
@@ -60,6 +61,9 @@ public class LoginController implements Initializable {
                 // 登录成功，保存用户到应用上下文
                 AppContext.getInstance().setCurrentUser(user);
 
+                // 在后台预热实时风控会话，记账时不需要在界面线程上回放历史交易
+                OnlineFraudEngine.getInstance().warmUpInBackground(user.getId());
+
                 // 在同一窗口中切换到主界面
                 loadMainView();
             } else {
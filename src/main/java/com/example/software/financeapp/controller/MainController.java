@@ -17,6 +17,7 @@ import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Iterator;
 import java.util.ResourceBundle;
 
 /**
@@ -71,6 +72,13 @@ public class MainController implements Initializable {
     // 应用程序上下文
     private final AppContext appContext = AppContext.getInstance();
 
+    // 最多缓存的视图数
+    private static final int MAX_CACHED_VIEWS = 5;
+
+    // 已加载的视图和控制器，切换回来时直接显示并通知控制器刷新
+    private final ViewCache viewCache = new ViewCache(MAX_CACHED_VIEWS, appContext.getViewPreloader());
+    private ViewCache.CachedView currentView;
+
     /**
      * 初始化控制器
      */
@@ -113,6 +121,39 @@ public class MainController implements Initializable {
 
         // 检查登录状态
         checkLoginStatus();
+
+        // 已登录时在空闲时依次准备其他导航视图
+        if (appContext.getCurrentUser() != null) {
+            Platform.runLater(() -> preloadViews(appContext.getViewPreloader().getViewPaths().iterator(), MAX_CACHED_VIEWS - 1));
+        }
+    }
+
+    /**
+     * 按优先级把导航视图加载到视图缓存中，每次只加载一个视图，避免长时间阻塞界面
+     * 预加载的数量少于缓存容量，当前显示的视图不会被淘汰
+     * @param paths 剩余的视图路径
+     * @param remaining 还可以预加载的视图数
+     */
+    private void preloadViews(Iterator<String> paths, int remaining) {
+        // 已注销或窗口已关闭时停止
+        if (remaining <= 0 || appContext.getCurrentUser() == null || mainLayout.getScene() == null) {
+            return;
+        }
+
+        while (paths.hasNext()) {
+            String path = paths.next();
+            if (viewCache.contains(path)) {
+                continue;
+            }
+            try {
+                viewCache.load(path);
+                System.out.println("已预加载视图: " + path);
+            } catch (IOException e) {
+                System.err.println("预加载视图失败: " + path + ", " + e.getMessage());
+            }
+            Platform.runLater(() -> preloadViews(paths, remaining - 1));
+            return;
+        }
     }
 
     /**
@@ -180,9 +221,16 @@ public class MainController implements Initializable {
 
     /**
      * 根据ID加载相应的视图
+     * 视图第一次显示时加载FXML，之后从缓存中取出，实现了 {@link ViewLifecycle} 的控制器会收到切换通知
      * @param viewId 视图ID
      */
     private void loadView(String viewId) {
+        // 通知当前视图被切走
+        if (currentView != null && currentView.getController() instanceof ViewLifecycle) {
+            ((ViewLifecycle) currentView.getController()).onDeactivated();
+        }
+        currentView = null;
+
         // 清空内容区域
         contentArea.getChildren().clear();
 
@@ -231,9 +279,18 @@ public class MainController implements Initializable {
                     fxmlPath = "/view/transactions.fxml";
             }
 
-            // 加载视图
-            Parent view = FXMLLoader.load(getClass().getResource(fxmlPath));
-            contentArea.getChildren().add(view);
+            // 优先使用缓存的视图
+            ViewCache.CachedView cached = viewCache.getIfPresent(fxmlPath);
+            if (cached == null) {
+                cached = viewCache.load(fxmlPath);
+            }
+            contentArea.getChildren().add(cached.getView());
+
+            // 第一次显示(包括预加载的视图)时initialize已开始加载数据，只在重新显示时刷新
+            if (cached.markShown() && cached.getController() instanceof ViewLifecycle) {
+                ((ViewLifecycle) cached.getController()).onActivated();
+            }
+            currentView = cached;
 
         } catch (IOException e) {
 
@@ -271,6 +328,10 @@ public class MainController implements Initializable {
         // 清除登录状态
         appContext.logout();
 
+        // 缓存的视图属于当前用户
+        viewCache.clear();
+        currentView = null;
+
         // 显示登录界面
         showLoginView();
     }
@@ -1,6 +1,7 @@
 package com.example.software.financeapp.controller;
 
 import com.example.software.financeapp.application.AppContext;
+import com.example.software.financeapp.application.BackgroundLoader;
 import com.example.software.financeapp.model.entity.SavingsGoal;
 import com.example.software.financeapp.model.entity.SavingsTier;
 import com.example.software.financeapp.model.entity.User;
@@ -40,7 +41,7 @@ import java.util.ResourceBundle;
 /**
  * 智能储蓄计划控制器
  */
-public class SavingsPlanController implements Initializable {
+public class SavingsPlanController implements Initializable, ViewLifecycle {
 
     @FXML
     private Label recommendedSavingsLabel;
@@ -119,6 +120,9 @@ public class SavingsPlanController implements Initializable {
     private ObservableList<SavingsTier> tiers = FXCollections.observableArrayList();
     private ObservableList<SavingsGoal> goals = FXCollections.observableArrayList();
     private SavingsPlan currentPlan;
+
+    // 后台查询储蓄数据和生成储蓄计划，重新加载时取消上一次加载
+    private final BackgroundLoader<SavingsData> dataLoader = new BackgroundLoader<>("储蓄计划");
     private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     @Override
@@ -146,10 +150,21 @@ public class SavingsPlanController implements Initializable {
             }
         });
 
+        // 离开储蓄计划视图时取消未完成的加载
+        dataLoader.cancelWhenRemoved(goalsTableView);
+
         // 加载数据
         loadData();
     }
 
+    /**
+     * 视图重新显示时刷新储蓄数据
+     */
+    @Override
+    public void onActivated() {
+        loadData();
+    }
+
     /**
      * 初始化表格列
      */
@@ -217,35 +232,44 @@ public class SavingsPlanController implements Initializable {
 
     /**
      * 加载数据
+     * 储蓄层级、目标和储蓄计划在后台线程上生成，完成后回到JavaFX应用线程更新界面
      */
     private void loadData() {
-        try {
-            // 获取当前用户
-            User currentUser = appContext.getCurrentUser();
-            if (currentUser == null) return;
+        // 获取当前用户
+        User currentUser = appContext.getCurrentUser();
+        if (currentUser == null) return;
 
+        Long userId = currentUser.getId();
+        dataLoader.load(() -> {
+            SavingsData data = new SavingsData();
             // 获取储蓄层级
-            List<SavingsTier> userTiers = savingsPlanService.getUserSavingsTiers(currentUser.getId());
-            tiers.clear();
-            tiers.addAll(userTiers);
-            tierListView.setItems(tiers);
-
+            data.tiers = savingsPlanService.getUserSavingsTiers(userId);
             // 获取储蓄目标
-            List<SavingsGoal> userGoals = savingsPlanService.getUserSavingsGoals(currentUser.getId());
-            goals.clear();
-            goals.addAll(userGoals);
-            goalsTableView.setItems(goals);
-
+            data.goals = savingsPlanService.getUserSavingsGoals(userId);
+            BackgroundLoader.checkCancelled();
             // 生成储蓄计划
-            currentPlan = savingsPlanService.generateSavingsPlan(currentUser.getId());
+            data.plan = savingsPlanService.generateSavingsPlan(userId);
+            return data;
+        }, this::showSavingsData, e -> showErrorAlert("加载数据失败", e.getMessage()));
+    }
 
-            // 更新UI
-            updatePlanSummary();
-            updateTierAllocationChart();
+    /**
+     * 显示加载的储蓄数据
+     */
+    private void showSavingsData(SavingsData data) {
+        tiers.clear();
+        tiers.addAll(data.tiers);
+        tierListView.setItems(tiers);
 
-        } catch (Exception e) {
-            showErrorAlert("加载数据失败", e.getMessage());
-        }
+        goals.clear();
+        goals.addAll(data.goals);
+        goalsTableView.setItems(goals);
+
+        currentPlan = data.plan;
+
+        // 更新UI
+        updatePlanSummary();
+        updateTierAllocationChart();
     }
 
     /**
@@ -575,4 +599,13 @@ public class SavingsPlanController implements Initializable {
         alert.setContentText(message);
         alert.showAndWait();
     }
-}
\ No newline at end of file
+
+    /**
+     * 后台加载的储蓄数据
+     */
+    private static class SavingsData {
+        private List<SavingsTier> tiers;
+        private List<SavingsGoal> goals;
+        private SavingsPlan plan;
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.software.financeapp.controller;
 
+import com.example.software.financeapp.application.BackgroundLoader;
+import com.example.software.financeapp.application.FxBatchPublisher;
 import com.example.software.financeapp.model.entity.Transaction;
 import com.example.software.financeapp.service.ApiService;
 import com.example.software.financeapp.service.FraudDetectionService;
+import com.example.software.financeapp.service.fraud.RiskAssessment;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.geometry.Insets;
@@ -17,9 +20,8 @@ import java.io.IOException;
 import java.net.URL;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
-public class SecurityCenterController implements Initializable {
+public class SecurityCenterController implements Initializable, ViewLifecycle {
 
     @FXML
     private Label securityStatusLabel;
@@ -45,38 +47,74 @@ public class SecurityCenterController implements Initializable {
     @FXML
     private Button scanButton;
 
+    // 每批创建的可疑交易卡片数
+    private static final int CARD_BATCH_SIZE = 20;
+
     private ApiService apiService;
     private FraudDetectionService fraudDetectionService;
     private List<Transaction> allTransactions = new ArrayList<>();
-    private Map<Transaction, List<String>> suspiciousTransactions;
+    private List<RiskAssessment> suspiciousTransactions;
     private Long userId = 1L; // 使用模拟用户ID
 
+    // 后台加载交易和检测可疑交易，可疑交易卡片分批创建
+    private final BackgroundLoader<DetectionResult> detectionLoader = new BackgroundLoader<>("安全中心");
+    private final FxBatchPublisher<RiskAssessment> cardPublisher =
+            detectionLoader.batchPublisher(CARD_BATCH_SIZE, this::addSuspiciousTransactionCards);
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         apiService = new ApiService("https://api.example.com");
         fraudDetectionService = new FraudDetectionService();
 
+        // 离开安全中心时取消未完成的检测
+        detectionLoader.cancelWhenRemoved(suspiciousTransactionsContainer);
+
+        loadTransactions();
+    }
+
+    /**
+     * 视图重新显示时重新加载交易并检测
+     */
+    @Override
+    public void onActivated() {
         loadTransactions();
     }
 
     /**
      * 加载交易数据
+     * 查询和欺诈检测在后台线程上进行，完成后回到JavaFX应用线程更新界面
      */
     private void loadTransactions() {
-        try {
-            allTransactions = apiService.getTransactions(
-                    userId, // 使用固定的模拟用户ID
-                    0,
-                    1000 // 获取较大数量交易
-            );
-
-            updateSecurityStatistics();
-            scanTransactions();
-
-        } catch (IOException e) {
+        detectionLoader.load(() -> {
+            // 检测需要完整的交易历史
+            List<Transaction> transactions = apiService.getAllTransactions(userId);
+            BackgroundLoader.checkCancelled();
+            return new DetectionResult(transactions, fraudDetectionService.detectSuspiciousTransactions(transactions));
+        }, this::showDetectionResult, e -> {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "加载失败", "无法加载交易数据: " + e.getMessage());
-        }
+        });
+    }
+
+    /**
+     * 交易状态变化后在后台线程上重新检测
+     */
+    private void redetectTransactions() {
+        List<Transaction> transactions = allTransactions;
+        detectionLoader.load(() -> new DetectionResult(transactions,
+                        fraudDetectionService.detectSuspiciousTransactions(transactions)),
+                this::showDetectionResult,
+                e -> showAlert(Alert.AlertType.ERROR, "检测失败", "无法检测可疑交易: " + e.getMessage()));
+    }
+
+    /**
+     * 显示检测结果
+     */
+    private void showDetectionResult(DetectionResult result) {
+        allTransactions = result.transactions;
+        suspiciousTransactions = result.assessments;
+        updateSecurityStatistics();
+        scanTransactions();
     }
 
     /**
@@ -91,7 +129,6 @@ public class SecurityCenterController implements Initializable {
                 .filter(Transaction::isVerified)
                 .count();
 
-        suspiciousTransactions = fraudDetectionService.detectSuspiciousTransactions(allTransactions);
         int suspiciousCount = suspiciousTransactions.size();
 
         // 更新UI
@@ -133,8 +170,22 @@ public class SecurityCenterController implements Initializable {
 
     private void scanTransactions() {
         suspiciousTransactionsContainer.getChildren().clear();
+        cardPublisher.clear();
+
+        // 跳过已处理的交易，检测结果已按风险等级排序（从高到低）
+        List<RiskAssessment> pending = new ArrayList<>();
+        if (suspiciousTransactions != null) {
+            for (RiskAssessment assessment : suspiciousTransactions) {
+                Transaction transaction = assessment.getTransaction();
+                if (!transaction.isFraudulent() && !transaction.isVerified()) {
+                    pending.add(assessment);
+                }
+            }
+        }
 
-        if (suspiciousTransactions == null || suspiciousTransactions.isEmpty()) {
+        if (pending.isEmpty()) {
+            noSuspiciousLabel.setVisible(true);
+            noSuspiciousLabel.setManaged(true);
             suspiciousTransactionsContainer.getChildren().add(noSuspiciousLabel);
             return;
         }
@@ -142,38 +193,23 @@ public class SecurityCenterController implements Initializable {
         noSuspiciousLabel.setVisible(false);
         noSuspiciousLabel.setManaged(false);
 
-        // 将可疑交易按风险等级排序（从高到低）
-        List<Map.Entry<Transaction, List<String>>> sortedSuspicious = suspiciousTransactions.entrySet().stream()
-                .sorted((e1, e2) -> {
-                    int risk1 = fraudDetectionService.calculateRiskLevel(e1.getKey(), e1.getValue());
-                    int risk2 = fraudDetectionService.calculateRiskLevel(e2.getKey(), e2.getValue());
-                    return Integer.compare(risk2, risk1); // 从高到低排序
-                })
-                .collect(Collectors.toList());
-
-        for (Map.Entry<Transaction, List<String>> entry : sortedSuspicious) {
-            Transaction transaction = entry.getKey();
-            List<String> reasons = entry.getValue();
-
-            // 跳过已处理的交易
-            if (transaction.isFraudulent() || transaction.isVerified()) {
-                continue;
-            }
+        // 卡片分批创建，可疑交易较多时不会长时间阻塞界面
+        cardPublisher.publishAll(pending);
+    }
 
-            // 计算风险等级
-            int riskLevel = fraudDetectionService.calculateRiskLevel(transaction, reasons);
+    /**
+     * 添加一批可疑交易卡片
+     */
+    private void addSuspiciousTransactionCards(List<RiskAssessment> assessments) {
+        for (RiskAssessment assessment : assessments) {
+            int riskLevel = assessment.getRiskLevel();
             String riskDescription = fraudDetectionService.getRiskLevelDescription(riskLevel);
 
             // 添加交易卡片
-            VBox transactionCard = createSuspiciousTransactionCard(transaction, reasons, riskLevel, riskDescription);
+            VBox transactionCard = createSuspiciousTransactionCard(
+                    assessment.getTransaction(), assessment.getReasons(), riskLevel, riskDescription);
             suspiciousTransactionsContainer.getChildren().add(transactionCard);
         }
-
-        if (suspiciousTransactionsContainer.getChildren().isEmpty()) {
-            noSuspiciousLabel.setVisible(true);
-            noSuspiciousLabel.setManaged(true);
-            suspiciousTransactionsContainer.getChildren().add(noSuspiciousLabel);
-        }
     }
 
     /**
@@ -291,9 +327,8 @@ public class SecurityCenterController implements Initializable {
 
                 showAlert(Alert.AlertType.INFORMATION, "操作成功", "交易已标记为欺诈交易");
 
-                // 更新UI
-                updateSecurityStatistics();
-                scanTransactions();
+                // 重新检测并更新UI
+                redetectTransactions();
 
             } catch (IOException e) {
                 e.printStackTrace();
@@ -312,9 +347,8 @@ public class SecurityCenterController implements Initializable {
 
             showAlert(Alert.AlertType.INFORMATION, "操作成功", "交易已标记为安全");
 
-            // 更新UI
-            updateSecurityStatistics();
-            scanTransactions();
+            // 重新检测并更新UI
+            redetectTransactions();
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -340,4 +374,17 @@ public class SecurityCenterController implements Initializable {
         alert.setContentText(content);
         alert.showAndWait();
     }
-}
\ No newline at end of file
+
+    /**
+     * 后台检测的结果
+     */
+    private static class DetectionResult {
+        private final List<Transaction> transactions;
+        private final List<RiskAssessment> assessments;
+
+        DetectionResult(List<Transaction> transactions, List<RiskAssessment> assessments) {
+            this.transactions = transactions;
+            this.assessments = assessments;
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package com.example.software.financeapp.controller;
 
 import com.example.software.financeapp.application.AppContext;
+import com.example.software.financeapp.application.BackgroundLoader;
 import com.example.software.financeapp.model.entity.Category;
 import com.example.software.financeapp.model.entity.Transaction;
 import com.example.software.financeapp.model.entity.User;
 import com.example.software.financeapp.model.enums.TransactionType;
 import com.example.software.financeapp.service.ApiService;
+import com.example.software.financeapp.service.analysis.AmountBaselines;
 import com.example.software.financeapp.service.analysis.ExpenditureAnalysisService;
+import com.example.software.financeapp.service.analysis.TransactionColumns;
 import com.example.software.financeapp.util.DateUtil;
+import com.example.software.financeapp.util.FenAccumulator;
 import com.example.software.financeapp.util.FileUtil;
+import com.example.software.financeapp.util.LttbDownsampler;
+
+import javafx.animation.PauseTransition;
 
 import javafx.beans.value.ChangeListener;
 import javafx.collections.FXCollections;
@@ -20,11 +27,9 @@ import javafx.geometry.Insets;
 import javafx.scene.chart.*;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
-import javafx.scene.layout.Pane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
@@ -39,13 +44,14 @@ import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.ResourceBundle;
 
 /**
  * 支出分析控制器 - 提供详细的支出趋势和分布分析
  */
-public class SpendingAnalysisController implements Initializable {
+public class SpendingAnalysisController implements Initializable, ViewLifecycle {
 
     // 日期选择控件
     @FXML
@@ -115,14 +121,33 @@ public class SpendingAnalysisController implements Initializable {
     private ApiService apiService;
     private ExpenditureAnalysisService analysisService;
 
-    // 数据相关字段
-    private List<Transaction> allTransactions;
-    private List<Transaction> filteredTransactions;
+    // 后台计算的分析数据
+    private SpendingData spendingData;
+
+    // 热图画布，第一次显示热图时创建
+    private HeatmapCanvas heatmapCanvas;
+
+    // 热图的星期标签
+    private static final String[] DAY_OF_WEEK_LABELS = {"周一", "周二", "周三", "周四", "周五", "周六", "周日"};
+
+    // 后台查询交易并计算统计和图表数据，重新查询时取消上一次加载
+    private final BackgroundLoader<SpendingData> dataLoader = new BackgroundLoader<>("支出分析");
     private Map<Category, BigDecimal> categoryDistribution;
     private Map<String, BigDecimal> timeSeriesData;
     private final DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("yyyy-MM");
     private final DateTimeFormatter weekFormatter = DateTimeFormatter.ofPattern("yyyy-'W'w");
     private final DateTimeFormatter dayFormatter = DateTimeFormatter.ofPattern("MM-dd");
+    private final DateTimeFormatter fullDayFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    // 趋势图每个数据点至少占用的宽度(像素)，超出时用LTTB降采样
+    private static final double LINE_PIXELS_PER_POINT = 3;
+    private static final double BAR_PIXELS_PER_POINT = 6;
+
+    // 图表尚未布局时假定的宽度
+    private static final double DEFAULT_TREND_CHART_WIDTH = 800;
+
+    // 图表大小变化停止后再重新降采样
+    private final PauseTransition trendResizeDelay = new PauseTransition(javafx.util.Duration.millis(150));
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -138,10 +163,26 @@ public class SpendingAnalysisController implements Initializable {
         // 设置图表切换监听器
         setupChartTypeListeners();
 
+        // 趋势图宽度变化后按新宽度重新降采样
+        trendResizeDelay.setOnFinished(event -> refreshTrendChartIfResized());
+        spendingTrendLineChart.widthProperty().addListener((obs, oldVal, newVal) -> trendResizeDelay.playFromStart());
+        spendingTrendBarChart.widthProperty().addListener((obs, oldVal, newVal) -> trendResizeDelay.playFromStart());
+
+        // 离开分析视图时取消未完成的加载
+        dataLoader.cancelWhenRemoved(startDatePicker);
+
         // 加载初始数据
         loadData();
     }
 
+    /**
+     * 视图重新显示时按当前日期范围重新查询
+     */
+    @Override
+    public void onActivated() {
+        loadData();
+    }
+
     /**
      * 初始化日期选择器
      */
@@ -228,42 +269,86 @@ public class SpendingAnalysisController implements Initializable {
 
     /**
      * 加载数据
+     * 交易查询和全部统计、图表、洞察的计算在后台线程上进行，完成后回到JavaFX应用线程显示
      */
     @FXML
     private void loadData() {
-        try {
-            // 获取当前用户
-            User currentUser = appContext.getCurrentUser();
-            if (currentUser == null) return;
-
-            // 获取所有交易记录
-            allTransactions = apiService.getTransactions(currentUser.getId(), 0, 1000);
+        // 获取当前用户
+        User currentUser = appContext.getCurrentUser();
+        if (currentUser == null) return;
 
-            // 应用日期过滤
-            applyDateFilter();
+        LocalDate startDate = startDatePicker.getValue();
+        LocalDate endDate = endDatePicker.getValue();
+        if (startDate == null || endDate == null) return;
 
-        } catch (IOException e) {
-            showErrorAlert("加载数据失败", e.getMessage());
-        }
+        Long userId = currentUser.getId();
+        dataLoader.load(() -> loadSpendingData(userId, startDate, endDate), this::showSpendingData,
+                e -> showErrorAlert("加载数据失败", e.getMessage()));
     }
 
     /**
-     * 应用日期过滤
+     * 查询交易并计算统计、趋势、分布、热图和消费模式洞察(后台线程，不能访问界面)
+     * 趋势图和热图的各个粒度都在这里算好，切换粒度时直接显示
      */
-    private void applyDateFilter() {
-        LocalDate startDate = startDatePicker.getValue();
-        LocalDate endDate = endDatePicker.getValue();
+    private SpendingData loadSpendingData(Long userId, LocalDate startDate, LocalDate endDate) throws IOException {
+        // 只获取所选日期范围内的交易记录
+        List<Transaction> transactions = apiService.getTransactionsBetween(userId, startDate, endDate);
+        BackgroundLoader.checkCancelled();
 
-        if (startDate == null || endDate == null) return;
+        // 查询结果的列式快照，统计、趋势、分布和热图从快照按日期范围汇总
+        TransactionColumns columns = TransactionColumns.of(transactions);
+
+        SpendingData data = new SpendingData();
 
-        // 过滤交易记录
-        filteredTransactions = allTransactions.stream()
+        // 应用日期过滤，只保留支出
+        data.expenses = transactions.stream()
                 .filter(t -> t.getType() == TransactionType.EXPENSE)
                 .filter(t -> {
                     LocalDate date = t.getTransactionDate().toLocalDate();
                     return !date.isBefore(startDate) && !date.isAfter(endDate);
                 })
                 .collect(Collectors.toList());
+        if (data.expenses.isEmpty()) {
+            return data;
+        }
+
+        // 统计信息
+        data.totalSpending = columns.sum(TransactionType.EXPENSE, startDate, endDate);
+        long months = ChronoUnit.MONTHS.between(startDate, endDate) + 1;
+        if (months < 1) months = 1;
+        data.avgMonthlySpending = data.totalSpending.divide(BigDecimal.valueOf(months), 2, RoundingMode.HALF_UP);
+        data.maxSpending = columns.max(TransactionType.EXPENSE, startDate, endDate);
+        data.frequency = (double) data.expenses.size() / months;
+
+        // 趋势
+        data.timeSeries.put("日", prepareTimeSeriesDataByDay(columns, startDate, endDate));
+        data.timeSeries.put("周", prepareTimeSeriesDataByWeek(columns, startDate, endDate));
+        data.timeSeries.put("月", prepareTimeSeriesDataByMonth(columns, startDate, endDate));
+        BackgroundLoader.checkCancelled();
+
+        // 类别分布
+        data.categoryDistribution = analysisService.calculateCategoryDistribution(columns, startDate, endDate);
+
+        // 热图
+        data.heatmaps.put("日", createDailyHeatmap(columns, startDate, endDate));
+        data.heatmaps.put("周", createWeeklyHeatmap(columns, startDate, endDate));
+        data.heatmaps.put("月", createMonthlyHeatmap(columns, startDate, endDate));
+        BackgroundLoader.checkCancelled();
+
+        // 消费模式洞察
+        data.insights.put("主要支出类别", buildCategoryInsight(data.categoryDistribution));
+        data.insights.put("支出时间模式", buildTimePatternInsight(columns, startDate, endDate));
+        data.insights.put("周期性支出", buildRecurringInsight(data.expenses));
+        data.insights.put("异常支出检测", buildAnomalyInsight(data.expenses));
+        return data;
+    }
+
+    /**
+     * 显示加载的数据
+     */
+    private void showSpendingData(SpendingData data) {
+        spendingData = data;
+        categoryDistribution = data.categoryDistribution;
 
         // 更新统计和图表
         updateStatistics();
@@ -278,14 +363,22 @@ public class SpendingAnalysisController implements Initializable {
      */
     @FXML
     private void handleApplyFilter(ActionEvent event) {
-        applyDateFilter();
+        // 日期范围可能已变化，重新查询
+        loadData();
+    }
+
+    /**
+     * 是否有可显示的支出数据
+     */
+    private boolean hasExpenses() {
+        return spendingData != null && !spendingData.expenses.isEmpty();
     }
 
     /**
      * 更新统计信息
      */
     private void updateStatistics() {
-        if (filteredTransactions.isEmpty()) {
+        if (!hasExpenses()) {
             totalSpendingLabel.setText("¥0.00");
             avgMonthlySpendingLabel.setText("¥0.00");
             maxSpendingLabel.setText("¥0.00");
@@ -293,62 +386,24 @@ public class SpendingAnalysisController implements Initializable {
             return;
         }
 
-        // 计算总支出
-        BigDecimal totalSpending = filteredTransactions.stream()
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        totalSpendingLabel.setText(String.format("¥%.2f", totalSpending));
-
-        // 计算月均支出
-        LocalDate startDate = startDatePicker.getValue();
-        LocalDate endDate = endDatePicker.getValue();
-        long months = ChronoUnit.MONTHS.between(startDate, endDate) + 1;
-        if (months < 1) months = 1;
-
-        BigDecimal avgMonthlySpending = totalSpending.divide(BigDecimal.valueOf(months), 2, RoundingMode.HALF_UP);
-        avgMonthlySpendingLabel.setText(String.format("¥%.2f", avgMonthlySpending));
-
-        // 计算最高单笔支出
-        BigDecimal maxSpending = filteredTransactions.stream()
-                .map(Transaction::getAmount)
-                .max(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
-        maxSpendingLabel.setText(String.format("¥%.2f", maxSpending));
-
-        // 计算支出频率
-        double frequency = (double) filteredTransactions.size() / months;
-        spendingFrequencyLabel.setText(String.format("%.1f次/月", frequency));
+        totalSpendingLabel.setText(String.format("¥%.2f", spendingData.totalSpending));
+        avgMonthlySpendingLabel.setText(String.format("¥%.2f", spendingData.avgMonthlySpending));
+        maxSpendingLabel.setText(String.format("¥%.2f", spendingData.maxSpending));
+        spendingFrequencyLabel.setText(String.format("%.1f次/月", spendingData.frequency));
     }
 
     /**
      * 更新趋势图表
      */
     private void updateTrendChart() {
-        if (filteredTransactions == null || filteredTransactions.isEmpty()) {
+        if (!hasExpenses()) {
             spendingTrendLineChart.getData().clear();
             spendingTrendBarChart.getData().clear();
             return;
         }
 
-        // 获取时间粒度
-        String granularity = trendGranularityComboBox.getValue();
-
-        // 准备时间序列数据
-        timeSeriesData = new LinkedHashMap<>();
-
-        // 根据不同粒度分组数据
-        switch (granularity) {
-            case "日":
-                prepareTimeSeriesDataByDay();
-                break;
-            case "周":
-                prepareTimeSeriesDataByWeek();
-                break;
-            case "月":
-            default:
-                prepareTimeSeriesDataByMonth();
-                break;
-        }
+        // 按时间粒度取后台准备好的时间序列
+        timeSeriesData = spendingData.timeSeries.get(granularityKey(trendGranularityComboBox.getValue()));
 
         // 更新图表
         if ("折线图".equals(trendChartTypeComboBox.getValue())) {
@@ -358,88 +413,73 @@ public class SpendingAnalysisController implements Initializable {
         }
     }
 
+    /**
+     * 粒度下拉框的值，未选择时按月
+     */
+    private static String granularityKey(String granularity) {
+        return "日".equals(granularity) || "周".equals(granularity) ? granularity : "月";
+    }
+
     /**
      * 准备按日分组的时间序列数据
      */
-    private void prepareTimeSeriesDataByDay() {
-        // 获取日期范围
-        LocalDate startDate = startDatePicker.getValue();
-        LocalDate endDate = endDatePicker.getValue();
+    private Map<String, BigDecimal> prepareTimeSeriesDataByDay(TransactionColumns columns, LocalDate startDate, LocalDate endDate) {
+        Map<String, BigDecimal> timeSeriesData = new LinkedHashMap<>();
 
-        // 初始化每一天的数据
-        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            timeSeriesData.put(date.format(dayFormatter), BigDecimal.ZERO);
-        }
+        // 按日汇总，分组序号为距开始日期的天数
+        int days = (int) ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        FenAccumulator totals = columns.sumByDay(TransactionType.EXPENSE, startDate, endDate);
 
-        // 按日汇总
-        for (Transaction t : filteredTransactions) {
-            LocalDate date = t.getTransactionDate().toLocalDate();
-            String key = date.format(dayFormatter);
+        // 跨年时标签带上年份，避免不同年份的同一天重复
+        DateTimeFormatter formatter = startDate.getYear() == endDate.getYear() ? dayFormatter : fullDayFormatter;
 
-            if (timeSeriesData.containsKey(key)) {
-                BigDecimal current = timeSeriesData.get(key);
-                timeSeriesData.put(key, current.add(t.getAmount()));
-            }
+        // 每一天都有数据
+        for (int i = 0; i < days; i++) {
+            timeSeriesData.put(startDate.plusDays(i).format(formatter), totals.get(i));
         }
+        return timeSeriesData;
     }
 
     /**
      * 准备按周分组的时间序列数据
      */
-    private void prepareTimeSeriesDataByWeek() {
-        // 获取日期范围
-        LocalDate startDate = startDatePicker.getValue();
-        LocalDate endDate = endDatePicker.getValue();
+    private Map<String, BigDecimal> prepareTimeSeriesDataByWeek(TransactionColumns columns, LocalDate startDate, LocalDate endDate) {
+        Map<String, BigDecimal> timeSeriesData = new LinkedHashMap<>();
 
         // 调整到周的开始
         LocalDate startWeek = startDate.with(DayOfWeek.MONDAY);
 
-        // 初始化每周的数据
-        for (LocalDate date = startWeek; !date.isAfter(endDate); date = date.plusWeeks(1)) {
-            timeSeriesData.put(date.format(weekFormatter), BigDecimal.ZERO);
-        }
-
-        // 按周汇总
-        for (Transaction t : filteredTransactions) {
-            LocalDate date = t.getTransactionDate().toLocalDate();
-            // 获取该日期所在周的周一
-            LocalDate weekStart = date.with(DayOfWeek.MONDAY);
-            String key = weekStart.format(weekFormatter);
+        // 按周汇总，分组序号为该日期所在周的周一距开始周的周数
+        int weeks = (int) ChronoUnit.WEEKS.between(startWeek, endDate) + 1;
+        FenAccumulator totals = columns.sumByWeek(TransactionType.EXPENSE, startDate, endDate);
 
-            if (timeSeriesData.containsKey(key)) {
-                BigDecimal current = timeSeriesData.get(key);
-                timeSeriesData.put(key, current.add(t.getAmount()));
-            }
+        // 每周都有数据
+        for (int i = 0; i < weeks; i++) {
+            timeSeriesData.put(startWeek.plusWeeks(i).format(weekFormatter), totals.get(i));
         }
+        return timeSeriesData;
     }
 
     /**
      * 准备按月分组的时间序列数据
      */
-    private void prepareTimeSeriesDataByMonth() {
-        // 获取日期范围
-        LocalDate startDate = startDatePicker.getValue();
-        LocalDate endDate = endDatePicker.getValue();
+    private Map<String, BigDecimal> prepareTimeSeriesDataByMonth(TransactionColumns columns, LocalDate startDate, LocalDate endDate) {
+        Map<String, BigDecimal> timeSeriesData = new LinkedHashMap<>();
 
         // 调整到月的开始
         YearMonth startMonth = YearMonth.from(startDate);
         YearMonth endMonth = YearMonth.from(endDate);
 
-        // 初始化每个月的数据
-        for (YearMonth month = startMonth; !month.isAfter(endMonth); month = month.plusMonths(1)) {
-            timeSeriesData.put(month.format(monthFormatter), BigDecimal.ZERO);
-        }
-
-        // 按月汇总
-        for (Transaction t : filteredTransactions) {
-            YearMonth month = YearMonth.from(t.getTransactionDate());
-            String key = month.format(monthFormatter);
+        // 按月汇总，分组序号为距开始月份的月数；只统计所选日期范围内的交易
+        int months = (int) startMonth.until(endMonth, ChronoUnit.MONTHS) + 1;
+        FenAccumulator totals = columns.sumByDay(TransactionType.EXPENSE, startDate, endDate)
+                .regroup(months, day -> (int) startMonth.until(YearMonth.from(startDate.plusDays(day)), ChronoUnit.MONTHS));
 
-            if (timeSeriesData.containsKey(key)) {
-                BigDecimal current = timeSeriesData.get(key);
-                timeSeriesData.put(key, current.add(t.getAmount()));
-            }
+        // 每个月都有数据
+        for (int i = 0; i < months; i++) {
+            timeSeriesData.put(startMonth.plusMonths(i).format(monthFormatter), totals.get(i));
         }
+        return timeSeriesData;
     }
 
     /**
@@ -449,19 +489,17 @@ public class SpendingAnalysisController implements Initializable {
         spendingTrendLineChart.getData().clear();
 
         // 创建数据系列
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName("支出趋势");
+        XYChart.Series<String, Number> series = createTrendSeries(getTrendPointLimit(spendingTrendLineChart, LINE_PIXELS_PER_POINT));
 
-        // 添加数据
-        for (Map.Entry<String, BigDecimal> entry : timeSeriesData.entrySet()) {
-            series.getData().add(new XYChart.Data<>(entry.getKey(), entry.getValue()));
+        // 调整X轴标签
+        List<String> categories = new ArrayList<>(series.getData().size());
+        for (XYChart.Data<String, Number> data : series.getData()) {
+            categories.add(data.getXValue());
         }
+        trendXAxis.getCategories().clear();
+        trendXAxis.setCategories(FXCollections.observableArrayList(categories));
 
         spendingTrendLineChart.getData().add(series);
-
-        // 调整X轴标签
-        trendXAxis.getCategories().clear();
-        trendXAxis.setCategories(FXCollections.observableArrayList(timeSeriesData.keySet()));
     }
 
     /**
@@ -471,32 +509,75 @@ public class SpendingAnalysisController implements Initializable {
         spendingTrendBarChart.getData().clear();
 
         // 创建数据系列
+        XYChart.Series<String, Number> series = createTrendSeries(getTrendPointLimit(spendingTrendBarChart, BAR_PIXELS_PER_POINT));
+
+        spendingTrendBarChart.getData().add(series);
+    }
+
+    /**
+     * 创建趋势数据系列，数据点超过上限时用LTTB降采样，保留峰值和谷值
+     * 导出仍使用完整的时间序列
+     * @param maxPoints 数据点上限
+     */
+    private XYChart.Series<String, Number> createTrendSeries(int maxPoints) {
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("支出趋势");
 
+        List<String> labels = new ArrayList<>(timeSeriesData.keySet());
+        List<BigDecimal> amounts = new ArrayList<>(timeSeriesData.values());
+        double[] values = new double[amounts.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = amounts.get(i).doubleValue();
+        }
+
         // 添加数据
-        for (Map.Entry<String, BigDecimal> entry : timeSeriesData.entrySet()) {
-            series.getData().add(new XYChart.Data<>(entry.getKey(), entry.getValue()));
+        for (int index : LttbDownsampler.select(values, maxPoints)) {
+            series.getData().add(new XYChart.Data<>(labels.get(index), amounts.get(index)));
         }
+        return series;
+    }
 
-        spendingTrendBarChart.getData().add(series);
+    /**
+     * 按图表宽度计算趋势图的数据点上限
+     */
+    private int getTrendPointLimit(XYChart<String, Number> chart, double pixelsPerPoint) {
+        double width = chart.getWidth() > 0 ? chart.getWidth() : DEFAULT_TREND_CHART_WIDTH;
+        return Math.max(3, (int) (width / pixelsPerPoint));
+    }
+
+    /**
+     * 图表宽度变化后，如果可显示的数据点数量变化则重新绘制当前趋势图
+     */
+    private void refreshTrendChartIfResized() {
+        if (timeSeriesData == null || timeSeriesData.isEmpty()) {
+            return;
+        }
+
+        boolean lineChart = "折线图".equals(trendChartTypeComboBox.getValue());
+        XYChart<String, Number> chart = lineChart ? spendingTrendLineChart : spendingTrendBarChart;
+        int limit = getTrendPointLimit(chart, lineChart ? LINE_PIXELS_PER_POINT : BAR_PIXELS_PER_POINT);
+        int expectedPoints = limit < timeSeriesData.size() ? limit : timeSeriesData.size();
+        int shownPoints = chart.getData().isEmpty() ? 0 : chart.getData().get(0).getData().size();
+
+        if (expectedPoints != shownPoints) {
+            if (lineChart) {
+                updateLineChart();
+            } else {
+                updateBarChart();
+            }
+        }
     }
 
     /**
      * 更新分布图表
      */
     private void updateDistributionChart() {
-        if (filteredTransactions == null || filteredTransactions.isEmpty()) {
+        if (!hasExpenses()) {
             categoryPieChart.getData().clear();
             categoryBarChart.getData().clear();
             return;
         }
 
-        // 计算类别分布
-        LocalDate startDate = startDatePicker.getValue();
-        LocalDate endDate = endDatePicker.getValue();
-        categoryDistribution = analysisService.calculateCategoryDistribution(filteredTransactions, startDate, endDate);
-
         if ("饼图".equals(distributionChartTypeComboBox.getValue())) {
             updatePieChart();
         } else {
@@ -559,140 +640,110 @@ public class SpendingAnalysisController implements Initializable {
      * 更新热图
      */
     private void updateHeatmap() {
-        if (filteredTransactions == null || filteredTransactions.isEmpty()) {
+        if (!hasExpenses()) {
             heatmapContainer.getChildren().clear();
             return;
         }
 
-        String granularity = heatmapGranularityComboBox.getValue();
-
-        if ("日".equals(granularity)) {
-            createDailyHeatmap();
-        } else if ("周".equals(granularity)) {
-            createWeeklyHeatmap();
-        } else {
-            createMonthlyHeatmap();
+        // 各粒度共用一个画布，切换粒度或日期范围时只替换数据
+        if (heatmapCanvas == null) {
+            heatmapCanvas = new HeatmapCanvas();
         }
+        if (!heatmapContainer.getChildren().contains(heatmapCanvas)) {
+            heatmapContainer.getChildren().setAll(heatmapCanvas);
+        }
+
+        HeatmapData heatmap = spendingData.heatmaps.get(granularityKey(heatmapGranularityComboBox.getValue()));
+        heatmapCanvas.setData(heatmap.rowLabels, heatmap.columnLabels, heatmap.values, heatmap.cellDescriber);
     }
 
     /**
      * 创建日粒度热图（按一周7天和24小时）
      */
-    private void createDailyHeatmap() {
-        heatmapContainer.getChildren().clear();
-
-        // 创建24x7的二维数组，表示一周内每天每小时的支出
-        BigDecimal[][] heatmapData = new BigDecimal[7][24];
-        for (int i = 0; i < 7; i++) {
-            for (int j = 0; j < 24; j++) {
-                heatmapData[i][j] = BigDecimal.ZERO;
-            }
+    private static HeatmapData createDailyHeatmap(TransactionColumns columns, LocalDate startDate, LocalDate endDate) {
+        // 统计数据，按一周内每天(0-6)每小时(0-23)分组
+        FenAccumulator totals = columns.sumByDayOfWeekAndHour(TransactionType.EXPENSE, startDate, endDate);
+
+        String[] hourLabels = new String[24];
+        for (int hour = 0; hour < 24; hour++) {
+            hourLabels[hour] = String.format("%02d", hour);
         }
 
-        // 统计数据
-        for (Transaction t : filteredTransactions) {
-            LocalDateTime dateTime = t.getTransactionDate();
-            int dayOfWeek = dateTime.getDayOfWeek().getValue() - 1; // 0-6
-            int hour = dateTime.getHour(); // 0-23
+        return new HeatmapData(DAY_OF_WEEK_LABELS, hourLabels, toHeatmapValues(totals, 7 * 24),
+                cell -> String.format("%s %02d:00-%02d:00: ¥%.2f",
+                        DAY_OF_WEEK_LABELS[cell / 24], cell % 24, cell % 24 + 1, totals.get(cell)));
+    }
 
-            heatmapData[dayOfWeek][hour] = heatmapData[dayOfWeek][hour].add(t.getAmount());
+    /**
+     * 创建周粒度热图（按月份和一周7天）
+     */
+    private HeatmapData createWeeklyHeatmap(TransactionColumns columns, LocalDate startDate, LocalDate endDate) {
+        YearMonth firstMonth = YearMonth.from(startDate);
+        int months = (int) firstMonth.until(YearMonth.from(endDate), ChronoUnit.MONTHS) + 1;
+
+        // 按日汇总后合并为 月份序号 * 7 + 星期序号(周一为0)
+        FenAccumulator totals = columns.sumByDay(TransactionType.EXPENSE, startDate, endDate)
+                .regroup(months * 7, day -> {
+                    LocalDate date = startDate.plusDays(day);
+                    int month = (int) firstMonth.until(YearMonth.from(date), ChronoUnit.MONTHS);
+                    return month * 7 + date.getDayOfWeek().getValue() - 1;
+                });
+
+        String[] monthLabels = new String[months];
+        for (int i = 0; i < months; i++) {
+            monthLabels[i] = firstMonth.plusMonths(i).format(monthFormatter);
         }
 
-        // 找出最大值，用于颜色比例尺
-        BigDecimal maxValue = Arrays.stream(heatmapData)
-                .flatMap(Arrays::stream)
-                .max(BigDecimal::compareTo)
-                .orElse(BigDecimal.ONE);
-
-        // 创建热图
-        Pane heatmap = new Pane();
-        heatmap.setPrefSize(800, 400);
-
-        // 单元格大小
-        double cellWidth = 800.0 / 24;
-        double cellHeight = 300.0 / 7;
-
-        // 绘制热图单元格
-        for (int day = 0; day < 7; day++) {
-            for (int hour = 0; hour < 24; hour++) {
-                BigDecimal value = heatmapData[day][hour];
-                double intensity = value.doubleValue() / maxValue.doubleValue();
-
-                Rectangle cell = new Rectangle(
-                        hour * cellWidth,
-                        day * cellHeight,
-                        cellWidth,
-                        cellHeight
-                );
-
-                // 计算颜色强度（使用从白色到红色的渐变）
-                Color color = Color.rgb(
-                        255,
-                        (int) (255 * (1 - intensity)),
-                        (int) (255 * (1 - intensity))
-                );
-
-                cell.setFill(color);
-                cell.setStroke(Color.LIGHTGRAY);
-
-                // 添加工具提示
-                String dayName = DayOfWeek.of(day + 1).name();
-                String tooltipText = String.format(
-                        "%s %02d:00-%02d:00: ¥%.2f",
-                        dayName, hour, hour + 1, value
-                );
-                Tooltip tooltip = new Tooltip(tooltipText);
-                Tooltip.install(cell, tooltip);
-
-                heatmap.getChildren().add(cell);
+        return new HeatmapData(monthLabels, DAY_OF_WEEK_LABELS, toHeatmapValues(totals, months * 7),
+                cell -> String.format("%s %s: ¥%.2f", monthLabels[cell / 7], DAY_OF_WEEK_LABELS[cell % 7], totals.get(cell)));
+    }
+
+    /**
+     * 创建月粒度热图（按年份和12个月）
+     */
+    private static HeatmapData createMonthlyHeatmap(TransactionColumns columns, LocalDate startDate, LocalDate endDate) {
+        int firstYear = startDate.getYear();
+        int years = endDate.getYear() - firstYear + 1;
+
+        // 按日汇总后合并为 年份序号 * 12 + 月份序号
+        FenAccumulator totals = columns.sumByDay(TransactionType.EXPENSE, startDate, endDate)
+                .regroup(years * 12, day -> {
+                    LocalDate date = startDate.plusDays(day);
+                    return (date.getYear() - firstYear) * 12 + date.getMonthValue() - 1;
+                });
+
+        double[] values = toHeatmapValues(totals, years * 12);
+        // 第一年开始日期之前和最后一年结束日期之后的月份不在范围内
+        int firstCell = startDate.getMonthValue() - 1;
+        int lastCell = (years - 1) * 12 + endDate.getMonthValue() - 1;
+        for (int cell = 0; cell < values.length; cell++) {
+            if (cell < firstCell || cell > lastCell) {
+                values[cell] = Double.NaN;
             }
         }
 
-        // 添加坐标轴标签
-        // Y轴（星期）
-        String[] dayLabels = {"周一", "周二", "周三", "周四", "周五", "周六", "周日"};
-        for (int i = 0; i < 7; i++) {
-            Label label = new Label(dayLabels[i]);
-            label.setLayoutX(5);
-            label.setLayoutY(i * cellHeight + cellHeight/2 - 10);
-            heatmap.getChildren().add(label);
+        String[] yearLabels = new String[years];
+        for (int i = 0; i < years; i++) {
+            yearLabels[i] = (firstYear + i) + "年";
         }
-
-        // X轴（小时）
-        for (int i = 0; i < 24; i += 3) {
-            Label label = new Label(String.format("%02d", i));
-            label.setLayoutX(i * cellWidth + cellWidth/2 - 10);
-            label.setLayoutY(7 * cellHeight + 5);
-            heatmap.getChildren().add(label);
+        String[] monthLabels = new String[12];
+        for (int i = 0; i < 12; i++) {
+            monthLabels[i] = (i + 1) + "月";
         }
 
-        heatmapContainer.getChildren().add(heatmap);
-    }
-
-    /**
-     * 创建周粒度热图
-     */
-    private void createWeeklyHeatmap() {
-        // 类似实现，但按月份和星期划分
-        heatmapContainer.getChildren().clear();
-
-        // 创建一个简单的提示标签，表示该功能正在开发中
-        Label label = new Label("周粒度热图功能正在开发中...");
-        label.setFont(new Font(16));
-        heatmapContainer.getChildren().add(label);
+        return new HeatmapData(yearLabels, monthLabels, values,
+                cell -> String.format("%s%s: ¥%.2f", yearLabels[cell / 12], monthLabels[cell % 12], totals.get(cell)));
     }
 
     /**
-     * 创建月粒度热图
+     * 把分组合计转换为热图单元格的值
      */
-    private void createMonthlyHeatmap() {
-        // 类似实现，但按年和月划分
-        heatmapContainer.getChildren().clear();
-
-        // 创建一个简单的提示标签，表示该功能正在开发中
-        Label label = new Label("月粒度热图功能正在开发中...");
-        label.setFont(new Font(16));
-        heatmapContainer.getChildren().add(label);
+    private static double[] toHeatmapValues(FenAccumulator totals, int cells) {
+        double[] values = new double[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            values[cell] = totals.get(cell).doubleValue();
+        }
+        return values;
     }
 
     /**
@@ -701,37 +752,37 @@ public class SpendingAnalysisController implements Initializable {
     private void updatePatternInsights() {
         patternInsightsContainer.getChildren().clear();
 
-        if (filteredTransactions == null || filteredTransactions.isEmpty()) {
+        if (!hasExpenses()) {
             Label emptyLabel = new Label("没有足够的交易数据来分析消费模式。");
             emptyLabel.setFont(new Font(14));
             patternInsightsContainer.getChildren().add(emptyLabel);
             return;
         }
 
-        // 1. 添加主要消费类别洞察
-        addCategoryInsight();
-
-        // 2. 添加支出时间模式洞察
-        addTimePatternInsight();
+        // 主要消费类别、支出时间模式、周期性支出和异常支出
+        for (Map.Entry<String, String> insight : spendingData.insights.entrySet()) {
+            VBox insightBox = createInsightBox(insight.getKey());
 
-        // 3. 添加周期性支出洞察
-        addRecurringInsight();
+            Label contentLabel = new Label(insight.getValue());
+            contentLabel.setWrapText(true);
 
-        // 4. 添加异常支出洞察
-        addAnomalyInsight();
+            insightBox.getChildren().add(contentLabel);
+            patternInsightsContainer.getChildren().add(insightBox);
+        }
     }
 
     /**
-     * 添加类别洞察
+     * 生成类别洞察
      */
-    private void addCategoryInsight() {
-        VBox insightBox = createInsightBox("主要支出类别");
-
+    private static String buildCategoryInsight(Map<Category, BigDecimal> categoryDistribution) {
         // 按金额排序类别
         List<Map.Entry<Category, BigDecimal>> sortedCategories = categoryDistribution.entrySet().stream()
                 .sorted(Map.Entry.<Category, BigDecimal>comparingByValue().reversed())
                 .limit(3)
                 .collect(Collectors.toList());
+        if (sortedCategories.isEmpty()) {
+            return "所选时间段内没有已分类的支出。";
+        }
 
         // 计算总支出
         BigDecimal totalSpending = categoryDistribution.values().stream()
@@ -762,42 +813,26 @@ public class SpendingAnalysisController implements Initializable {
                     .append("类别，建议适当平衡各类支出。");
         }
 
-        Label contentLabel = new Label(sb.toString());
-        contentLabel.setWrapText(true);
-
-        insightBox.getChildren().add(contentLabel);
-        patternInsightsContainer.getChildren().add(insightBox);
+        return sb.toString();
     }
 
     /**
-     * 添加时间模式洞察
+     * 生成时间模式洞察
      */
-    private void addTimePatternInsight() {
-        VBox insightBox = createInsightBox("支出时间模式");
+    private static String buildTimePatternInsight(TransactionColumns columns, LocalDate startDate, LocalDate endDate) {
+        // 按星期和小时统计
+        FenAccumulator totals = columns.sumByDayOfWeekAndHour(TransactionType.EXPENSE, startDate, endDate);
+        FenAccumulator dayTotals = totals.regroup(7, bucket -> bucket / 24);
+        FenAccumulator hourTotals = totals.regroup(24, bucket -> bucket % 24);
 
-        // 按星期统计
         Map<DayOfWeek, BigDecimal> spendingByDayOfWeek = new EnumMap<>(DayOfWeek.class);
         for (DayOfWeek day : DayOfWeek.values()) {
-            spendingByDayOfWeek.put(day, BigDecimal.ZERO);
+            spendingByDayOfWeek.put(day, dayTotals.get(day.getValue() - 1));
         }
 
-        // 按小时统计
         Map<Integer, BigDecimal> spendingByHour = new HashMap<>();
         for (int i = 0; i < 24; i++) {
-            spendingByHour.put(i, BigDecimal.ZERO);
-        }
-
-        // 统计数据
-        for (Transaction t : filteredTransactions) {
-            LocalDateTime dateTime = t.getTransactionDate();
-            DayOfWeek dayOfWeek = dateTime.getDayOfWeek();
-            int hour = dateTime.getHour();
-
-            spendingByDayOfWeek.put(dayOfWeek,
-                    spendingByDayOfWeek.get(dayOfWeek).add(t.getAmount()));
-
-            spendingByHour.put(hour,
-                    spendingByHour.get(hour).add(t.getAmount()));
+            spendingByHour.put(i, hourTotals.get(i));
         }
 
         // 找出支出最高的星期
@@ -818,9 +853,7 @@ public class SpendingAnalysisController implements Initializable {
             sb.append(String.format("您在%s的支出最多，占总支出的%.1f%%。\n\n",
                     dayName,
                     maxDayEntry.getValue()
-                            .divide(filteredTransactions.stream()
-                                    .map(Transaction::getAmount)
-                                    .reduce(BigDecimal.ZERO, BigDecimal::add), 4, RoundingMode.HALF_UP)
+                            .divide(dayTotals.total(), 4, RoundingMode.HALF_UP)
                             .multiply(BigDecimal.valueOf(100))));
         }
 
@@ -830,22 +863,16 @@ public class SpendingAnalysisController implements Initializable {
                     hour, hour + 1));
         }
 
-        Label contentLabel = new Label(sb.toString());
-        contentLabel.setWrapText(true);
-
-        insightBox.getChildren().add(contentLabel);
-        patternInsightsContainer.getChildren().add(insightBox);
+        return sb.toString();
     }
 
     /**
-     * 添加周期性支出洞察
+     * 生成周期性支出洞察
      */
-    private void addRecurringInsight() {
-        VBox insightBox = createInsightBox("周期性支出");
-
+    private static String buildRecurringInsight(List<Transaction> expenses) {
         // 假设我们有一个方法来检测周期性支出
         // 这里简化处理，尝试根据名称识别一些常见的订阅服务
-        List<Transaction> potentialRecurring = filteredTransactions.stream()
+        List<Transaction> potentialRecurring = expenses.stream()
                 .filter(t -> {
                     String description = t.getDescription().toLowerCase();
                     String merchant = t.getMerchant().toLowerCase();
@@ -882,63 +909,17 @@ public class SpendingAnalysisController implements Initializable {
             sb.append("\n定期审查您的订阅服务，取消不再使用的服务可以节省开支。");
         }
 
-        Label contentLabel = new Label(sb.toString());
-        contentLabel.setWrapText(true);
-
-        insightBox.getChildren().add(contentLabel);
-        patternInsightsContainer.getChildren().add(insightBox);
+        return sb.toString();
     }
 
     /**
-     * 添加异常支出洞察
+     * 生成异常支出洞察
      */
-    private void addAnomalyInsight() {
-        VBox insightBox = createInsightBox("异常支出检测");
-
-        // 计算每个类别的均值和标准差
-        Map<Category, List<BigDecimal>> amountsByCategory = new HashMap<>();
-
-        for (Transaction t : filteredTransactions) {
-            Category category = t.getCategory();
-            if (category != null) {
-                amountsByCategory.computeIfAbsent(category, k -> new ArrayList<>())
-                        .add(t.getAmount());
-            }
-        }
-
-        List<Transaction> anomalies = new ArrayList<>();
-
-        for (Map.Entry<Category, List<BigDecimal>> entry : amountsByCategory.entrySet()) {
-            Category category = entry.getKey();
-            List<BigDecimal> amounts = entry.getValue();
-
-            // 只分析有足够样本的类别
-            if (amounts.size() < 3) continue;
-
-            // 计算均值
-            BigDecimal sum = amounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
-            BigDecimal mean = sum.divide(BigDecimal.valueOf(amounts.size()), 2, RoundingMode.HALF_UP);
-
-            // 计算标准差
-            double variance = amounts.stream()
-                    .mapToDouble(a -> Math.pow(a.subtract(mean).doubleValue(), 2))
-                    .average()
-                    .orElse(0);
-            double stdDev = Math.sqrt(variance);
-
-            // 查找超过均值+2倍标准差的交易
-            BigDecimal threshold = mean.add(BigDecimal.valueOf(2 * stdDev));
-
-            for (Transaction t : filteredTransactions) {
-                if (category.equals(t.getCategory()) && t.getAmount().compareTo(threshold) > 0) {
-                    anomalies.add(t);
-                }
-            }
-        }
-
-        // 只保留前5个异常
-        anomalies = anomalies.stream()
-                .sorted(Comparator.comparing(Transaction::getAmount).reversed())
+    private static String buildAnomalyInsight(List<Transaction> expenses) {
+        // 按时间顺序与同类别此前的金额基线比较，只保留前5个异常
+        List<AmountBaselines.AmountScore> anomalies = AmountBaselines.detect(expenses).stream()
+                .sorted(Comparator.comparing((AmountBaselines.AmountScore score) ->
+                        score.getTransaction().getAmount()).reversed())
                 .limit(5)
                 .collect(Collectors.toList());
 
@@ -951,19 +932,18 @@ public class SpendingAnalysisController implements Initializable {
 
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-            for (Transaction t : anomalies) {
-                sb.append(String.format("• %s - %s: ¥%.2f（超出该类别平均水平）\n",
+            for (AmountBaselines.AmountScore score : anomalies) {
+                Transaction t = score.getTransaction();
+                sb.append(String.format("• %s - %s: ¥%.2f（%s中位数¥%.2f）\n",
                         t.getTransactionDate().format(formatter),
                         t.getMerchant(),
-                        t.getAmount()));
+                        t.getAmount(),
+                        score.isCategoryBaseline() ? "该类别" : "日常支出",
+                        score.getMedian()));
             }
         }
 
-        Label contentLabel = new Label(sb.toString());
-        contentLabel.setWrapText(true);
-
-        insightBox.getChildren().add(contentLabel);
-        patternInsightsContainer.getChildren().add(insightBox);
+        return sb.toString();
     }
 
     /**
@@ -1088,4 +1068,45 @@ public class SpendingAnalysisController implements Initializable {
         alert.setContentText(message);
         alert.showAndWait();
     }
-}
\ No newline at end of file
+
+    /**
+     * 后台加载的分析数据
+     */
+    private static class SpendingData {
+        private List<Transaction> expenses;
+
+        // 统计信息
+        private BigDecimal totalSpending;
+        private BigDecimal avgMonthlySpending;
+        private BigDecimal maxSpending;
+        private double frequency;
+
+        // 粒度 -> 趋势时间序列
+        private final Map<String, Map<String, BigDecimal>> timeSeries = new HashMap<>();
+
+        private Map<Category, BigDecimal> categoryDistribution;
+
+        // 粒度 -> 热图数据
+        private final Map<String, HeatmapData> heatmaps = new HashMap<>();
+
+        // 洞察标题 -> 内容
+        private final Map<String, String> insights = new LinkedHashMap<>();
+    }
+
+    /**
+     * 一个粒度的热图数据
+     */
+    private static class HeatmapData {
+        private final String[] rowLabels;
+        private final String[] columnLabels;
+        private final double[] values;
+        private final IntFunction<String> cellDescriber;
+
+        HeatmapData(String[] rowLabels, String[] columnLabels, double[] values, IntFunction<String> cellDescriber) {
+            this.rowLabels = rowLabels;
+            this.columnLabels = columnLabels;
+            this.values = values;
+            this.cellDescriber = cellDescriber;
+        }
+    }
+}
@@ -1,18 +1,21 @@
 package com.example.software.financeapp.controller;
 
 import com.example.software.financeapp.application.AppContext;
+import com.example.software.financeapp.application.BackgroundLoader;
 import com.example.software.financeapp.model.entity.Category;
 import com.example.software.financeapp.model.entity.Transaction;
 import com.example.software.financeapp.model.entity.User;
 import com.example.software.financeapp.model.enums.TransactionType;
 import com.example.software.financeapp.service.ApiService;
 import com.example.software.financeapp.service.MockDataService;
+import com.example.software.financeapp.service.TransactionFilter;
+import com.example.software.financeapp.service.TransactionSummary;
 import com.example.software.financeapp.service.ai.ClassificationService;
+import com.example.software.financeapp.service.store.Page;
 
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -29,7 +32,6 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
-import java.util.function.Predicate;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -47,7 +49,7 @@ import java.io.IOException;
  * 交易管理控制器
  * 负责管理交易列表、添加、编辑和导入交易
  */
-public class TransactionController implements Initializable {
+public class TransactionController implements Initializable, ViewLifecycle {
 
     @FXML
     private TableView<Transaction> transactionTable;
@@ -124,15 +126,34 @@ public class TransactionController implements Initializable {
     @FXML
     private VBox filterPanel;
 
-    // 数据相关属性
-    private ObservableList<Transaction> allTransactions = FXCollections.observableArrayList();
-    private FilteredList<Transaction> filteredTransactions;
+    // 数据相关属性：只保存表格中显示的当前页，过滤和统计在存储中进行
+    private final ObservableList<Transaction> pageTransactions = FXCollections.observableArrayList();
     private List<Category> categories;
 
+    // 当前的过滤条件和满足条件的全部交易的统计
+    private TransactionFilter currentFilter;
+    private TransactionSummary currentSummary;
+
+    // 后台加载类别和交易分页，切换视图时取消
+    private final BackgroundLoader<List<Category>> categoryLoader = new BackgroundLoader<>("交易类别");
+    private final BackgroundLoader<PageResult> pageLoader = new BackgroundLoader<>("交易分页");
+
     // 分页相关属性
     private static final int PAGE_SIZE = 25;
     private int totalPages = 1;
 
+    // 批量分类时每次读取的交易数
+    private static final int CLASSIFY_BATCH_SIZE = 500;
+
+    // 各页的游标，第i项为第i页最后一条交易的位置，用于读取第i+1页
+    private List<PageCursor> pageCursors = new ArrayList<>();
+
+    // 过滤条件或数据变化后，统计结果和游标需要重新计算
+    private boolean summaryStale = true;
+
+    // 程序调整分页控件时不触发翻页加载
+    private boolean updatingPagination;
+
     // 应用程序上下文
     private final AppContext appContext = AppContext.getInstance();
 
@@ -182,10 +203,30 @@ public class TransactionController implements Initializable {
         // 初始化家庭成员列表（如果是父亲账户）
         initializeFamilyMembers();
 
+        // 表格只显示当前页，翻页时按游标只读取对应的一页
+        transactionTable.setItems(pageTransactions);
+        pagination.currentPageIndexProperty().addListener((observable, oldValue, newValue) -> {
+            if (!updatingPagination) {
+                loadPage(newValue.intValue());
+            }
+        });
+
+        // 离开交易视图时取消未完成的加载
+        categoryLoader.cancelWhenRemoved(transactionTable);
+        pageLoader.cancelWhenRemoved(transactionTable);
+
         // 加载数据
         loadData();
     }
 
+    /**
+     * 视图重新显示时重新统计并加载当前页，保留过滤条件和页码
+     */
+    @Override
+    public void onActivated() {
+        refresh();
+    }
+
     /**
      * 初始化家庭成员列表
      */
@@ -444,143 +485,202 @@ public class TransactionController implements Initializable {
 
     /**
      * 加载数据
+     * 类别和交易在后台线程上查询，查询完成后回到JavaFX应用线程更新界面
      */
     private void loadData() {
-        try {
-            // 获取当前用户
-            User currentUser = appContext.getCurrentUser();
-            if (currentUser == null) return;
-
-            // 确定要显示哪个用户的交易数据
-            Long userId = selectedUser.getId();
-
-            // 权限检查：确保当前用户有权限查看所选用户的数据
-            if (!MockDataService.hasPermissionToView(currentUser.getId(), userId)) {
-                showErrorAlert("权限错误", "您没有权限查看该用户的交易数据");
-                // 重置为当前用户
-                selectedUser = currentUser;
-                if (userFilterComboBox != null) {
-                    userFilterComboBox.setValue(currentUser);
-                }
-                userId = currentUser.getId();
+        // 获取当前用户
+        User currentUser = appContext.getCurrentUser();
+        if (currentUser == null) return;
+
+        // 确定要显示哪个用户的交易数据
+        Long userId = selectedUser.getId();
+
+        // 权限检查：确保当前用户有权限查看所选用户的数据
+        if (!MockDataService.hasPermissionToView(currentUser.getId(), userId)) {
+            showErrorAlert("权限错误", "您没有权限查看该用户的交易数据");
+            // 重置为当前用户
+            selectedUser = currentUser;
+            if (userFilterComboBox != null) {
+                userFilterComboBox.setValue(currentUser);
             }
+        }
 
-            // 加载交易数据 - 只加载特定用户的交易
-            List<Transaction> transactions = apiService.getTransactions(userId, 0, 100);
-
-            // 加载类别数据
-            categories = apiService.getCategories(currentUser.getId());
-
-            // 设置类别过滤下拉框
-            categoryFilterComboBox.getItems().clear();
-            categoryFilterComboBox.getItems().add(null); // 添加"全部"选项
-            categoryFilterComboBox.getItems().addAll(categories);
-            categoryFilterComboBox.setValue(null);
-            categoryFilterComboBox.setCellFactory(param -> new ListCell<Category>() {
-                @Override
-                protected void updateItem(Category item, boolean empty) {
-                    super.updateItem(item, empty);
-                    if (empty || item == null) {
-                        setText("全部");
-                    } else {
-                        setText(item.getName());
-                    }
+        // 加载类别数据
+        Long ownerId = currentUser.getId();
+        categoryLoader.load(() -> apiService.getCategories(ownerId), this::showCategories,
+                e -> showErrorAlert("加载数据失败", e.getMessage()));
+
+        // 用户可能已切换，从第一页开始显示
+        applyFilters();
+    }
+
+    /**
+     * 设置类别过滤下拉框
+     * @param loadedCategories 加载的类别
+     */
+    private void showCategories(List<Category> loadedCategories) {
+        categories = loadedCategories;
+
+        categoryFilterComboBox.getItems().clear();
+        categoryFilterComboBox.getItems().add(null); // 添加"全部"选项
+        categoryFilterComboBox.getItems().addAll(categories);
+        categoryFilterComboBox.setValue(null);
+        categoryFilterComboBox.setCellFactory(param -> new ListCell<Category>() {
+            @Override
+            protected void updateItem(Category item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText("全部");
+                } else {
+                    setText(item.getName());
                 }
-            });
-            categoryFilterComboBox.setButtonCell(new ListCell<Category>() {
-                @Override
-                protected void updateItem(Category item, boolean empty) {
-                    super.updateItem(item, empty);
-                    if (empty || item == null) {
-                        setText("全部");
-                    } else {
-                        setText(item.getName());
-                    }
+            }
+        });
+        categoryFilterComboBox.setButtonCell(new ListCell<Category>() {
+            @Override
+            protected void updateItem(Category item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText("全部");
+                } else {
+                    setText(item.getName());
                 }
-            });
-            categoryFilterComboBox.valueProperty().addListener((observable, oldValue, newValue) -> applyFilters());
+            }
+        });
+        categoryFilterComboBox.valueProperty().addListener((observable, oldValue, newValue) -> applyFilters());
+    }
 
-            // 更新表格数据
-            allTransactions.clear();
-            allTransactions.addAll(transactions);
-            filteredTransactions = new FilteredList<>(allTransactions);
+    /**
+     * 应用过滤器
+     * 过滤条件变化后重新统计，从第一页开始显示
+     */
+    private void applyFilters() {
+        currentFilter = buildFilter();
+        setPageIndex(0);
+        refresh();
+    }
 
-            // 应用过滤器
-            applyFilters();
+    /**
+     * 根据过滤控件生成过滤条件
+     */
+    private TransactionFilter buildFilter() {
+        String selectedType = typeFilterComboBox.getValue();
+        TransactionType type = selectedType == null || "全部".equals(selectedType)
+                ? null : TransactionType.fromDisplayName(selectedType);
+        Category selectedCategory = categoryFilterComboBox.getValue();
+        return new TransactionFilter(
+                startDatePicker.getValue(),
+                endDatePicker.getValue(),
+                type,
+                selectedCategory != null ? selectedCategory.getId() : null,
+                searchField.getText());
+    }
 
-            // 更新统计信息
-            updateStatistics();
+    /**
+     * 数据变化后重新统计并加载当前页
+     */
+    private void refresh() {
+        summaryStale = true;
+        loadPage(pagination.getCurrentPageIndex());
+    }
 
-        } catch (IOException e) {
-            showErrorAlert("加载数据失败", e.getMessage());
+    /**
+     * 加载指定页的交易数据 - 只加载特定用户的交易
+     * 只读取要显示的一页；统计结果过期时同时重新统计。快速翻页时前一次查询会被取消
+     * @param pageIndex 页码(从0开始)
+     */
+    private void loadPage(int pageIndex) {
+        if (selectedUser == null) return;
+        if (currentFilter == null) {
+            currentFilter = buildFilter();
         }
+
+        Long userId = selectedUser.getId();
+        TransactionFilter filter = currentFilter;
+        boolean summarize = summaryStale;
+        // 统计结果过期时已有的游标也不再可靠
+        List<PageCursor> cursors = summarize ? new ArrayList<>() : new ArrayList<>(pageCursors);
+
+        pageLoader.load(() -> {
+            TransactionSummary summary = summarize ? apiService.getTransactionSummary(userId, filter) : null;
+            return readPage(userId, filter, cursors, pageIndex, summary);
+        }, this::showPage, e -> showErrorAlert("加载数据失败", e.getMessage()));
     }
 
     /**
-     * 应用过滤器
+     * 按游标读取指定页(在后台线程上执行)
+     * 跳到还没有游标的页时，从已知的最后一个游标开始逐页向后读取，只记录每页的游标
+     * @param cursors 已知的游标，读取过程中追加
+     * @param summary 本次的统计结果，为null时沿用当前页数
      */
-    private void applyFilters() {
-        Predicate<Transaction> datePredicate = transaction -> {
-            LocalDate transactionDate = transaction.getTransactionDate().toLocalDate();
-            return (startDatePicker.getValue() == null || !transactionDate.isBefore(startDatePicker.getValue())) &&
-                    (endDatePicker.getValue() == null || !transactionDate.isAfter(endDatePicker.getValue()));
-        };
-
-        Predicate<Transaction> typePredicate = transaction -> {
-            String selectedType = typeFilterComboBox.getValue();
-            return "全部".equals(selectedType) ||
-                    (transaction.getType() != null &&
-                            transaction.getType().getDisplayName().equals(selectedType));
-        };
-
-        Predicate<Transaction> categoryPredicate = transaction -> {
-            Category selectedCategory = categoryFilterComboBox.getValue();
-            return selectedCategory == null ||
-                    (transaction.getCategory() != null &&
-                            transaction.getCategory().getId().equals(selectedCategory.getId()));
-        };
-
-        Predicate<Transaction> searchPredicate = transaction -> {
-            String searchText = searchField.getText().toLowerCase();
-            if (searchText == null || searchText.isEmpty()) {
-                return true;
+    private PageResult readPage(Long userId, TransactionFilter filter, List<PageCursor> cursors,
+                                int pageIndex, TransactionSummary summary) throws IOException {
+        int target = pageIndex;
+        if (summary != null) {
+            target = Math.min(target, pageCountOf(summary.getCount()) - 1);
+        }
+
+        int index = Math.min(target, cursors.size());
+        while (true) {
+            PageCursor after = index > 0 ? cursors.get(index - 1) : null;
+            Page<Transaction> page = apiService.getTransactionsAfter(userId, filter,
+                    after != null ? after.date : null, after != null ? after.id : null, PAGE_SIZE);
+            if (index == cursors.size() && page.getLast() != null) {
+                cursors.add(new PageCursor(page.getLast()));
             }
+            if (index >= target || !page.hasNext()) {
+                return new PageResult(summary, page.getItems(), index, cursors);
+            }
+            index++;
+            BackgroundLoader.checkCancelled();
+        }
+    }
 
-            // 搜索商家、描述、金额等字段
-            return (transaction.getMerchant() != null &&
-                    transaction.getMerchant().toLowerCase().contains(searchText)) ||
-                    (transaction.getDescription() != null &&
-                            transaction.getDescription().toLowerCase().contains(searchText)) ||
-                    transaction.getAmount().toString().contains(searchText);
-        };
+    /**
+     * 显示读取的一页交易和统计信息
+     */
+    private void showPage(PageResult result) {
+        if (result.summary != null) {
+            currentSummary = result.summary;
+            summaryStale = false;
+            totalPages = pageCountOf(currentSummary.getCount());
+            updateStatistics();
+        }
+        pageCursors = result.cursors;
 
-        // 组合所有过滤条件
-        filteredTransactions.setPredicate(
-                datePredicate.and(typePredicate).and(categoryPredicate).and(searchPredicate));
+        // 更新页数和页码
+        updatingPagination = true;
+        try {
+            pagination.setPageCount(totalPages);
+            pagination.setCurrentPageIndex(result.pageIndex);
+        } finally {
+            updatingPagination = false;
+        }
 
         // 更新表格数据
-        transactionTable.setItems(filteredTransactions);
+        pageTransactions.setAll(result.items);
+    }
+
+    private void setPageIndex(int pageIndex) {
+        updatingPagination = true;
+        try {
+            pagination.setCurrentPageIndex(pageIndex);
+        } finally {
+            updatingPagination = false;
+        }
+    }
 
-        // 更新统计信息
-        updateStatistics();
+    private static int pageCountOf(long count) {
+        return (int) Math.max(1, (count + PAGE_SIZE - 1) / PAGE_SIZE);
     }
 
     /**
-     * 更新统计信息
+     * 更新统计信息(满足过滤条件的全部交易，不只是当前页)
      */
     private void updateStatistics() {
-        BigDecimal totalIncome = BigDecimal.ZERO;
-        BigDecimal totalExpense = BigDecimal.ZERO;
-
-        for (Transaction transaction : filteredTransactions) {
-            if (transaction.getType() == TransactionType.INCOME) {
-                totalIncome = totalIncome.add(transaction.getAmount());
-            } else if (transaction.getType() == TransactionType.EXPENSE) {
-                totalExpense = totalExpense.add(transaction.getAmount());
-            }
-        }
-
-        BigDecimal balance = totalIncome.subtract(totalExpense);
+        BigDecimal totalIncome = currentSummary.getTotalIncome();
+        BigDecimal totalExpense = currentSummary.getTotalExpense();
+        BigDecimal balance = currentSummary.getBalance();
 
         totalIncomeLabel.setText(String.format("¥%.2f", totalIncome));
         totalExpenseLabel.setText(String.format("¥%.2f", totalExpense));
@@ -715,8 +815,7 @@ public class TransactionController implements Initializable {
             showConfirmAlert("确认删除", "是否确定要删除所选交易记录？", () -> {
                 try {
                     apiService.deleteTransaction(selectedTransaction.getId());
-                    allTransactions.remove(selectedTransaction);
-                    applyFilters();
+                    refresh();
                     showInfoAlert("删除成功", "交易记录已成功删除");
                 } catch (IOException e) {
                     showErrorAlert("删除失败", e.getMessage());
@@ -727,33 +826,56 @@ public class TransactionController implements Initializable {
 
     /**
      * 批量自动分类
+     * 对满足当前过滤条件的全部未分类或未确认的交易分类，按游标分批读取，不一次载入全部交易
      */
     @FXML
     private void handleBatchClassify(ActionEvent event) {
-        // 获取未分类或未确认的交易
-        List<Transaction> unclassifiedTransactions = allTransactions.stream()
-                .filter(t -> t.getCategory() == null || !t.isCategoryConfirmed())
-                .collect(java.util.stream.Collectors.toList());
+        if (selectedUser == null || currentSummary == null || summaryStale) {
+            showInfoAlert("自动分类", "交易数据正在加载，请稍后再试");
+            return;
+        }
 
-        if (unclassifiedTransactions.isEmpty()) {
+        long unclassifiedCount = currentSummary.getUnconfirmedCount();
+        if (unclassifiedCount == 0) {
             showInfoAlert("自动分类", "没有需要分类的交易记录");
             return;
         }
 
-        showConfirmAlert("自动分类", "系统将对" + unclassifiedTransactions.size() + "条未分类或未确认的交易记录进行AI分类，是否继续？", () -> {
+        Long userId = selectedUser.getId();
+        TransactionFilter filter = currentFilter;
+        showConfirmAlert("自动分类", "系统将对" + unclassifiedCount + "条未分类或未确认的交易记录进行AI分类，是否继续？", () -> {
             try {
-                // 批量分类
-                classificationService.classifyTransactions(unclassifiedTransactions);
+                ClassificationService.BatchSummary summary = new ClassificationService.BatchSummary();
+                PageCursor after = null;
+                Page<Transaction> page;
+                do {
+                    page = apiService.getTransactionsAfter(userId, filter,
+                            after != null ? after.date : null, after != null ? after.id : null, CLASSIFY_BATCH_SIZE);
+
+                    // 获取本批中未分类或未确认的交易
+                    List<Transaction> unclassifiedTransactions = page.getItems().stream()
+                            .filter(t -> t.getCategory() == null || !t.isCategoryConfirmed())
+                            .collect(java.util.stream.Collectors.toList());
+                    if (!unclassifiedTransactions.isEmpty()) {
+                        summary.merge(classificationService.classifyBatch(unclassifiedTransactions));
 
-                // 更新交易记录
-                for (Transaction transaction : unclassifiedTransactions) {
-                    apiService.updateTransaction(transaction);
-                }
+                        // 更新交易记录
+                        for (Transaction transaction : unclassifiedTransactions) {
+                            apiService.updateTransaction(transaction);
+                        }
+                    }
+                    if (page.getLast() != null) {
+                        after = new PageCursor(page.getLast());
+                    }
+                } while (page.hasNext());
 
                 // 刷新数据
-                loadData();
+                refresh();
 
-                showInfoAlert("自动分类完成", "成功分类" + unclassifiedTransactions.size() + "条交易记录");
+                showInfoAlert("自动分类完成", "成功分类" + summary.getClassifiedCount() + "条交易记录\n" +
+                        "高置信度: " + summary.getBandCount(ClassificationService.ConfidenceBand.HIGH) + "条, " +
+                        "中置信度: " + summary.getBandCount(ClassificationService.ConfidenceBand.MEDIUM) + "条, " +
+                        "低置信度: " + summary.getBandCount(ClassificationService.ConfidenceBand.LOW) + "条");
             } catch (Exception e) {
                 showErrorAlert("自动分类失败", e.getMessage());
             }
@@ -926,4 +1048,35 @@ public class TransactionController implements Initializable {
             showErrorAlert("加载类别反馈对话框失败", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 分页游标 - 一页最后一条交易的时间和ID
+     */
+    private static class PageCursor {
+        private final LocalDateTime date;
+        private final Long id;
+
+        PageCursor(Transaction transaction) {
+            this.date = transaction.getTransactionDate();
+            this.id = transaction.getId();
+        }
+    }
+
+    /**
+     * 后台读取的一页交易
+     */
+    private static class PageResult {
+        // 重新统计的结果，只翻页时为null
+        private final TransactionSummary summary;
+        private final List<Transaction> items;
+        private final int pageIndex;
+        private final List<PageCursor> cursors;
+
+        PageResult(TransactionSummary summary, List<Transaction> items, int pageIndex, List<PageCursor> cursors) {
+            this.summary = summary;
+            this.items = items;
+            this.pageIndex = pageIndex;
+            this.cursors = cursors;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.software.financeapp.controller;
+
+import com.example.software.financeapp.application.ViewPreloader;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 视图缓存 - 按FXML路径缓存加载好的视图和控制器，超过容量时淘汰最久未使用的视图
+ * 被淘汰的视图已经不在场景中，其控制器的后台加载在离开场景时已经取消。
+ * 预加载器已经读取的FXML文档直接从内存解析。
+ * 只在JavaFX应用线程上使用
+ */
+class ViewCache {
+
+    private final Map<String, CachedView> views;
+    private final ViewPreloader preloader;
+
+    /**
+     * @param maxSize 最多缓存的视图数
+     * @param preloader 视图预加载器
+     */
+    ViewCache(int maxSize, ViewPreloader preloader) {
+        this.preloader = preloader;
+        this.views = new LinkedHashMap<String, CachedView>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedView> eldest) {
+                if (size() > maxSize) {
+                    System.out.println("视图缓存已满，移除: " + eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 获取已缓存的视图
+     * @param fxmlPath FXML资源路径
+     * @return 缓存的视图，未缓存时返回null
+     */
+    CachedView getIfPresent(String fxmlPath) {
+        return views.get(fxmlPath);
+    }
+
+    /**
+     * 加载FXML并放入缓存
+     * @param fxmlPath FXML资源路径
+     * @return 加载的视图
+     * @throws IOException FXML加载失败
+     */
+    CachedView load(String fxmlPath) throws IOException {
+        URL resource = ViewCache.class.getResource(fxmlPath);
+        if (resource == null) {
+            throw new IOException("找不到视图文件: " + fxmlPath);
+        }
+        FXMLLoader loader = new FXMLLoader(resource);
+        byte[] document = preloader.getDocument(fxmlPath);
+        Parent view = document != null ? loader.load(new ByteArrayInputStream(document)) : loader.load();
+        CachedView cached = new CachedView(view, loader.getController());
+        views.put(fxmlPath, cached);
+        return cached;
+    }
+
+    /**
+     * 视图是否已缓存(不影响淘汰顺序)
+     */
+    boolean contains(String fxmlPath) {
+        return views.containsKey(fxmlPath);
+    }
+
+    /**
+     * 清空缓存
+     */
+    void clear() {
+        views.clear();
+    }
+
+    /**
+     * 缓存的视图和控制器
+     */
+    static class CachedView {
+        private final Parent view;
+        private final Object controller;
+
+        // 是否已经显示过
+        private boolean shown;
+
+        CachedView(Parent view, Object controller) {
+            this.view = view;
+            this.controller = controller;
+        }
+
+        Parent getView() {
+            return view;
+        }
+
+        Object getController() {
+            return controller;
+        }
+
+        /**
+         * 标记为已显示
+         * @return 之前是否已经显示过；预加载的视图第一次显示时返回false
+         */
+        boolean markShown() {
+            boolean wasShown = shown;
+            shown = true;
+            return wasShown;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.software.financeapp.controller;
+
+/**
+ * 视图生命周期 - 缓存的视图重新显示和被切走时由主控制器通知其控制器
+ * 视图第一次显示时(包括预加载后第一次显示)只调用过initialize，不调用onActivated
+ */
+public interface ViewLifecycle {
+
+    /**
+     * 视图从缓存中重新显示，控制器在这里刷新数据
+     */
+    void onActivated();
+
+    /**
+     * 视图被切换到其他视图
+     */
+    default void onDeactivated() {
+    }
+}
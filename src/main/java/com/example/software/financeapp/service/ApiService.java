@@ -1,8 +1,15 @@
 package com.example.software.financeapp.service;
 
 import com.example.software.financeapp.model.entity.*;
+import com.example.software.financeapp.service.analysis.BudgetRecommendationEngine;
+import com.example.software.financeapp.service.analysis.TransactionRollup;
+import com.example.software.financeapp.service.fraud.OnlineFraudEngine;
+import com.example.software.financeapp.service.store.Page;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,15 +40,90 @@ public class ApiService {
         return MockDataService.authenticateUser(username, password);
     }
 
-    // 获取交易列表
+    // 获取交易列表(按日期降序的第page页，页码从0开始)
     public List<Transaction> getTransactions(Long userId, int page, int size) throws IOException {
         // 模拟API调用
         System.out.println("模拟获取交易列表: 用户ID=" + userId + ", 页码=" + page + ", 每页大小=" + size);
 
-        // 返回模拟数据
+        return MockDataService.getMockTransactionPage(userId, page, size).getItems();
+    }
+
+    /**
+     * 按游标获取满足过滤条件的下一页交易(按日期降序)，只读取一页，耗时与翻页深度无关
+     * @param userId 用户ID
+     * @param filter 过滤条件
+     * @param afterDate 上一页最后一条交易的时间，为null时从最新一条开始
+     * @param afterId 上一页最后一条交易的ID
+     * @param size 每页大小
+     * @return 分页结果(不含总数，总数见 {@link #getTransactionSummary})
+     * @throws IOException IO异常
+     */
+    public Page<Transaction> getTransactionsAfter(Long userId, TransactionFilter filter,
+                                                  LocalDateTime afterDate, Long afterId, int size) throws IOException {
+        // 模拟API调用
+        System.out.println("模拟按游标获取交易列表: 用户ID=" + userId + ", 游标=" + afterDate + "/" + afterId + ", 每页大小=" + size);
+
+        return MockDataService.getMockTransactionsAfter(userId, filter, afterDate, afterId, size);
+    }
+
+    /**
+     * 统计满足过滤条件的全部交易(笔数、收入和支出合计)
+     * @param userId 用户ID
+     * @param filter 过滤条件
+     * @return 统计结果
+     * @throws IOException IO异常
+     */
+    public TransactionSummary getTransactionSummary(Long userId, TransactionFilter filter) throws IOException {
+        // 模拟API调用
+        System.out.println("模拟统计交易: 用户ID=" + userId);
+
+        return MockDataService.summarizeMockTransactions(userId, filter);
+    }
+
+    /**
+     * 获取用户的全部交易(按日期降序)，用于需要完整历史的检测和统计
+     * @param userId 用户ID
+     * @return 交易列表
+     * @throws IOException IO异常
+     */
+    public List<Transaction> getAllTransactions(Long userId) throws IOException {
+        // 模拟API调用
+        System.out.println("模拟获取全部交易: 用户ID=" + userId);
+
         return MockDataService.getMockTransactionsForUser(userId);
     }
 
+    /**
+     * 获取日期范围内的全部交易(按日期降序)
+     * @param userId 用户ID
+     * @param startDate 开始日期(含)
+     * @param endDate 结束日期(含)
+     * @return 交易列表
+     * @throws IOException IO异常
+     */
+    public List<Transaction> getTransactionsBetween(Long userId, LocalDate startDate, LocalDate endDate)
+            throws IOException {
+        // 模拟API调用
+        System.out.println("模拟获取交易列表: 用户ID=" + userId + ", 日期范围=" + startDate + "~" + endDate);
+
+        return MockDataService.getMockTransactionsBetween(userId,
+                startDate.atStartOfDay(), endDate.atTime(LocalTime.MAX));
+    }
+
+    /**
+     * 获取交易汇总立方体，用于按月、按类别的支出分析
+     */
+    public TransactionRollup getTransactionRollup() {
+        return MockDataService.getTransactionRollup();
+    }
+
+    /**
+     * 获取预算建议引擎
+     */
+    public BudgetRecommendationEngine getBudgetRecommendationEngine() {
+        return MockDataService.getBudgetRecommendationEngine();
+    }
+
     // 获取类别列表
     public List<Category> getCategories(Long userId) throws IOException {
         // 模拟API调用
@@ -61,30 +143,24 @@ public class ApiService {
         // 模拟批量API调用
         System.out.println("模拟批量创建 " + transactions.size() + " 条交易记录");
 
-        List<Transaction> createdTransactions = new ArrayList<>();
-
-        for (Transaction transaction : transactions) {
-            // 设置模拟ID
-            transaction.setId(System.currentTimeMillis() + createdTransactions.size());
+        // 由本地存储分配ID，整批写入
+        List<Transaction> created = MockDataService.addTransactions(new ArrayList<>(transactions));
 
-            // 添加到模拟数据
-            MockDataService.addTransaction(transaction);
-
-            createdTransactions.add(transaction);
-        }
-
-        return createdTransactions;
+        // 入库后立即进行实时风控检测
+        OnlineFraudEngine.getInstance().process(created);
+        return created;
     }
     // 创建交易
     public Transaction createTransaction(Transaction transaction) throws IOException {
         // 模拟API调用
         System.out.println("模拟创建交易: " + transaction.getDescription());
 
-        // 设置模拟ID和时间戳
-        transaction.setId(System.currentTimeMillis());
-        // 重要：将新交易添加到模拟数据列表中
-        MockDataService.addTransaction(transaction);
-        return transaction;
+        // 添加到本地存储，由存储分配ID
+        Transaction created = MockDataService.addTransaction(transaction);
+
+        // 入库后立即进行实时风控检测
+        OnlineFraudEngine.getInstance().process(List.of(created));
+        return created;
     }
 
     // 更新交易
@@ -92,7 +168,8 @@ public class ApiService {
         // 模拟API调用
         System.out.println("模拟更新交易: ID=" + transaction.getId());
 
-        return transaction;
+        // 写回本地存储
+        return MockDataService.updateTransaction(transaction);
     }
 
     // 删除交易
@@ -127,10 +204,7 @@ public class ApiService {
         // 模拟API调用
         System.out.println("模拟创建储蓄层级: " + tier.getName());
 
-        // 设置模拟ID
-        tier.setId(System.currentTimeMillis());
-
-        // 添加到模拟数据
+        // 添加到模拟数据，由存储分配ID
         MockDataService.addSavingsTier(tier);
 
         return tier;
@@ -190,10 +264,7 @@ public class ApiService {
         // 模拟API调用
         System.out.println("模拟创建储蓄目标: " + goal.getName());
 
-        // 设置模拟ID
-        goal.setId(System.currentTimeMillis());
-
-        // 添加到模拟数据
+        // 添加到模拟数据，由存储分配ID
         MockDataService.addSavingsGoal(goal);
 
         return goal;
@@ -3,56 +3,106 @@ package com.example.software.financeapp.service;
 import com.example.software.financeapp.model.entity.*;
 import com.example.software.financeapp.model.enums.CategoryType;
 import com.example.software.financeapp.model.enums.TransactionType;
+import com.example.software.financeapp.service.analysis.BudgetRecommendationEngine;
+import com.example.software.financeapp.service.analysis.TransactionRollup;
+import com.example.software.financeapp.service.fraud.OnlineFraudEngine;
+import com.example.software.financeapp.service.store.EntityCodecs;
+import com.example.software.financeapp.service.store.EntityTable;
+import com.example.software.financeapp.service.store.LocalDataStore;
+import com.example.software.financeapp.service.store.Page;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * 模拟数据服务类 - 提供模拟数据用于开发和测试
+ * 交易、储蓄层级和储蓄目标保存在带索引的本地存储中(见 {@link EntityTable})，
+ * 首次运行时写入示例数据，之后从本地磁盘恢复
  */
 public class MockDataService {
-    // 存储模拟交易数据的静态集合
-    private static final List<Transaction> mockTransactions = new ArrayList<>();
-    private static final List<Category> mockCategories = new ArrayList<>();
-    private static boolean isInitialized = false;
-    // 添加到现有的MockDataService类中的静态数据区域
-    private static List<SavingsTier> mockSavingsTiers = new ArrayList<>();
-    private static List<SavingsGoal> mockSavingsGoals = new ArrayList<>();
-    // 家庭关系集合
+    // 类别(按ID索引，保持创建顺序)
+    private static final Map<Long, Category> mockCategories = new LinkedHashMap<>();
+    // 控制器在后台线程上加载数据，初始化标志需要对所有线程可见
+    private static volatile boolean isInitialized = false;
+
+    // 交易表：主键索引 + 按用户、按交易时间倒序的索引
+    private static final EntityTable<Transaction> transactionTable = new EntityTable<>(
+            "交易",
+            Transaction::getId,
+            t -> t.getUser() != null ? t.getUser().getId() : null,
+            t -> toSortValue(t.getTransactionDate()),
+            true,
+            EntityCodecs.transactions(mockCategories::get, MockDataService::findUserById),
+            LocalDataStore.journal("transactions.log"));
+
+    // 交易汇总立方体，随交易表增量维护
+    private static final TransactionRollup transactionRollup = new TransactionRollup();
+
+    // 预算建议引擎，随汇总立方体的变化增量更新
+    private static final BudgetRecommendationEngine budgetRecommendationEngine =
+            new BudgetRecommendationEngine(transactionRollup);
+
+    // 储蓄层级表：按用户、按创建顺序索引
+    private static final EntityTable<SavingsTier> savingsTierTable = new EntityTable<>(
+            "储蓄层级",
+            SavingsTier::getId,
+            SavingsTier::getUserId,
+            tier -> 0L,
+            false,
+            EntityCodecs.savingsTiers(),
+            LocalDataStore.journal("savings_tiers.log"));
+
+    // 储蓄目标表：按用户、按创建顺序索引
+    private static final EntityTable<SavingsGoal> savingsGoalTable = new EntityTable<>(
+            "储蓄目标",
+            SavingsGoal::getId,
+            SavingsGoal::getUserId,
+            goal -> 0L,
+            false,
+            EntityCodecs.savingsGoals(savingsTierTable::get),
+            LocalDataStore.journal("savings_goals.log"));
+
+    // 家庭关系集合，按监护人和被监护人分别索引
     private static final List<FamilyRelationship> mockFamilyRelationships = new ArrayList<>();
+    private static final Map<Long, List<FamilyRelationship>> relationshipsByParent = new HashMap<>();
+    private static final Map<Long, List<FamilyRelationship>> relationshipsByChild = new HashMap<>();
 
-// 添加到MockDataService类中
     /**
      * 获取模拟储蓄层级数据
      */
     public static List<SavingsTier> getMockSavingsTiers(Long userId) {
-        // 过滤出指定用户的层级
-        return mockSavingsTiers.stream()
-                .filter(tier -> tier.getUserId().equals(userId))
-                .collect(Collectors.toList());
+        ensureInitialized();
+        return savingsTierTable.findByOwner(userId);
     }
 
     /**
      * 添加模拟储蓄层级
      */
     public static void addSavingsTier(SavingsTier tier) {
-        mockSavingsTiers.add(tier);
+        ensureInitialized();
+        if (tier.getId() == null) {
+            tier.setId(savingsTierTable.nextId());
+        }
+        savingsTierTable.put(tier);
     }
 
     /**
      * 更新模拟储蓄层级
      */
     public static void updateSavingsTier(SavingsTier tier) {
-        for (int i = 0; i < mockSavingsTiers.size(); i++) {
-            if (mockSavingsTiers.get(i).getId().equals(tier.getId())) {
-                mockSavingsTiers.set(i, tier);
-                break;
-            }
+        ensureInitialized();
+        if (savingsTierTable.get(tier.getId()) != null) {
+            savingsTierTable.put(tier);
         }
     }
 
@@ -60,43 +110,42 @@ public class MockDataService {
      * 获取模拟储蓄目标数据
      */
     public static List<SavingsGoal> getMockSavingsGoals(Long userId) {
-        // 过滤出指定用户的目标
-        return mockSavingsGoals.stream()
-                .filter(goal -> goal.getUserId().equals(userId))
-                .collect(Collectors.toList());
+        ensureInitialized();
+        return savingsGoalTable.findByOwner(userId);
     }
 
     /**
      * 获取特定储蓄目标
      */
     public static SavingsGoal getMockSavingsGoal(Long goalId) {
-        return mockSavingsGoals.stream()
-                .filter(goal -> goal.getId().equals(goalId))
-                .findFirst()
-                .orElse(null);
+        ensureInitialized();
+        return savingsGoalTable.get(goalId);
     }
 
     /**
      * 添加模拟储蓄目标
      */
     public static void addSavingsGoal(SavingsGoal goal) {
-        mockSavingsGoals.add(goal);
+        ensureInitialized();
+        if (goal.getId() == null) {
+            goal.setId(savingsGoalTable.nextId());
+        }
+        savingsGoalTable.put(goal);
     }
 
     /**
      * 更新模拟储蓄目标
      */
     public static void updateSavingsGoal(SavingsGoal goal) {
-        for (int i = 0; i < mockSavingsGoals.size(); i++) {
-            if (mockSavingsGoals.get(i).getId().equals(goal.getId())) {
-                mockSavingsGoals.set(i, goal);
-                break;
-            }
+        ensureInitialized();
+        if (savingsGoalTable.get(goal.getId()) != null) {
+            savingsGoalTable.put(goal);
         }
     }
     // 模拟用户
     // 模拟用户列表
     private static final List<User> mockUsers = new ArrayList<>();
+    private static final Map<Long, User> mockUsersById = new HashMap<>();
 
     // 修改为变量而非常量
     private static User mockUser;
@@ -128,6 +177,9 @@ public class MockDataService {
         // 添加到用户列表
         mockUsers.add(fatherUser);
         mockUsers.add(sonUser);
+        for (User user : mockUsers) {
+            mockUsersById.put(user.getId(), user);
+        }
 
         // 设置当前模拟用户为爸爸
         mockUser = fatherUser;
@@ -144,10 +196,28 @@ public class MockDataService {
                 .status("活跃")
                 .build();
 
-        mockFamilyRelationships.add(fatherSonRelationship);
+        addFamilyRelationship(fatherSonRelationship);
 
     }
 
+    /**
+     * 添加家庭关系并更新索引
+     */
+    private static void addFamilyRelationship(FamilyRelationship relationship) {
+        mockFamilyRelationships.add(relationship);
+        relationshipsByParent.computeIfAbsent(relationship.getParentId(), k -> new ArrayList<>()).add(relationship);
+        relationshipsByChild.computeIfAbsent(relationship.getChildId(), k -> new ArrayList<>()).add(relationship);
+    }
+
+    /**
+     * 确保模拟数据已初始化
+     */
+    private static void ensureInitialized() {
+        if (!isInitialized) {
+            initializeMockData();
+        }
+    }
+
     /**
      * 初始化模拟数据 - 只在第一次调用时执行
      */
@@ -159,8 +229,21 @@ public class MockDataService {
         // 先创建所有类别
         createMockCategories();
 
-        // 再创建交易记录，此时类别已经存在
-        createMockTransactions();
+        // 从本地存储恢复数据，储蓄目标依赖储蓄层级，需在其后加载
+        // 汇总立方体和实时风控引擎需在恢复前注册，回放日志时一并建立
+        transactionTable.addListener(transactionRollup);
+        transactionTable.addListener(OnlineFraudEngine.getInstance());
+        transactionTable.open();
+        savingsTierTable.open();
+        savingsGoalTable.open();
+
+        // 首次运行时再创建示例交易记录，此时类别已经存在
+        if (transactionTable.size() == 0) {
+            createMockTransactions();
+        }
+
+        // 恢复和示例的交易不需要实时检测
+        OnlineFraudEngine.getInstance().markAllProcessed();
 
         isInitialized = true;
     }
@@ -170,7 +253,7 @@ public class MockDataService {
      */
     private static void createMockCategories() {
         // 支出类别
-        mockCategories.add(Category.builder()
+        addCategory(Category.builder()
                 .id(1L)
                 .name("餐饮")
                 .description("吃饭、外卖等")
@@ -181,7 +264,7 @@ public class MockDataService {
                 .keywords("餐厅,饭店,食堂,外卖,美食,餐饮,吃饭")
                 .build());
 
-        mockCategories.add(Category.builder()
+        addCategory(Category.builder()
                 .id(2L)
                 .name("交通")
                 .description("公共交通、打车等")
@@ -192,7 +275,7 @@ public class MockDataService {
                 .keywords("地铁,公交,出租车,打车,高铁,火车,机票")
                 .build());
 
-        mockCategories.add(Category.builder()
+        addCategory(Category.builder()
                 .id(3L)
                 .name("购物")
                 .description("日用品、服装等")
@@ -203,7 +286,7 @@ public class MockDataService {
                 .keywords("超市,商场,淘宝,京东,购物,服装,日用品")
                 .build());
 
-        mockCategories.add(Category.builder()
+        addCategory(Category.builder()
                 .id(4L)
                 .name("娱乐")
                 .description("电影、游戏等")
@@ -215,7 +298,7 @@ public class MockDataService {
                 .build());
 
         // 收入类别
-        mockCategories.add(Category.builder()
+        addCategory(Category.builder()
                 .id(5L)
                 .name("工资")
                 .description("固定工资收入")
@@ -226,7 +309,7 @@ public class MockDataService {
                 .keywords("工资,薪资,薪水,月薪,工资条")
                 .build());
 
-        mockCategories.add(Category.builder()
+        addCategory(Category.builder()
                 .id(6L)
                 .name("奖金")
                 .description("奖金、绩效等")
@@ -239,15 +322,17 @@ public class MockDataService {
     }
 
     /**
-     * 直接从列表中通过ID查找类别，不调用getMockCategories()
+     * 添加类别到索引
+     */
+    private static void addCategory(Category category) {
+        mockCategories.put(category.getId(), category);
+    }
+
+    /**
+     * 直接从索引中通过ID查找类别，不调用getMockCategories()
      */
     private static Category getCategory(Long id) {
-        for (Category category : mockCategories) {
-            if (category.getId().equals(id)) {
-                return category;
-            }
-        }
-        return null;
+        return mockCategories.get(id);
     }
 
     /**
@@ -257,9 +342,10 @@ public class MockDataService {
         // 获取父亲和儿子用户对象
         User fatherUser = mockUsers.get(0); // 父亲
         User sonUser = mockUsers.get(1);    // 儿子
+        List<Transaction> seedTransactions = new ArrayList<>();
 
         // 父亲的交易数据
-        mockTransactions.add(Transaction.builder()
+        seedTransactions.add(Transaction.builder()
                 .id(1L)
                 .type(TransactionType.EXPENSE)
                 .amount(new BigDecimal("35.50"))
@@ -272,7 +358,7 @@ public class MockDataService {
                 .categoryConfirmed(true)
                 .build());
 
-        mockTransactions.add(Transaction.builder()
+        seedTransactions.add(Transaction.builder()
                 .id(2L)
                 .type(TransactionType.EXPENSE)
                 .amount(new BigDecimal("15.00"))
@@ -285,7 +371,7 @@ public class MockDataService {
                 .categoryConfirmed(true)
                 .build());
 
-        mockTransactions.add(Transaction.builder()
+        seedTransactions.add(Transaction.builder()
                 .id(3L)
                 .type(TransactionType.EXPENSE)
                 .amount(new BigDecimal("199.99"))
@@ -298,7 +384,7 @@ public class MockDataService {
                 .categoryConfirmed(true)
                 .build());
 
-        mockTransactions.add(Transaction.builder()
+        seedTransactions.add(Transaction.builder()
                 .id(4L)
                 .type(TransactionType.EXPENSE)
                 .amount(new BigDecimal("70.00"))
@@ -312,7 +398,7 @@ public class MockDataService {
                 .build());
 
         // 收入交易
-        mockTransactions.add(Transaction.builder()
+        seedTransactions.add(Transaction.builder()
                 .id(5L)
                 .type(TransactionType.INCOME)
                 .amount(new BigDecimal("6000.00"))
@@ -325,7 +411,7 @@ public class MockDataService {
                 .categoryConfirmed(true)
                 .build());
 
-        mockTransactions.add(Transaction.builder()
+        seedTransactions.add(Transaction.builder()
                 .id(6L)
                 .type(TransactionType.INCOME)
                 .amount(new BigDecimal("1000.00"))
@@ -339,7 +425,7 @@ public class MockDataService {
                 .build());
 
         // 儿子的交易数据
-        mockTransactions.add(Transaction.builder()
+        seedTransactions.add(Transaction.builder()
                 .id(7L)
                 .type(TransactionType.EXPENSE)
                 .amount(new BigDecimal("25.50"))
@@ -352,7 +438,7 @@ public class MockDataService {
                 .categoryConfirmed(true)
                 .build());
 
-        mockTransactions.add(Transaction.builder()
+        seedTransactions.add(Transaction.builder()
                 .id(8L)
                 .type(TransactionType.EXPENSE)
                 .amount(new BigDecimal("12.00"))
@@ -365,7 +451,7 @@ public class MockDataService {
                 .categoryConfirmed(true)
                 .build());
 
-        mockTransactions.add(Transaction.builder()
+        seedTransactions.add(Transaction.builder()
                 .id(9L)
                 .type(TransactionType.EXPENSE)
                 .amount(new BigDecimal("89.99"))
@@ -378,7 +464,7 @@ public class MockDataService {
                 .categoryConfirmed(true)
                 .build());
 
-        mockTransactions.add(Transaction.builder()
+        seedTransactions.add(Transaction.builder()
                 .id(10L)
                 .type(TransactionType.EXPENSE)
                 .amount(new BigDecimal("45.50"))
@@ -391,7 +477,7 @@ public class MockDataService {
                 .categoryConfirmed(true)
                 .build());
 
-        mockTransactions.add(Transaction.builder()
+        seedTransactions.add(Transaction.builder()
                 .id(11L)
                 .type(TransactionType.INCOME)
                 .amount(new BigDecimal("500.00"))
@@ -404,7 +490,7 @@ public class MockDataService {
                 .categoryConfirmed(true)
                 .build());
 
-        mockTransactions.add(Transaction.builder()
+        seedTransactions.add(Transaction.builder()
                 .id(12L)
                 .type(TransactionType.EXPENSE)
                 .amount(new BigDecimal("20.00"))
@@ -417,7 +503,7 @@ public class MockDataService {
                 .categoryConfirmed(true)
                 .build());
 
-        mockTransactions.add(Transaction.builder()
+        seedTransactions.add(Transaction.builder()
                 .id(13L)
                 .type(TransactionType.INCOME)
                 .amount(new BigDecimal("100.00"))
@@ -429,89 +515,142 @@ public class MockDataService {
                 .user(sonUser)
                 .categoryConfirmed(true)
                 .build());
+
+        // 一次性写入本地存储
+        transactionTable.putAll(seedTransactions);
     }
 
     /**
      * 获取模拟类别列表
      */
     public static List<Category> getMockCategories() {
-        if (!isInitialized) {
-            initializeMockData();
-        }
-        return new ArrayList<>(mockCategories);
+        ensureInitialized();
+        return new ArrayList<>(mockCategories.values());
     }
 
     /**
      * 获取模拟交易列表
      */
     public static List<Transaction> getMockTransactions() {
-        if (!isInitialized) {
-            initializeMockData();
-        }
+        ensureInitialized();
 
         // 返回交易列表的副本，按日期降序排序
-        List<Transaction> sortedTransactions = new ArrayList<>(mockTransactions);
+        List<Transaction> sortedTransactions = transactionTable.values();
         Collections.sort(sortedTransactions, Comparator.comparing(Transaction::getTransactionDate).reversed());
         return sortedTransactions;
     }
 
     /**
-     * 获取指定用户的模拟交易列表
+     * 获取交易汇总立方体
+     */
+    public static TransactionRollup getTransactionRollup() {
+        ensureInitialized();
+        return transactionRollup;
+    }
+
+    /**
+     * 获取预算建议引擎
+     */
+    public static BudgetRecommendationEngine getBudgetRecommendationEngine() {
+        ensureInitialized();
+        return budgetRecommendationEngine;
+    }
+
+    /**
+     * 获取指定用户的模拟交易列表(按日期降序)
      */
     public static List<Transaction> getMockTransactionsForUser(Long userId) {
-        return getMockTransactions().stream()
-                .filter(t -> t.getUser() != null && t.getUser().getId().equals(userId))
-                .collect(Collectors.toList());
+        ensureInitialized();
+        return transactionTable.findByOwner(userId);
+    }
+
+    /**
+     * 分页获取指定用户的模拟交易(按日期降序)
+     */
+    public static Page<Transaction> getMockTransactionPage(Long userId, int page, int size) {
+        ensureInitialized();
+        return transactionTable.findPageByOwner(userId, page, size);
+    }
+
+    /**
+     * 按游标分页获取指定用户满足过滤条件的模拟交易(按日期降序)
+     * @param afterDate 上一页最后一条交易的时间，为null时从最新一条开始
+     * @param afterId 上一页最后一条交易的ID
+     */
+    public static Page<Transaction> getMockTransactionsAfter(Long userId, TransactionFilter filter,
+                                                             LocalDateTime afterDate, Long afterId, int size) {
+        ensureInitialized();
+        Long cursorId = afterDate != null ? afterId : null;
+        return transactionTable.findPageByOwnerBetweenAfter(userId, startSortValue(filter), endSortValue(filter),
+                filter::matches, toSortValue(afterDate), cursorId, size);
+    }
+
+    /**
+     * 统计指定用户满足过滤条件的模拟交易，只遍历日期范围内的索引
+     */
+    public static TransactionSummary summarizeMockTransactions(Long userId, TransactionFilter filter) {
+        ensureInitialized();
+        TransactionSummary summary = new TransactionSummary();
+        transactionTable.forEachByOwnerBetween(userId, startSortValue(filter), endSortValue(filter), transaction -> {
+            if (filter.matches(transaction)) {
+                summary.add(transaction);
+            }
+        });
+        return summary;
+    }
+
+    private static long startSortValue(TransactionFilter filter) {
+        return filter.getStartDate() != null ? toSortValue(filter.getStartDate().atStartOfDay()) : Long.MIN_VALUE;
+    }
+
+    private static long endSortValue(TransactionFilter filter) {
+        return filter.getEndDate() != null ? toSortValue(filter.getEndDate().atTime(LocalTime.MAX)) : Long.MAX_VALUE;
+    }
+
+    /**
+     * 获取指定用户在时间范围内的模拟交易(按日期降序)
+     */
+    public static List<Transaction> getMockTransactionsBetween(Long userId, LocalDateTime start, LocalDateTime end) {
+        ensureInitialized();
+        return transactionTable.findByOwnerBetween(userId, toSortValue(start), toSortValue(end));
+    }
+
+    /**
+     * 交易时间转换为索引排序值(秒)
+     */
+    private static long toSortValue(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toEpochSecond(ZoneOffset.UTC) : 0L;
     }
 
     /**
      * 根据ID查找交易
      */
     public static Transaction findTransactionById(Long id) {
-        if (!isInitialized) {
-            initializeMockData();
-        }
-
-        return mockTransactions.stream()
-                .filter(t -> t.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        ensureInitialized();
+        return transactionTable.get(id);
     }
 
     /**
      * 根据ID查找类别
      */
     public static Category findCategoryById(Long id) {
-        if (!isInitialized) {
-            initializeMockData();
-        }
-
-        return mockCategories.stream()
-                .filter(c -> c.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        ensureInitialized();
+        return mockCategories.get(id);
     }
 
     /**
      * 添加新交易
      */
     public static Transaction addTransaction(Transaction transaction) {
-        if (!isInitialized) {
-            initializeMockData();
-        }
+        ensureInitialized();
 
         // 确保有ID
         if (transaction.getId() == null) {
-            // 生成简单的模拟ID（实际项目中应使用更可靠的ID生成策略）
-            long maxId = mockTransactions.stream()
-                    .mapToLong(t -> t.getId() != null ? t.getId() : 0)
-                    .max()
-                    .orElse(0);
-            transaction.setId(maxId + 1);
+            transaction.setId(transactionTable.nextId());
         }
 
-        // 添加到集合
-        mockTransactions.add(transaction);
+        // 添加到存储
+        transactionTable.put(transaction);
 
         System.out.println("Added new transaction: ID=" + transaction.getId() +
                 ", Type=" + transaction.getType() +
@@ -520,23 +659,36 @@ public class MockDataService {
         return transaction;
     }
 
+    /**
+     * 批量添加新交易，整批只写一次磁盘
+     */
+    public static List<Transaction> addTransactions(List<Transaction> transactions) {
+        ensureInitialized();
+
+        for (Transaction transaction : transactions) {
+            if (transaction.getId() == null) {
+                transaction.setId(transactionTable.nextId());
+            }
+        }
+        transactionTable.putAll(transactions);
+
+        System.out.println("Added " + transactions.size() + " new transactions");
+
+        return transactions;
+    }
+
     /**
      * 更新现有交易
      */
     public static Transaction updateTransaction(Transaction transaction) {
-        if (!isInitialized) {
-            initializeMockData();
-        }
+        ensureInitialized();
 
         if (transaction.getId() == null) {
             throw new IllegalArgumentException("Cannot update transaction without ID");
         }
 
-        // 查找并删除旧交易
-        mockTransactions.removeIf(t -> t.getId().equals(transaction.getId()));
-
-        // 添加更新后的交易
-        mockTransactions.add(transaction);
+        // 覆盖旧交易并重建索引
+        transactionTable.put(transaction);
 
         System.out.println("Updated transaction: ID=" + transaction.getId());
 
@@ -547,14 +699,9 @@ public class MockDataService {
      * 删除交易
      */
     public static boolean deleteTransaction(Long id) {
-        if (!isInitialized) {
-            initializeMockData();
-        }
-
-        int sizeBefore = mockTransactions.size();
-        mockTransactions.removeIf(t -> t.getId().equals(id));
+        ensureInitialized();
 
-        boolean deleted = mockTransactions.size() < sizeBefore;
+        boolean deleted = transactionTable.remove(id);
         if (deleted) {
             System.out.println("Deleted transaction: ID=" + id);
         }
@@ -566,15 +713,13 @@ public class MockDataService {
      * 获取当前月份的收入总额
      */
     public static BigDecimal getTotalIncomeForCurrentMonth() {
-        if (!isInitialized) {
-            initializeMockData();
-        }
+        ensureInitialized();
 
         LocalDateTime now = LocalDateTime.now();
         int currentMonth = now.getMonthValue();
         int currentYear = now.getYear();
 
-        return mockTransactions.stream()
+        return transactionTable.values().stream()
                 .filter(t -> t.getType() == TransactionType.INCOME)
                 .filter(t -> {
                     LocalDateTime date = t.getTransactionDate();
@@ -588,15 +733,13 @@ public class MockDataService {
      * 获取当前月份的支出总额
      */
     public static BigDecimal getTotalExpenseForCurrentMonth() {
-        if (!isInitialized) {
-            initializeMockData();
-        }
+        ensureInitialized();
 
         LocalDateTime now = LocalDateTime.now();
         int currentMonth = now.getMonthValue();
         int currentYear = now.getYear();
 
-        return mockTransactions.stream()
+        return transactionTable.values().stream()
                 .filter(t -> t.getType() == TransactionType.EXPENSE)
                 .filter(t -> {
                     LocalDateTime date = t.getTransactionDate();
@@ -634,6 +777,13 @@ public class MockDataService {
                 .orElse(null);
     }
 
+    /**
+     * 根据ID查找用户
+     */
+    public static User findUserById(Long id) {
+        return mockUsersById.get(id);
+    }
+
     /**
      * 获取所有模拟用户
      */
@@ -646,22 +796,20 @@ public class MockDataService {
      * 获取用户的家庭关系
      */
     public static List<FamilyRelationship> getFamilyRelationshipsForUser(Long userId) {
-        return mockFamilyRelationships.stream()
-                .filter(r -> r.getParentId().equals(userId) || r.getChildId().equals(userId))
-                .collect(Collectors.toList());
+        List<FamilyRelationship> relationships = new ArrayList<>(
+                relationshipsByParent.getOrDefault(userId, Collections.emptyList()));
+        relationships.addAll(relationshipsByChild.getOrDefault(userId, Collections.emptyList()));
+        return relationships;
     }
 
     /**
      * 获取用户监护的家庭成员
      */
     public static List<User> getFamilyMembersUnderGuardianship(Long guardianId) {
-        List<Long> childIds = mockFamilyRelationships.stream()
-                .filter(r -> r.getParentId().equals(guardianId) && "活跃".equals(r.getStatus()))
-                .map(FamilyRelationship::getChildId)
-                .collect(Collectors.toList());
-
-        return mockUsers.stream()
-                .filter(user -> childIds.contains(user.getId()))
+        return relationshipsByParent.getOrDefault(guardianId, Collections.emptyList()).stream()
+                .filter(r -> "活跃".equals(r.getStatus()))
+                .map(r -> mockUsersById.get(r.getChildId()))
+                .filter(user -> user != null)
                 .collect(Collectors.toList());
     }
 
@@ -675,9 +823,8 @@ public class MockDataService {
         }
 
         // 检查家庭关系
-        return mockFamilyRelationships.stream()
-                .anyMatch(r -> r.getParentId().equals(viewerId) &&
-                        r.getChildId().equals(targetId) &&
+        return relationshipsByParent.getOrDefault(viewerId, Collections.emptyList()).stream()
+                .anyMatch(r -> r.getChildId().equals(targetId) &&
                         "活跃".equals(r.getStatus()));
     }
 }
\ No newline at end of file
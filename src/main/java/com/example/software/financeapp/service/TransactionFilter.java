@@ -0,0 +1,66 @@
+package com.example.software.financeapp.service;
+
+import com.example.software.financeapp.model.entity.Transaction;
+import com.example.software.financeapp.model.enums.TransactionType;
+
+import java.time.LocalDate;
+
+/**
+ * 交易过滤条件 - 日期范围、类型、类别和搜索文本，为null的条件不限制
+ * 日期范围由存储的有序索引直接定位，其余条件逐条检查
+ */
+public class TransactionFilter {
+
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final TransactionType type;
+    private final Long categoryId;
+    private final String searchText;
+
+    /**
+     * @param startDate 开始日期(含)
+     * @param endDate 结束日期(含)
+     * @param type 交易类型
+     * @param categoryId 类别ID
+     * @param searchText 搜索文本，匹配商家、描述和金额(不区分大小写)
+     */
+    public TransactionFilter(LocalDate startDate, LocalDate endDate, TransactionType type,
+                             Long categoryId, String searchText) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.type = type;
+        this.categoryId = categoryId;
+        this.searchText = searchText == null || searchText.isEmpty() ? null : searchText.toLowerCase();
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * 检查交易是否满足除日期范围以外的条件
+     */
+    public boolean matches(Transaction transaction) {
+        if (type != null && transaction.getType() != type) {
+            return false;
+        }
+        if (categoryId != null && (transaction.getCategory() == null
+                || !categoryId.equals(transaction.getCategory().getId()))) {
+            return false;
+        }
+        if (searchText == null) {
+            return true;
+        }
+
+        // 搜索商家、描述、金额等字段
+        return (transaction.getMerchant() != null &&
+                transaction.getMerchant().toLowerCase().contains(searchText)) ||
+                (transaction.getDescription() != null &&
+                        transaction.getDescription().toLowerCase().contains(searchText)) ||
+                (transaction.getAmount() != null && transaction.getAmount().toString().contains(searchText));
+    }
+}
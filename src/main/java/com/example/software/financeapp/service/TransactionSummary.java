@@ -0,0 +1,62 @@
+package com.example.software.financeapp.service;
+
+import com.example.software.financeapp.model.entity.Transaction;
+import com.example.software.financeapp.model.enums.TransactionType;
+
+import java.math.BigDecimal;
+
+/**
+ * 满足过滤条件的全部交易的统计 - 笔数、收入和支出合计、待分类笔数
+ * 在存储中逐条累加，不保留交易列表
+ */
+public class TransactionSummary {
+
+    private long count;
+    private long unconfirmedCount;
+    private BigDecimal totalIncome = BigDecimal.ZERO;
+    private BigDecimal totalExpense = BigDecimal.ZERO;
+
+    void add(Transaction transaction) {
+        count++;
+        if (transaction.getCategory() == null || !transaction.isCategoryConfirmed()) {
+            unconfirmedCount++;
+        }
+        if (transaction.getAmount() == null) {
+            return;
+        }
+        if (transaction.getType() == TransactionType.INCOME) {
+            totalIncome = totalIncome.add(transaction.getAmount());
+        } else if (transaction.getType() == TransactionType.EXPENSE) {
+            totalExpense = totalExpense.add(transaction.getAmount());
+        }
+    }
+
+    /**
+     * 获取交易笔数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 获取未分类或类别未确认的交易笔数
+     */
+    public long getUnconfirmedCount() {
+        return unconfirmedCount;
+    }
+
+    public BigDecimal getTotalIncome() {
+        return totalIncome;
+    }
+
+    public BigDecimal getTotalExpense() {
+        return totalExpense;
+    }
+
+    /**
+     * 获取收支差额
+     */
+    public BigDecimal getBalance() {
+        return totalIncome.subtract(totalExpense);
+    }
+}
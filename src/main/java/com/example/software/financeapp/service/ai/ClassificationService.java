@@ -6,26 +6,35 @@ import com.example.software.financeapp.service.ApiService;
 import com.example.software.financeapp.service.MockDataService;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 分类服务 - 管理交易自动分类和学习
  */
 public class ClassificationService {
 
+    // 批量分类时每个任务处理的交易数，不超过该数量时直接在调用线程上分类
+    private static final int BATCH_CHUNK_SIZE = 256;
+
     // 分类器实例
     private final TransactionClassifier classifier;
 
     // API服务
     private final ApiService apiService;
 
-    // 分类历史记录 - 用于分析和学习
+    // 分类历史记录 - 用于分析和学习(批量分类时会被多个线程写入)
     private final Map<Long, TransactionClassifier.ClassificationResult> classificationHistory;
 
-    // 用户反馈数据 - 用于改进分类准确性
-    private final Map<String, Integer> keywordStrengthMap;
+    // 批量分类使用的线程池
+    private Executor batchExecutor = ForkJoinPool.commonPool();
 
     /**
      * 构造函数
@@ -34,8 +43,7 @@ public class ClassificationService {
     public ClassificationService(ApiService apiService) {
         this.apiService = apiService;
         this.classifier = new TransactionClassifier();
-        this.classificationHistory = new HashMap<>();
-        this.keywordStrengthMap = new HashMap<>();
+        this.classificationHistory = new ConcurrentHashMap<>();
     }
 
     /**
@@ -49,24 +57,37 @@ public class ClassificationService {
             return transaction;
         }
 
+        TransactionClassifier.ClassificationResult result = applyClassification(transaction);
+
+        // 记录分类信息（可用于调试和改进）
+        System.out.println("自动分类交易 ID=" + transaction.getId() +
+                ", 分配类别: " + result.getCategory().getName() +
+                ", 置信度: " + result.getConfidence() +
+                ", 原因: " + result.getReason());
+
+        return transaction;
+    }
+
+    /**
+     * 使用分类器分类并保存结果，不输出日志
+     * @param transaction 需要分类的交易
+     * @return 分类结果
+     */
+    private TransactionClassifier.ClassificationResult applyClassification(Transaction transaction) {
         // 使用分类器对交易进行分类
         TransactionClassifier.ClassificationResult result = classifier.classifyTransaction(transaction);
 
-        // 保存分类历史
-        classificationHistory.put(transaction.getId(), result);
+        // 保存分类历史(尚未入库的交易没有ID)
+        if (transaction.getId() != null) {
+            classificationHistory.put(transaction.getId(), result);
+        }
 
         // 设置分类结果
         transaction.setCategory(result.getCategory());
         // 标记为AI分类，未经用户确认
         transaction.setCategoryConfirmed(false);
 
-        // 记录分类信息（可用于调试和改进）
-        System.out.println("自动分类交易 ID=" + transaction.getId() +
-                ", 分配类别: " + result.getCategory().getName() +
-                ", 置信度: " + result.getConfidence() +
-                ", 原因: " + result.getReason());
-
-        return transaction;
+        return result;
     }
 
     /**
@@ -75,12 +96,68 @@ public class ClassificationService {
      * @return 分类后的交易列表
      */
     public List<Transaction> classifyTransactions(List<Transaction> transactions) {
+        classifyBatch(transactions);
+        return transactions;
+    }
+
+    /**
+     * 批量分类交易
+     * 交易按固定大小分组后在批量线程池上并行分类，每组单独统计，最后合并并输出一条汇总日志
+     * @param transactions 交易列表
+     * @return 分类汇总
+     */
+    public BatchSummary classifyBatch(List<Transaction> transactions) {
+        long startTime = System.currentTimeMillis();
+        BatchSummary summary;
+
+        if (transactions.size() <= BATCH_CHUNK_SIZE) {
+            summary = classifyChunk(transactions);
+        } else {
+            List<CompletableFuture<BatchSummary>> futures = new ArrayList<>();
+            for (int from = 0; from < transactions.size(); from += BATCH_CHUNK_SIZE) {
+                List<Transaction> chunk = transactions.subList(from, Math.min(from + BATCH_CHUNK_SIZE, transactions.size()));
+                futures.add(CompletableFuture.supplyAsync(() -> classifyChunk(chunk), batchExecutor));
+            }
+
+            summary = new BatchSummary();
+            for (CompletableFuture<BatchSummary> future : futures) {
+                summary.merge(future.join());
+            }
+        }
+
+        System.out.println("批量分类完成(" + (System.currentTimeMillis() - startTime) + "ms): " + summary +
+                "; 缓存" + classifier.getCacheStats());
+        return summary;
+    }
+
+    /**
+     * 分类一组交易
+     */
+    private BatchSummary classifyChunk(List<Transaction> transactions) {
+        BatchSummary summary = new BatchSummary();
         for (Transaction transaction : transactions) {
-            if (transaction.getCategory() == null || !transaction.isCategoryConfirmed()) {
-                classifyTransaction(transaction);
+            if (transaction.isCategoryConfirmed() && transaction.getCategory() != null) {
+                summary.skippedCount++;
+                continue;
             }
+            summary.add(applyClassification(transaction));
         }
-        return transactions;
+        return summary;
+    }
+
+    /**
+     * 获取分类结果缓存的统计信息
+     */
+    public TransactionClassifier.CacheStats getCacheStats() {
+        return classifier.getCacheStats();
+    }
+
+    /**
+     * 设置批量分类使用的线程池
+     * @param batchExecutor 线程池
+     */
+    public void setBatchExecutor(Executor batchExecutor) {
+        this.batchExecutor = batchExecutor;
     }
 
     /**
@@ -106,13 +183,16 @@ public class ClassificationService {
         TransactionClassifier.ClassificationResult originalResult = classificationHistory.get(transactionId);
 
         // 如果原始分类与用户选择不同，记录这次学习
-        if (originalResult != null &&
-                (originalResult.getCategory() == null ||
-                        !originalResult.getCategory().getId().equals(categoryId))) {
-            // 这里可以实现更复杂的学习逻辑，例如调整关键词权重
+        boolean corrected = originalResult == null ||
+                originalResult.getCategory() == null ||
+                !originalResult.getCategory().getId().equals(categoryId);
+        if (originalResult != null && corrected) {
             learnFromFeedback(transaction, category, originalResult.getCategory());
         }
 
+        // 确认和纠正都作为反馈模型的训练样本，增量更新；没有AI分类记录时按纠正处理
+        classifier.learn(transaction, category, corrected);
+
         // 更新交易类别
         transaction.setCategory(category);
         transaction.setCategoryConfirmed(true);
@@ -122,33 +202,16 @@ public class ClassificationService {
     }
 
     /**
-     * 从用户反馈中学习（简化版）
+     * 记录用户对AI分类的纠正
      * @param transaction 交易
      * @param userCategory 用户选择的类别
      * @param aiCategory AI推荐的类别
      */
     private void learnFromFeedback(Transaction transaction, Category userCategory, Category aiCategory) {
-        // 提取交易内容关键信息
-        String content = (transaction.getMerchant() + " " + transaction.getDescription()).toLowerCase();
-
-        // 为用户选择的类别增强关键词权重
-        if (userCategory.getKeywords() != null) {
-            String[] keywords = userCategory.getKeywords().split(",");
-            for (String keyword : keywords) {
-                String key = userCategory.getId() + ":" + keyword.trim();
-                keywordStrengthMap.put(key, keywordStrengthMap.getOrDefault(key, 0) + 1);
-            }
-        }
-
         // 打印学习信息
         System.out.println("从用户反馈学习: 交易 ID=" + transaction.getId() +
                 ", AI推荐: " + (aiCategory != null ? aiCategory.getName() : "无") +
                 ", 用户选择: " + userCategory.getName());
-
-        // 这里是简化版实现，实际应用中可以：
-        // 1. 保存学习结果到数据库
-        // 2. 定期重新训练模型
-        // 3. 实现更复杂的算法，例如贝叶斯分类器或者机器学习模型
     }
 
     /**
@@ -157,7 +220,7 @@ public class ClassificationService {
      * @return 置信度，如果未找到则返回0
      */
     public double getClassificationConfidence(Long transactionId) {
-        TransactionClassifier.ClassificationResult result = classificationHistory.get(transactionId);
+        TransactionClassifier.ClassificationResult result = getHistory(transactionId);
         return result != null ? result.getConfidence() : 0;
     }
 
@@ -167,22 +230,116 @@ public class ClassificationService {
      * @return 分类原因
      */
     public String getClassificationReason(Long transactionId) {
-        TransactionClassifier.ClassificationResult result = classificationHistory.get(transactionId);
+        TransactionClassifier.ClassificationResult result = getHistory(transactionId);
         return result != null ? result.getReason() : "未分类";
     }
 
+    private TransactionClassifier.ClassificationResult getHistory(Long transactionId) {
+        // ConcurrentHashMap不支持null键
+        return transactionId != null ? classificationHistory.get(transactionId) : null;
+    }
+
     /**
      * 重新训练分类器
      */
     public void retrainClassifier() {
-        // 在实际应用中，可以根据用户反馈和历史数据重新训练分类器
-        // 例如调整关键词权重、更新分类规则等
-        System.out.println("重新训练分类器 (模拟)");
+        // 反馈模型在每次反馈时已增量更新，这里只需清空缓存的分类结果
+        classifier.invalidateCache();
+        System.out.println("反馈模型为增量更新，无需重新训练; 当前样本数: " + classifier.getFeedbackSampleCount());
+    }
+
+    /**
+     * 置信度区间
+     */
+    public enum ConfidenceBand {
+        HIGH("高", 0.8),
+        MEDIUM("中", 0.6),
+        LOW("低", 0);
+
+        private final String displayName;
+        private final double minConfidence;
+
+        ConfidenceBand(String displayName, double minConfidence) {
+            this.displayName = displayName;
+            this.minConfidence = minConfidence;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
 
-        // 打印当前学习到的关键词权重
-        System.out.println("当前关键词学习情况:");
-        for (Map.Entry<String, Integer> entry : keywordStrengthMap.entrySet()) {
-            System.out.println(entry.getKey() + " = " + entry.getValue());
+        /**
+         * 获取置信度所在区间
+         */
+        public static ConfidenceBand of(double confidence) {
+            for (ConfidenceBand band : values()) {
+                if (confidence >= band.minConfidence) {
+                    return band;
+                }
+            }
+            return LOW;
+        }
+    }
+
+    /**
+     * 批量分类汇总
+     */
+    public static class BatchSummary {
+        private final Map<String, Integer> categoryCounts = new TreeMap<>();
+        private final Map<ConfidenceBand, Integer> bandCounts = new EnumMap<>(ConfidenceBand.class);
+        private int classifiedCount;
+        private int skippedCount;
+
+        void add(TransactionClassifier.ClassificationResult result) {
+            classifiedCount++;
+            categoryCounts.merge(result.getCategory().getName(), 1, Integer::sum);
+            bandCounts.merge(ConfidenceBand.of(result.getConfidence()), 1, Integer::sum);
+        }
+
+        /**
+         * 合并另一批的分类结果
+         */
+        public void merge(BatchSummary other) {
+            classifiedCount += other.classifiedCount;
+            skippedCount += other.skippedCount;
+            other.categoryCounts.forEach((name, count) -> categoryCounts.merge(name, count, Integer::sum));
+            other.bandCounts.forEach((band, count) -> bandCounts.merge(band, count, Integer::sum));
+        }
+
+        public int getClassifiedCount() {
+            return classifiedCount;
+        }
+
+        /**
+         * 获取已确认类别而跳过的交易数
+         */
+        public int getSkippedCount() {
+            return skippedCount;
+        }
+
+        /**
+         * 获取各类别的分类数(按类别名称排序)
+         */
+        public Map<String, Integer> getCategoryCounts() {
+            return categoryCounts;
+        }
+
+        /**
+         * 获取某个置信度区间的分类数
+         */
+        public int getBandCount(ConfidenceBand band) {
+            return bandCounts.getOrDefault(band, 0);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("分类").append(classifiedCount).append("条, 跳过").append(skippedCount).append("条; 置信度");
+            for (ConfidenceBand band : ConfidenceBand.values()) {
+                sb.append(' ').append(band.getDisplayName()).append('=').append(getBandCount(band));
+            }
+            sb.append("; 类别").append(categoryCounts);
+            return sb.toString();
         }
     }
-}
\ No newline at end of file
+}
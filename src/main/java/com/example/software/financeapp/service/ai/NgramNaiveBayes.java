@@ -0,0 +1,211 @@
+package com.example.software.financeapp.service.ai;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 增量多项式朴素贝叶斯分类器
+ * 特征为文本的单字和相邻双字，经哈希映射到固定数量的桶中；
+ * 每个类别的统计量保存在连续的int数组里，学习一条样本只需O(特征数)，无需重新训练
+ */
+class NgramNaiveBayes {
+
+    // 特征哈希桶数(2的幂)
+    private static final int BUCKETS = 1 << 14;
+
+    // 预测时至少需要的训练样本数
+    private static final int MIN_TRAINING_SAMPLES = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 类别ID -> 类别序号
+    private final Map<Long, Integer> classSlots = new HashMap<>();
+
+    // 特征计数，按 [类别序号 * BUCKETS + 桶] 排列
+    private int[] featureCounts = new int[0];
+
+    // 每个类别的样本数和特征总数
+    private int[] sampleCounts = new int[0];
+    private long[] featureTotals = new long[0];
+
+    private int totalSamples;
+
+    /**
+     * 学习一条样本
+     * @param text 小写的交易内容
+     * @param categoryId 类别ID
+     */
+    void learn(String text, Long categoryId) {
+        int[] features = extractFeatures(text);
+
+        lock.writeLock().lock();
+        try {
+            int slot = slotFor(categoryId);
+            int base = slot * BUCKETS;
+            for (int feature : features) {
+                featureCounts[base + feature]++;
+            }
+            sampleCounts[slot]++;
+            featureTotals[slot] += features.length;
+            totalSamples++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 在候选类别中预测
+     * @param text 小写的交易内容
+     * @param candidateIds 候选类别ID
+     * @return 预测结果，训练样本不足或候选类别都没有样本时返回null
+     */
+    Prediction predict(String text, List<Long> candidateIds) {
+        int[] features = extractFeatures(text);
+        if (features.length == 0) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            if (totalSamples < MIN_TRAINING_SAMPLES) {
+                return null;
+            }
+
+            // 计算各候选类别的对数后验(拉普拉斯平滑)
+            Long[] ids = new Long[candidateIds.size()];
+            double[] scores = new double[candidateIds.size()];
+            int count = 0;
+            for (Long categoryId : candidateIds) {
+                Integer slot = classSlots.get(categoryId);
+                if (slot == null || sampleCounts[slot] == 0) {
+                    continue;
+                }
+
+                int base = slot * BUCKETS;
+                double denominator = Math.log(featureTotals[slot] + BUCKETS);
+                double score = Math.log((double) sampleCounts[slot] / totalSamples);
+                for (int feature : features) {
+                    score += Math.log(featureCounts[base + feature] + 1) - denominator;
+                }
+
+                ids[count] = categoryId;
+                scores[count] = score;
+                count++;
+            }
+
+            // 只有一个类别有样本时后验概率没有意义
+            if (count < 2) {
+                return null;
+            }
+
+            // 归一化为概率
+            int best = 0;
+            for (int i = 1; i < count; i++) {
+                if (scores[i] > scores[best]) {
+                    best = i;
+                }
+            }
+            double sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += Math.exp(scores[i] - scores[best]);
+            }
+
+            return new Prediction(ids[best], 1 / sum, sampleCounts[classSlots.get(ids[best])]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取已学习的样本总数
+     */
+    int getTotalSamples() {
+        lock.readLock().lock();
+        try {
+            return totalSamples;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取类别序号，新类别时扩容数组
+     */
+    private int slotFor(Long categoryId) {
+        Integer slot = classSlots.get(categoryId);
+        if (slot != null) {
+            return slot;
+        }
+
+        slot = classSlots.size();
+        classSlots.put(categoryId, slot);
+        featureCounts = Arrays.copyOf(featureCounts, (slot + 1) * BUCKETS);
+        sampleCounts = Arrays.copyOf(sampleCounts, slot + 1);
+        featureTotals = Arrays.copyOf(featureTotals, slot + 1);
+        return slot;
+    }
+
+    /**
+     * 提取单字和相邻双字特征(跳过空白)，返回特征所在的桶
+     */
+    private static int[] extractFeatures(String text) {
+        int[] features = new int[text.length() * 2];
+        int count = 0;
+        char previous = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                previous = 0;
+                continue;
+            }
+
+            features[count++] = bucket(c);
+            if (previous != 0) {
+                features[count++] = bucket((previous << 16 | c) ^ 0x5bd1e995);
+            }
+            previous = c;
+        }
+
+        return Arrays.copyOf(features, count);
+    }
+
+    private static int bucket(int value) {
+        int h = value * 0x9E3779B1;
+        return (h ^ (h >>> 15)) & (BUCKETS - 1);
+    }
+
+    /**
+     * 预测结果
+     */
+    static class Prediction {
+        private final Long categoryId;
+        private final double probability;
+        private final int sampleCount;
+
+        Prediction(Long categoryId, double probability, int sampleCount) {
+            this.categoryId = categoryId;
+            this.probability = probability;
+            this.sampleCount = sampleCount;
+        }
+
+        Long getCategoryId() {
+            return categoryId;
+        }
+
+        double getProbability() {
+            return probability;
+        }
+
+        /**
+         * 获取该类别的训练样本数
+         */
+        int getSampleCount() {
+            return sampleCount;
+        }
+    }
+}
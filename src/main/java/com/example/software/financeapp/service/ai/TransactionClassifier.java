@@ -5,9 +5,10 @@ import com.example.software.financeapp.model.entity.Transaction;
 import com.example.software.financeapp.model.enums.CategoryType;
 import com.example.software.financeapp.model.enums.TransactionType;
 import com.example.software.financeapp.service.MockDataService;
+import com.example.software.financeapp.util.KeywordAutomaton;
 
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 交易分类器 - 使用基于规则和关键词的方法自动对交易进行分类
@@ -15,43 +16,136 @@ import java.util.regex.Pattern;
  */
 public class TransactionClassifier {
 
-    // 类别关键词映射
-    private final Map<String, List<Pattern>> categoryKeywordPatterns = new HashMap<>();
-
     // 分类置信度阈值
     private static final double CONFIDENCE_THRESHOLD = 0.6;
 
+    // 分类结果缓存的最大条目数
+    private static final int CACHE_CAPACITY = 10000;
+
+    // 从用户反馈中学习的模型，关键词置信度不足时作为第二阶段使用
+    private final NgramNaiveBayes feedbackModel = new NgramNaiveBayes();
+
+    // 当前的关键词索引，类别关键词变化时整体替换
+    private volatile KeywordIndex keywordIndex;
+
+    // 分类结果缓存，按交易类型和商家+描述内容索引，最久未使用的条目先被淘汰
+    private final Map<String, ClassificationResult> resultCache =
+            new LinkedHashMap<String, ClassificationResult>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ClassificationResult> eldest) {
+                    if (size() > CACHE_CAPACITY) {
+                        cacheEvictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    // 缓存代数，每次清空缓存时加1；分类期间缓存被清空时不写回旧结果
+    private final AtomicLong cacheGeneration = new AtomicLong();
+
+    // 缓存统计
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong cacheEvictions = new AtomicLong();
+
     /**
      * 构造函数 - 初始化分类器
      */
     public TransactionClassifier() {
         initializeCategoryKeywords();
+        initializeFeedbackModel();
     }
 
     /**
      * 初始化类别关键词
      */
     private void initializeCategoryKeywords() {
-        List<Category> categories = MockDataService.getMockCategories();
+        keywordIndex = new KeywordIndex(MockDataService.getMockCategories());
+    }
 
-        for (Category category : categories) {
-            String keywords = category.getKeywords();
-            if (keywords != null && !keywords.isEmpty()) {
-                List<Pattern> patterns = new ArrayList<>();
-                String[] keywordArray = keywords.split(",");
-
-                for (String keyword : keywordArray) {
-                    String trimmedKeyword = keyword.trim().toLowerCase();
-                    // 创建不区分大小写的正则表达式模式
-                    Pattern pattern = Pattern.compile(Pattern.quote(trimmedKeyword), Pattern.CASE_INSENSITIVE);
-                    patterns.add(pattern);
-                }
+    /**
+     * 用已确认类别的交易初始化反馈模型
+     */
+    private void initializeFeedbackModel() {
+        for (Transaction transaction : MockDataService.getMockTransactions()) {
+            if (transaction.isCategoryConfirmed() && transaction.getCategory() != null) {
+                feedbackModel.learn(toContent(transaction), transaction.getCategory().getId());
+            }
+        }
+        System.out.println("反馈模型初始化完成，样本数: " + feedbackModel.getTotalSamples());
+    }
+
+    /**
+     * 学习用户确认或纠正的类别
+     * @param transaction 交易
+     * @param category 用户选择的类别
+     * @param correction 是否纠正了AI的分类；只是确认时缓存的结果仍然成立，不清空缓存
+     */
+    public void learn(Transaction transaction, Category category, boolean correction) {
+        feedbackModel.learn(toContent(transaction), category.getId());
+
+        // 纠正后缓存的低置信度结果可能不再成立
+        if (correction) {
+            invalidateCache();
+        }
+    }
+
+    /**
+     * 获取反馈模型的样本数
+     */
+    public int getFeedbackSampleCount() {
+        return feedbackModel.getTotalSamples();
+    }
 
-                categoryKeywordPatterns.put(category.getId().toString(), patterns);
+    /**
+     * 合并交易商家和描述信息用于匹配
+     */
+    private static String toContent(Transaction transaction) {
+        return (transaction.getMerchant() + " " + transaction.getDescription()).toLowerCase();
+    }
+
+    /**
+     * 检查类别关键词是否变化，变化时重建关键词索引并清空缓存
+     */
+    private KeywordIndex currentKeywordIndex() {
+        KeywordIndex index = keywordIndex;
+        List<Category> categories = MockDataService.getMockCategories();
+        if (index.fingerprint == KeywordIndex.fingerprint(categories)) {
+            return index;
+        }
+
+        synchronized (this) {
+            if (keywordIndex.fingerprint != KeywordIndex.fingerprint(categories)) {
+                keywordIndex = new KeywordIndex(categories);
+                invalidateCache();
+                System.out.println("类别关键词已变化，重建关键词索引");
             }
+            return keywordIndex;
         }
     }
 
+    /**
+     * 清空分类结果缓存(例如用户纠正了分类之后)
+     */
+    public void invalidateCache() {
+        synchronized (resultCache) {
+            resultCache.clear();
+            cacheGeneration.incrementAndGet();
+        }
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public CacheStats getCacheStats() {
+        int size;
+        synchronized (resultCache) {
+            size = resultCache.size();
+        }
+        return new CacheStats(cacheHits.get(), cacheMisses.get(), cacheEvictions.get(), size);
+    }
+
     /**
      * 对交易进行分类
      * @param transaction 未分类的交易
@@ -67,12 +161,47 @@ public class TransactionClassifier {
             );
         }
 
-        // 2. 根据交易类型（收入/支出）筛选符合条件的类别
-        List<Category> eligibleCategories = filterCategoriesByType(transaction.getType());
+        // 2. 相同类型、相同商家和描述的交易直接使用缓存的结果
+        // 先记下缓存代数再取关键词索引，索引替换后总会清空缓存
+        long generation = cacheGeneration.get();
+        KeywordIndex index = currentKeywordIndex();
+        String content = toContent(transaction);
+        String cacheKey = transaction.getType() + "|" + content;
+
+        ClassificationResult cached;
+        synchronized (resultCache) {
+            cached = resultCache.get(cacheKey);
+        }
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+        cacheMisses.incrementAndGet();
+
+        ClassificationResult result = classifyContent(transaction.getType(), content, index);
+        synchronized (resultCache) {
+            // 分类期间缓存被清空(关键词索引被替换或用户纠正了分类)时不缓存旧结果
+            if (cacheGeneration.get() == generation) {
+                resultCache.put(cacheKey, result);
+            }
+        }
+        return result;
+    }
 
-        // 3. 如果没有合适的类别，返回默认类别
+    /**
+     * 根据交易内容分类
+     * @param type 交易类型
+     * @param content 小写的商家和描述
+     * @param index 关键词索引
+     * @return 分类结果
+     */
+    private ClassificationResult classifyContent(TransactionType type, String content, KeywordIndex index) {
+        // 根据交易类型（收入/支出）筛选符合条件的类别
+        List<Category> eligibleCategories = filterCategoriesByType(type);
+
+        // 如果没有合适的类别，返回默认类别
         if (eligibleCategories.isEmpty()) {
-            Category defaultCategory = getDefaultCategory(transaction.getType());
+            Category defaultCategory = getDefaultCategory(type);
             return new ClassificationResult(
                     defaultCategory,
                     0.5,
@@ -80,8 +209,8 @@ public class TransactionClassifier {
             );
         }
 
-        // 4. 分析交易内容以确定最可能的类别
-        return findBestMatchingCategory(transaction, eligibleCategories);
+        // 分析交易内容以确定最可能的类别
+        return findBestMatchingCategory(type, content, eligibleCategories, index);
     }
 
     /**
@@ -141,33 +270,30 @@ public class TransactionClassifier {
 
     /**
      * 查找最匹配的类别
-     * @param transaction 交易
+     * @param type 交易类型
+     * @param content 小写的商家和描述
      * @param eligibleCategories 符合条件的类别列表
+     * @param index 关键词索引
      * @return 分类结果
      */
-    private ClassificationResult findBestMatchingCategory(Transaction transaction, List<Category> eligibleCategories) {
-        // 合并交易商家和描述信息用于匹配
-        String content = (transaction.getMerchant() + " " + transaction.getDescription()).toLowerCase();
-
+    private ClassificationResult findBestMatchingCategory(TransactionType type, String content,
+                                                          List<Category> eligibleCategories, KeywordIndex index) {
         Category bestCategory = null;
         double highestConfidence = 0;
         String reason = "";
 
+        // 一次扫描得到所有类别的命中数
+        int[] hits = index.countKeywordHits(content);
+
         // 对每个类别计算匹配度
         for (Category category : eligibleCategories) {
-            List<Pattern> patterns = categoryKeywordPatterns.get(category.getId().toString());
+            Integer slot = index.categorySlots.get(category.getId());
 
-            if (patterns != null && !patterns.isEmpty()) {
-                int matchCount = 0;
-
-                for (Pattern pattern : patterns) {
-                    if (pattern.matcher(content).find()) {
-                        matchCount++;
-                    }
-                }
+            if (slot != null && index.categoryKeywordCounts[slot] > 0) {
+                int matchCount = hits[slot];
 
                 // 计算置信度
-                double confidence = patterns.isEmpty() ? 0 : (double) matchCount / patterns.size();
+                double confidence = (double) matchCount / index.categoryKeywordCounts[slot];
 
                 if (confidence > highestConfidence) {
                     highestConfidence = confidence;
@@ -177,9 +303,14 @@ public class TransactionClassifier {
             }
         }
 
-        // 如果没有找到足够高置信度的类别，使用默认类别
+        // 如果没有找到足够高置信度的类别，先尝试反馈模型，再使用默认类别
         if (bestCategory == null || highestConfidence < CONFIDENCE_THRESHOLD) {
-            Category defaultCategory = getDefaultCategory(transaction.getType());
+            ClassificationResult learned = classifyByFeedbackModel(content, eligibleCategories);
+            if (learned != null) {
+                return learned;
+            }
+
+            Category defaultCategory = getDefaultCategory(type);
             return new ClassificationResult(
                     defaultCategory,
                     Math.max(0.5, highestConfidence),
@@ -190,6 +321,168 @@ public class TransactionClassifier {
         return new ClassificationResult(bestCategory, highestConfidence, reason);
     }
 
+    /**
+     * 使用反馈模型分类
+     * @param content 小写的商家和描述
+     * @param eligibleCategories 符合条件的类别列表
+     * @return 概率达到置信度阈值时返回分类结果，否则返回null
+     */
+    private ClassificationResult classifyByFeedbackModel(String content, List<Category> eligibleCategories) {
+        List<Long> candidateIds = new ArrayList<>();
+        for (Category category : eligibleCategories) {
+            candidateIds.add(category.getId());
+        }
+
+        NgramNaiveBayes.Prediction prediction = feedbackModel.predict(content, candidateIds);
+        if (prediction == null || prediction.getProbability() < CONFIDENCE_THRESHOLD) {
+            return null;
+        }
+
+        for (Category category : eligibleCategories) {
+            if (category.getId().equals(prediction.getCategoryId())) {
+                return new ClassificationResult(
+                        category,
+                        prediction.getProbability(),
+                        "Learned from " + prediction.getSampleCount() + " feedback samples"
+                );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 关键词索引 - 由全部类别关键词构建，构建后只读
+     */
+    private static class KeywordIndex {
+        // 全部类别关键词构成的匹配自动机
+        private final KeywordAutomaton automaton;
+
+        // 关键词编号 -> 类别序号
+        private final int[] keywordCategorySlots;
+
+        // 类别ID -> 类别序号
+        private final Map<Long, Integer> categorySlots = new HashMap<>();
+
+        // 每个类别的关键词总数
+        private final int[] categoryKeywordCounts;
+
+        // 每个类别的空关键词数(空关键词总是视为命中)
+        private final int[] categoryEmptyKeywordCounts;
+
+        // 构建时的关键词指纹，用于发现关键词变化
+        private final long fingerprint;
+
+        KeywordIndex(List<Category> categories) {
+            KeywordAutomaton.Builder builder = KeywordAutomaton.builder();
+            List<Integer> keywordSlots = new ArrayList<>();
+            categoryKeywordCounts = new int[categories.size()];
+            categoryEmptyKeywordCounts = new int[categories.size()];
+
+            for (Category category : categories) {
+                String keywords = category.getKeywords();
+                if (keywords != null && !keywords.isEmpty()) {
+                    int slot = categorySlots.size();
+                    categorySlots.put(category.getId(), slot);
+
+                    for (String keyword : keywords.split(",")) {
+                        // 关键词和待匹配内容都转为小写，匹配时不区分大小写
+                        String trimmedKeyword = keyword.trim().toLowerCase();
+                        categoryKeywordCounts[slot]++;
+
+                        if (trimmedKeyword.isEmpty()) {
+                            categoryEmptyKeywordCounts[slot]++;
+                        } else {
+                            builder.add(trimmedKeyword);
+                            keywordSlots.add(slot);
+                        }
+                    }
+                }
+            }
+
+            automaton = builder.build();
+            keywordCategorySlots = keywordSlots.stream().mapToInt(Integer::intValue).toArray();
+            fingerprint = fingerprint(categories);
+        }
+
+        /**
+         * 计算类别关键词指纹(字符串的哈希值会被缓存，计算开销很小)
+         */
+        static long fingerprint(List<Category> categories) {
+            long hash = categories.size();
+            for (Category category : categories) {
+                hash = hash * 31 + Objects.hashCode(category.getId());
+                hash = hash * 31 + Objects.hashCode(category.getKeywords());
+            }
+            return hash;
+        }
+
+        /**
+         * 扫描一次内容，统计每个类别命中的关键词数(同一关键词多次出现只计一次)
+         * @param content 小写的交易内容
+         * @return 按类别序号排列的命中数
+         */
+        int[] countKeywordHits(String content) {
+            int[] hits = categoryEmptyKeywordCounts.clone();
+            boolean[] matched = new boolean[keywordCategorySlots.length];
+
+            automaton.scan(content, keyword -> {
+                if (!matched[keyword]) {
+                    matched[keyword] = true;
+                    hits[keywordCategorySlots[keyword]]++;
+                }
+            });
+
+            return hits;
+        }
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    public static class CacheStats {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final int size;
+
+        public CacheStats(long hitCount, long missCount, long evictionCount, int size) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.size = size;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * 获取命中率，没有请求时为0
+         */
+        public double getHitRate() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("命中率%.1f%% (命中%d, 未命中%d, 淘汰%d, 条目%d)",
+                    getHitRate() * 100, hitCount, missCount, evictionCount, size);
+        }
+    }
+
     /**
      * 分类结果类
      */
@@ -0,0 +1,77 @@
+package com.example.software.financeapp.service.analysis;
+
+import com.example.software.financeapp.util.TDigest;
+
+/**
+ * 金额基线 - 一组交易金额的流式统计
+ * 均值和方差用 Welford 算法增量计算，中位数和百分位用 t-digest 估计，
+ * 每添加一笔金额的开销为O(1)(t-digest 按批合并，均摊)
+ */
+public class AmountBaseline {
+
+    private long count;
+    private double mean;
+    private double m2;
+
+    private final TDigest digest = new TDigest();
+
+    /**
+     * 添加一笔金额
+     */
+    public void add(double amount) {
+        count++;
+        double delta = amount - mean;
+        mean += delta / count;
+        m2 += delta * (amount - mean);
+
+        digest.add(amount);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * 获取样本标准差，样本不足两笔时返回0
+     */
+    public double getStdDev() {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0;
+    }
+
+    /**
+     * 获取中位数
+     */
+    public double getMedian() {
+        return digest.quantile(0.5);
+    }
+
+    /**
+     * 获取分位数
+     * @param q 分位(0-1)
+     */
+    public double quantile(double q) {
+        return digest.quantile(q);
+    }
+
+    /**
+     * 计算金额的Z分数，标准差为0时比均值大的金额返回正无穷
+     */
+    public double zScore(double amount) {
+        double stdDev = getStdDev();
+        if (stdDev == 0) {
+            return amount > mean ? Double.POSITIVE_INFINITY : 0;
+        }
+        return (amount - mean) / stdDev;
+    }
+
+    /**
+     * 计算金额在基线中的百分位(0-1)
+     */
+    public double percentile(double amount) {
+        return digest.cdf(amount);
+    }
+}
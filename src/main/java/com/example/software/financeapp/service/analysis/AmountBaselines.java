@@ -0,0 +1,249 @@
+package com.example.software.financeapp.service.analysis;
+
+import com.example.software.financeapp.model.entity.Transaction;
+import com.example.software.financeapp.model.enums.TransactionType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 用户金额基线 - 按(用户, 类别, 交易类型)维护的金额基线
+ * 交易按时间顺序逐笔处理：先与此前的基线比较打分，再计入基线，因此每笔交易只与自己之前的交易比较。
+ * 类别样本不足时退回到该用户同类型交易的整体基线。
+ * 不是线程安全的
+ */
+public class AmountBaselines {
+
+    // 基线可用于打分的最少样本数
+    public static final int MIN_SAMPLES = 10;
+
+    // 判定为异常金额的Z分数
+    public static final double Z_SCORE_THRESHOLD = 3.0;
+
+    // 判定为异常金额的百分位
+    public static final double PERCENTILE_THRESHOLD = 0.99;
+
+    // 异常金额至少是中位数的倍数，避免金额固定的交易因标准差很小而被误报
+    public static final double MIN_MEDIAN_RATIO = 2.0;
+
+    // (用户, 类别, 类型) -> 类别基线
+    private final Map<BaselineKey, AmountBaseline> categoryBaselines = new HashMap<>();
+
+    // (用户, 类型) -> 整体基线
+    private final Map<BaselineKey, AmountBaseline> userBaselines = new HashMap<>();
+
+    /**
+     * 按时间顺序批量打分
+     * @param transactions 交易列表(任意顺序)
+     * @return 判定为异常的金额评分
+     */
+    public static List<AmountScore> detect(List<Transaction> transactions) {
+        List<Transaction> sorted = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (isScorable(transaction)) {
+                sorted.add(transaction);
+            }
+        }
+        sorted.sort(Comparator.comparing(Transaction::getTransactionDate));
+
+        AmountBaselines baselines = new AmountBaselines();
+        List<AmountScore> anomalies = new ArrayList<>();
+        for (Transaction transaction : sorted) {
+            AmountScore score = baselines.accept(transaction);
+            if (score != null && score.isAnomalous()) {
+                anomalies.add(score);
+            }
+        }
+        return anomalies;
+    }
+
+    /**
+     * 对交易打分后计入基线
+     * @param transaction 交易
+     * @return 打分结果，基线样本不足时返回null
+     */
+    public AmountScore accept(Transaction transaction) {
+        AmountScore score = score(transaction);
+        add(transaction);
+        return score;
+    }
+
+    /**
+     * 用当前基线对交易打分(不计入基线)
+     * @param transaction 交易
+     * @return 打分结果，基线样本不足时返回null
+     */
+    public AmountScore score(Transaction transaction) {
+        if (!isScorable(transaction)) {
+            return null;
+        }
+
+        double amount = transaction.getAmount().doubleValue();
+        AmountBaseline baseline = categoryBaselines.get(categoryKey(transaction));
+        if (baseline != null && baseline.getCount() >= MIN_SAMPLES) {
+            return new AmountScore(transaction, baseline, amount, true);
+        }
+
+        baseline = userBaselines.get(userKey(transaction));
+        if (baseline != null && baseline.getCount() >= MIN_SAMPLES) {
+            return new AmountScore(transaction, baseline, amount, false);
+        }
+        return null;
+    }
+
+    /**
+     * 将交易计入基线
+     */
+    public void add(Transaction transaction) {
+        if (!isScorable(transaction)) {
+            return;
+        }
+
+        double amount = transaction.getAmount().doubleValue();
+        categoryBaselines.computeIfAbsent(categoryKey(transaction), k -> new AmountBaseline()).add(amount);
+        userBaselines.computeIfAbsent(userKey(transaction), k -> new AmountBaseline()).add(amount);
+    }
+
+    /**
+     * 获取用户某类型交易的整体基线
+     * @return 基线，没有数据时返回null
+     */
+    public AmountBaseline getUserBaseline(Long userId, TransactionType type) {
+        return userBaselines.get(new BaselineKey(userId, null, type));
+    }
+
+    private static boolean isScorable(Transaction transaction) {
+        return transaction.getAmount() != null
+                && transaction.getType() != null
+                && transaction.getTransactionDate() != null;
+    }
+
+    private static BaselineKey categoryKey(Transaction transaction) {
+        Long categoryId = transaction.getCategory() != null ? transaction.getCategory().getId() : null;
+        return new BaselineKey(userIdOf(transaction), categoryId, transaction.getType());
+    }
+
+    private static BaselineKey userKey(Transaction transaction) {
+        return new BaselineKey(userIdOf(transaction), null, transaction.getType());
+    }
+
+    private static Long userIdOf(Transaction transaction) {
+        return transaction.getUser() != null ? transaction.getUser().getId() : null;
+    }
+
+    /**
+     * 基线分组键，类别为null时表示整体基线或未分类交易
+     */
+    private static class BaselineKey {
+        private final Long userId;
+        private final Long categoryId;
+        private final TransactionType type;
+
+        BaselineKey(Long userId, Long categoryId, TransactionType type) {
+            this.userId = userId;
+            this.categoryId = categoryId;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof BaselineKey)) return false;
+            BaselineKey other = (BaselineKey) o;
+            return type == other.type
+                    && Objects.equals(userId, other.userId)
+                    && Objects.equals(categoryId, other.categoryId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, categoryId, type);
+        }
+    }
+
+    /**
+     * 金额评分
+     * 百分位和中位数需要合并t-digest的缓冲区，只在Z分数达到阈值时计算，否则为NaN
+     */
+    public static class AmountScore {
+        private final Transaction transaction;
+        private final double zScore;
+        private final double percentile;
+        private final double mean;
+        private final double median;
+        private final long sampleCount;
+        private final boolean categoryBaseline;
+
+        AmountScore(Transaction transaction, AmountBaseline baseline, double amount, boolean categoryBaseline) {
+            this.transaction = transaction;
+            this.zScore = baseline.zScore(amount);
+            boolean candidate = zScore >= Z_SCORE_THRESHOLD;
+            this.percentile = candidate ? baseline.percentile(amount) : Double.NaN;
+            this.mean = baseline.getMean();
+            this.median = candidate ? baseline.getMedian() : Double.NaN;
+            this.sampleCount = baseline.getCount();
+            this.categoryBaseline = categoryBaseline;
+        }
+
+        public Transaction getTransaction() {
+            return transaction;
+        }
+
+        public double getZScore() {
+            return zScore;
+        }
+
+        /**
+         * 获取百分位，Z分数未达到阈值时为NaN
+         */
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * 获取中位数，Z分数未达到阈值时为NaN
+         */
+        public double getMedian() {
+            return median;
+        }
+
+        public long getSampleCount() {
+            return sampleCount;
+        }
+
+        /**
+         * 是否与同类别交易比较(否则为与该用户的整体交易比较)
+         */
+        public boolean isCategoryBaseline() {
+            return categoryBaseline;
+        }
+
+        /**
+         * 是否为异常金额：Z分数和百分位都超过阈值，且明显高于中位数
+         */
+        public boolean isAnomalous() {
+            return zScore >= Z_SCORE_THRESHOLD
+                    && percentile >= PERCENTILE_THRESHOLD
+                    && transaction.getAmount().doubleValue() >= median * MIN_MEDIAN_RATIO;
+        }
+
+        /**
+         * 生成可疑原因描述
+         */
+        public String getReason() {
+            return String.format("异常大额交易: ¥%.2f, 高于%s%.0f%%的交易 (中位数¥%.2f)",
+                    transaction.getAmount(),
+                    categoryBaseline ? "同类别" : "平时",
+                    percentile * 100,
+                    median);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.software.financeapp.service.analysis;
+
+import com.example.software.financeapp.model.entity.Category;
+import com.example.software.financeapp.model.enums.TransactionType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 增量预算建议引擎 - 为每个(用户, 分析月数)维护一个分析窗口
+ * 窗口记录各类别在最近几个月(不含当月)的支出合计、月均值、最近一个月和最早一个月的支出，
+ * 以及按增长率排序的类别集合。交易变化时汇总立方体通知单元格的变化量，
+ * 只更新受影响类别的状态并在排序集合中重新定位，生成建议时不需要重新汇总。
+ * 窗口在首次查询时从汇总立方体建立，跨月后重新建立
+ */
+public class BudgetRecommendationEngine implements TransactionRollup.ChangeListener {
+
+    // 返回的增长最快的类别数量
+    private static final int TOP_GROWTH_COUNT = 3;
+
+    private final TransactionRollup rollup;
+
+    // 用户ID -> 分析月数 -> 窗口
+    private final Map<Long, Map<Integer, Window>> windows = new HashMap<>();
+
+    /**
+     * @param rollup 交易汇总立方体，引擎注册为其监听器
+     */
+    public BudgetRecommendationEngine(TransactionRollup rollup) {
+        this.rollup = rollup;
+        rollup.addChangeListener(this);
+    }
+
+    /**
+     * 获取用户的预算建议
+     * @param userId 用户ID
+     * @param monthsToAnalyze 分析的历史月份数(不含当月)
+     * @return 预算建议与分析结果
+     */
+    public ExpenditureAnalysisService.BudgetRecommendation getRecommendation(Long userId, int monthsToAnalyze) {
+        YearMonth currentMonth = YearMonth.now();
+        // 先取汇总的读锁再取自身的锁，与写入时的加锁顺序一致
+        return rollup.read(() -> {
+            synchronized (this) {
+                Map<Integer, Window> userWindows = windows.computeIfAbsent(userId, k -> new HashMap<>());
+                Window window = userWindows.get(monthsToAnalyze);
+                if (window == null || !window.currentMonth.equals(currentMonth)) {
+                    window = buildWindow(userId, monthsToAnalyze, currentMonth);
+                    userWindows.put(monthsToAnalyze, window);
+                }
+                return window.toRecommendation();
+            }
+        });
+    }
+
+    @Override
+    public synchronized void onCellChanged(Long userId, YearMonth month, Category category, TransactionType type,
+                                           BigDecimal amountDelta, int countDelta) {
+        if (type != TransactionType.EXPENSE || category == null) {
+            return;
+        }
+        Map<Integer, Window> userWindows = windows.get(userId);
+        if (userWindows == null) {
+            return;
+        }
+        for (Window window : userWindows.values()) {
+            window.apply(month, category, amountDelta, countDelta);
+        }
+    }
+
+    /**
+     * 从汇总立方体建立窗口(调用方持有汇总的读锁)
+     */
+    private Window buildWindow(Long userId, int monthsToAnalyze, YearMonth currentMonth) {
+        Window window = new Window(monthsToAnalyze, currentMonth);
+        rollup.monthlyCategoryTotals(userId, TransactionType.EXPENSE, window.oldestMonth, window.recentMonth)
+                .forEach((month, categories) -> categories.forEach((category, value) ->
+                        window.apply(month, category, value.getSum(), value.getCount())));
+        return window;
+    }
+
+    /**
+     * 分析窗口 - 当月之前monthsToAnalyze个月
+     */
+    private static class Window {
+        private final int months;
+        private final YearMonth currentMonth;
+        private final YearMonth oldestMonth;
+        private final YearMonth recentMonth;
+
+        // 类别ID -> 类别状态，只包含窗口内有交易的类别
+        private final Map<Long, CategoryState> categories = new HashMap<>();
+
+        // 有增长率的类别，按增长率从高到低排列
+        private final TreeSet<CategoryState> growthRanking = new TreeSet<>(
+                Comparator.comparing((CategoryState state) -> state.growthRate).reversed()
+                        .thenComparing(state -> state.categoryId));
+
+        // 各类别月均值之和
+        private BigDecimal totalMonthlyAverage = BigDecimal.ZERO;
+
+        Window(int months, YearMonth currentMonth) {
+            this.months = months;
+            this.currentMonth = currentMonth;
+            this.oldestMonth = currentMonth.minusMonths(months);
+            this.recentMonth = currentMonth.minusMonths(1);
+        }
+
+        /**
+         * 应用一个类别在某个月的变化量，窗口外的月份忽略
+         */
+        void apply(YearMonth month, Category category, BigDecimal amountDelta, int countDelta) {
+            if (month.isBefore(oldestMonth) || month.isAfter(recentMonth)) {
+                return;
+            }
+
+            CategoryState state = categories.computeIfAbsent(category.getId(), id -> new CategoryState(id, category));
+            // 先移出排序集合和合计，更新后再放回
+            if (state.growthRate != null) {
+                growthRanking.remove(state);
+            }
+            totalMonthlyAverage = totalMonthlyAverage.subtract(state.average);
+
+            state.category = category;
+            state.total = state.total.add(amountDelta);
+            state.count += countDelta;
+            if (month.equals(recentMonth)) {
+                state.recent = state.recent.add(amountDelta);
+            }
+            if (month.equals(oldestMonth)) {
+                state.oldest = state.oldest.add(amountDelta);
+            }
+
+            if (state.count <= 0) {
+                categories.remove(state.categoryId);
+                if (categories.isEmpty()) {
+                    // 与从零开始累加的结果保持一致
+                    totalMonthlyAverage = BigDecimal.ZERO;
+                }
+                return;
+            }
+
+            state.average = state.total.divide(BigDecimal.valueOf(months), 2, RoundingMode.HALF_UP);
+            totalMonthlyAverage = totalMonthlyAverage.add(state.average);
+
+            // 简化的线性增长率计算 (最新月份/第一个月份 - 1)
+            state.growthRate = null;
+            if (months >= 2 && state.recent.compareTo(BigDecimal.ZERO) > 0 && state.oldest.compareTo(BigDecimal.ZERO) > 0) {
+                state.growthRate = state.recent.divide(state.oldest, 4, RoundingMode.HALF_UP).subtract(BigDecimal.ONE);
+                growthRanking.add(state);
+            }
+        }
+
+        ExpenditureAnalysisService.BudgetRecommendation toRecommendation() {
+            Map<Category, BigDecimal> averages = new HashMap<>();
+            Map<Category, BigDecimal> growthRates = new HashMap<>();
+            for (CategoryState state : categories.values()) {
+                averages.put(state.category, state.average);
+                if (state.growthRate != null) {
+                    growthRates.put(state.category, state.growthRate);
+                }
+            }
+
+            List<ExpenditureAnalysisService.CategoryGrowthInfo> topGrowth = new ArrayList<>(TOP_GROWTH_COUNT);
+            Iterator<CategoryState> ranked = growthRanking.iterator();
+            while (ranked.hasNext() && topGrowth.size() < TOP_GROWTH_COUNT) {
+                CategoryState state = ranked.next();
+                topGrowth.add(new ExpenditureAnalysisService.CategoryGrowthInfo(state.category, state.growthRate));
+            }
+
+            return new ExpenditureAnalysisService.BudgetRecommendation(
+                    totalMonthlyAverage,
+                    averages,
+                    topGrowth,
+                    ExpenditureAnalysisService.identifyPotentialSavings(averages, growthRates)
+            );
+        }
+    }
+
+    /**
+     * 类别在窗口内的状态
+     */
+    private static class CategoryState {
+        private final Long categoryId;
+        private Category category;
+        private BigDecimal total = BigDecimal.ZERO;
+        private BigDecimal recent = BigDecimal.ZERO;
+        private BigDecimal oldest = BigDecimal.ZERO;
+        private BigDecimal average = BigDecimal.ZERO;
+        private BigDecimal growthRate;
+        private int count;
+
+        CategoryState(Long categoryId, Category category) {
+            this.categoryId = categoryId;
+            this.category = category;
+        }
+    }
+}
@@ -3,19 +3,33 @@ package com.example.software.financeapp.service.analysis;
 import com.example.software.financeapp.model.entity.Transaction;
 import com.example.software.financeapp.model.entity.Category;
 import com.example.software.financeapp.model.enums.TransactionType;
+import com.example.software.financeapp.util.FenAccumulator;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
  * 支出分析服务 - 提供支出趋势分析和预算建议
+ * 按用户查询的方法直接读取交易汇总立方体，不需要加载交易记录
  */
 public class ExpenditureAnalysisService {
 
+    private final TransactionRollup rollup;
+
+    public ExpenditureAnalysisService() {
+        this(null);
+    }
+
+    /**
+     * @param rollup 交易汇总立方体，为null时只能使用基于交易列表的方法
+     */
+    public ExpenditureAnalysisService(TransactionRollup rollup) {
+        this.rollup = rollup;
+    }
+
     /**
      * 计算按月分组的支出趋势
      * @param transactions 交易记录列表
@@ -23,28 +37,42 @@ public class ExpenditureAnalysisService {
      * @return 按月分组的支出趋势数据
      */
     public Map<YearMonth, BigDecimal> calculateMonthlyTrend(List<Transaction> transactions, int monthsCount) {
+        return calculateMonthlyTrend(TransactionColumns.of(transactions), monthsCount);
+    }
+
+    /**
+     * 从列式快照计算按月分组的支出趋势
+     * @param columns 交易列式快照
+     * @param monthsCount 要分析的月份数量(含当月)
+     * @return 按月分组的支出趋势数据
+     */
+    public Map<YearMonth, BigDecimal> calculateMonthlyTrend(TransactionColumns columns, int monthsCount) {
         // 确定分析的开始月份
         YearMonth currentMonth = YearMonth.now();
         YearMonth startMonth = currentMonth.minusMonths(monthsCount - 1);
 
-        // 初始化结果映射，确保每个月都有记录
+        // 按月份分组计算支出总额，每个月都有记录
+        FenAccumulator totals = columns.sumByMonth(TransactionType.EXPENSE, startMonth, currentMonth);
         Map<YearMonth, BigDecimal> monthlyTotals = new LinkedHashMap<>();
         for (int i = 0; i < monthsCount; i++) {
-            monthlyTotals.put(startMonth.plusMonths(i), BigDecimal.ZERO);
+            monthlyTotals.put(startMonth.plusMonths(i), totals.get(i));
         }
+        return monthlyTotals;
+    }
 
-        // 过滤出支出交易并按月份分组计算总额
-        transactions.stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .filter(t -> {
-                    YearMonth transactionMonth = YearMonth.from(t.getTransactionDate());
-                    return !transactionMonth.isBefore(startMonth) && !transactionMonth.isAfter(currentMonth);
-                })
-                .forEach(t -> {
-                    YearMonth month = YearMonth.from(t.getTransactionDate());
-                    monthlyTotals.put(month, monthlyTotals.getOrDefault(month, BigDecimal.ZERO).add(t.getAmount()));
-                });
+    /**
+     * 从汇总立方体计算用户按月分组的支出趋势
+     * @param userId 用户ID
+     * @param monthsCount 要分析的月份数量(含当月)
+     * @return 按月分组的支出趋势数据
+     */
+    public Map<YearMonth, BigDecimal> calculateMonthlyTrend(Long userId, int monthsCount) {
+        YearMonth currentMonth = YearMonth.now();
+        YearMonth startMonth = currentMonth.minusMonths(monthsCount - 1);
 
+        Map<YearMonth, BigDecimal> monthlyTotals = emptyMonths(startMonth, monthsCount);
+        requireRollup().monthlyTotals(userId, TransactionType.EXPENSE, startMonth, currentMonth)
+                .forEach((month, value) -> monthlyTotals.put(month, value.getSum()));
         return monthlyTotals;
     }
 
@@ -58,22 +86,40 @@ public class ExpenditureAnalysisService {
     public Map<Category, BigDecimal> calculateCategoryDistribution(List<Transaction> transactions,
                                                                    LocalDate startDate,
                                                                    LocalDate endDate) {
-        Map<Category, BigDecimal> categoryTotals = new HashMap<>();
+        return calculateCategoryDistribution(TransactionColumns.of(transactions), startDate, endDate);
+    }
 
-        transactions.stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .filter(t -> {
-                    LocalDate transactionDate = t.getTransactionDate().toLocalDate();
-                    return !transactionDate.isBefore(startDate) && !transactionDate.isAfter(endDate);
-                })
-                .forEach(t -> {
-                    Category category = t.getCategory();
-                    if (category != null) {
-                        categoryTotals.put(category,
-                                categoryTotals.getOrDefault(category, BigDecimal.ZERO).add(t.getAmount()));
-                    }
-                });
+    /**
+     * 从列式快照计算按类别分组的支出分布
+     * @param columns 交易列式快照
+     * @param startDate 分析的开始日期
+     * @param endDate 分析的结束日期
+     * @return 按类别分组的支出分布数据
+     */
+    public Map<Category, BigDecimal> calculateCategoryDistribution(TransactionColumns columns,
+                                                                   LocalDate startDate,
+                                                                   LocalDate endDate) {
+        FenAccumulator totals = columns.sumByCategory(TransactionType.EXPENSE, startDate, endDate);
+        Map<Category, BigDecimal> categoryTotals = new HashMap<>();
+        for (int i = 0; i < columns.getCategoryCount(); i++) {
+            if (totals.getCount(i) > 0) {
+                categoryTotals.put(columns.getCategory(i), totals.get(i));
+            }
+        }
+        return categoryTotals;
+    }
 
+    /**
+     * 从汇总立方体计算用户按类别分组的支出分布
+     * @param userId 用户ID
+     * @param startMonth 开始月份(含)
+     * @param endMonth 结束月份(含)
+     * @return 按类别分组的支出分布数据
+     */
+    public Map<Category, BigDecimal> calculateCategoryDistribution(Long userId, YearMonth startMonth, YearMonth endMonth) {
+        Map<Category, BigDecimal> categoryTotals = new HashMap<>();
+        requireRollup().categoryTotals(userId, TransactionType.EXPENSE, startMonth, endMonth)
+                .forEach((category, value) -> categoryTotals.put(category, value.getSum()));
         return categoryTotals;
     }
 
@@ -84,31 +130,69 @@ public class ExpenditureAnalysisService {
      * @return 预算建议与分析结果
      */
     public BudgetRecommendation generateBudgetRecommendation(List<Transaction> transactions, int monthsToAnalyze) {
-        // 分析最近几个月的平均支出
+        return generateBudgetRecommendation(TransactionColumns.of(transactions), monthsToAnalyze);
+    }
+
+    /**
+     * 从列式快照生成预算建议
+     * @param columns 交易列式快照
+     * @param monthsToAnalyze 分析的历史月份数(不含当月)
+     * @return 预算建议与分析结果
+     */
+    public BudgetRecommendation generateBudgetRecommendation(TransactionColumns columns, int monthsToAnalyze) {
+        // 分析最近几个月(不含当月)的支出
         YearMonth currentMonth = YearMonth.now();
         YearMonth startMonth = currentMonth.minusMonths(monthsToAnalyze);
 
-        // 过滤相关时间范围内的支出交易
-        List<Transaction> relevantTransactions = transactions.stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .filter(t -> {
-                    YearMonth transactionMonth = YearMonth.from(t.getTransactionDate());
-                    return !transactionMonth.isBefore(startMonth) && transactionMonth.isBefore(currentMonth);
-                })
-                .collect(Collectors.toList());
+        // 按月和类别分组计算，分组序号为 类别序号 * 月数 + 月份序号
+        FenAccumulator totals = columns.sumByMonthAndCategory(TransactionType.EXPENSE, startMonth, currentMonth.minusMonths(1));
+        Map<YearMonth, Map<Category, BigDecimal>> monthlyExpensesByCategory = emptyMonthMaps(currentMonth, monthsToAnalyze);
+        for (int category = 0; category < columns.getCategoryCount(); category++) {
+            for (int i = 0; i < monthsToAnalyze; i++) {
+                int bucket = category * monthsToAnalyze + i;
+                if (totals.getCount(bucket) > 0) {
+                    monthlyExpensesByCategory.get(startMonth.plusMonths(i)).put(columns.getCategory(category), totals.get(bucket));
+                }
+            }
+        }
+
+        return buildRecommendation(monthlyExpensesByCategory, currentMonth, monthsToAnalyze);
+    }
+
+    /**
+     * 从汇总立方体生成用户的预算建议
+     * @param userId 用户ID
+     * @param monthsToAnalyze 分析的历史月份数(不含当月)
+     * @return 预算建议与分析结果
+     */
+    public BudgetRecommendation generateBudgetRecommendation(Long userId, int monthsToAnalyze) {
+        YearMonth currentMonth = YearMonth.now();
+        Map<YearMonth, Map<Category, BigDecimal>> monthlyExpensesByCategory = emptyMonthMaps(currentMonth, monthsToAnalyze);
+
+        requireRollup().monthlyCategoryTotals(userId, TransactionType.EXPENSE,
+                        currentMonth.minusMonths(monthsToAnalyze), currentMonth.minusMonths(1))
+                .forEach((month, categories) -> categories.forEach((category, value) ->
+                        monthlyExpensesByCategory.get(month).put(category, value.getSum())));
 
+        return buildRecommendation(monthlyExpensesByCategory, currentMonth, monthsToAnalyze);
+    }
+
+    /**
+     * 根据各月各类别的支出生成预算建议
+     * @param monthlyExpensesByCategory 当月之前monthsToAnalyze个月的支出
+     */
+    private BudgetRecommendation buildRecommendation(Map<YearMonth, Map<Category, BigDecimal>> monthlyExpensesByCategory,
+                                                     YearMonth currentMonth,
+                                                     int monthsToAnalyze) {
         // 计算各类别的平均月支出
-        Map<Category, List<Transaction>> transactionsByCategory = relevantTransactions.stream()
-                .filter(t -> t.getCategory() != null)
-                .collect(Collectors.groupingBy(Transaction::getCategory));
+        Map<Category, BigDecimal> totalsByCategory = new HashMap<>();
+        for (Map<Category, BigDecimal> categoryMap : monthlyExpensesByCategory.values()) {
+            categoryMap.forEach((category, amount) -> totalsByCategory.merge(category, amount, BigDecimal::add));
+        }
 
         Map<Category, BigDecimal> averageMonthlyByCategory = new HashMap<>();
-        for (Map.Entry<Category, List<Transaction>> entry : transactionsByCategory.entrySet()) {
-            BigDecimal total = entry.getValue().stream()
-                    .map(Transaction::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            BigDecimal average = total.divide(BigDecimal.valueOf(monthsToAnalyze), 2, BigDecimal.ROUND_HALF_UP);
+        for (Map.Entry<Category, BigDecimal> entry : totalsByCategory.entrySet()) {
+            BigDecimal average = entry.getValue().divide(BigDecimal.valueOf(monthsToAnalyze), 2, BigDecimal.ROUND_HALF_UP);
             averageMonthlyByCategory.put(entry.getKey(), average);
         }
 
@@ -117,7 +201,8 @@ public class ExpenditureAnalysisService {
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
         // 识别增长最快的类别
-        Map<Category, BigDecimal> growthRates = calculateCategoryGrowthRates(relevantTransactions, monthsToAnalyze);
+        Map<Category, BigDecimal> growthRates =
+                calculateCategoryGrowthRates(monthlyExpensesByCategory, currentMonth, monthsToAnalyze);
 
         // 创建预算建议
         return new BudgetRecommendation(
@@ -131,57 +216,61 @@ public class ExpenditureAnalysisService {
     /**
      * 计算各类别的支出增长率
      */
-    private Map<Category, BigDecimal> calculateCategoryGrowthRates(List<Transaction> transactions, int monthsToAnalyze) {
-        // 按月和类别分组计算支出
-        Map<YearMonth, Map<Category, BigDecimal>> monthlyExpensesByCategory = new HashMap<>();
-
-        for (int i = 0; i < monthsToAnalyze; i++) {
-            YearMonth month = YearMonth.now().minusMonths(i + 1);
-            monthlyExpensesByCategory.put(month, new HashMap<>());
-        }
-
-        transactions.forEach(t -> {
-            YearMonth month = YearMonth.from(t.getTransactionDate());
-            if (monthlyExpensesByCategory.containsKey(month)) {
-                Category category = t.getCategory();
-                if (category != null) {
-                    Map<Category, BigDecimal> categoryMap = monthlyExpensesByCategory.get(month);
-                    categoryMap.put(category, categoryMap.getOrDefault(category, BigDecimal.ZERO).add(t.getAmount()));
-                }
-            }
-        });
-
-        // 计算增长率
+    private Map<Category, BigDecimal> calculateCategoryGrowthRates(
+            Map<YearMonth, Map<Category, BigDecimal>> monthlyExpensesByCategory,
+            YearMonth currentMonth,
+            int monthsToAnalyze) {
         Map<Category, BigDecimal> growthRates = new HashMap<>();
+        if (monthsToAnalyze < 2) {
+            return growthRates;
+        }
 
-        // 获取所有类别
-        Set<Category> allCategories = new HashSet<>();
-        monthlyExpensesByCategory.values().forEach(map -> allCategories.addAll(map.keySet()));
-
-        // 计算每个类别的增长趋势
-        for (Category category : allCategories) {
-            List<BigDecimal> monthlyAmounts = new ArrayList<>();
-
-            for (int i = 0; i < monthsToAnalyze; i++) {
-                YearMonth month = YearMonth.now().minusMonths(i + 1);
-                Map<Category, BigDecimal> monthData = monthlyExpensesByCategory.get(month);
-                monthlyAmounts.add(monthData.getOrDefault(category, BigDecimal.ZERO));
-            }
+        // 简化的线性增长率计算 (最新月份/第一个月份 - 1)
+        Map<Category, BigDecimal> recentMonth = monthlyExpensesByCategory.get(currentMonth.minusMonths(1));
+        Map<Category, BigDecimal> oldestMonth = monthlyExpensesByCategory.get(currentMonth.minusMonths(monthsToAnalyze));
 
-            // 简化的线性增长率计算 (最新月份/第一个月份 - 1)
-            if (monthlyAmounts.size() >= 2 && monthlyAmounts.get(0).compareTo(BigDecimal.ZERO) > 0
-                    && monthlyAmounts.get(monthlyAmounts.size() - 1).compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal recent = monthlyAmounts.get(0);
-                BigDecimal oldest = monthlyAmounts.get(monthlyAmounts.size() - 1);
+        for (Map.Entry<Category, BigDecimal> entry : recentMonth.entrySet()) {
+            BigDecimal recent = entry.getValue();
+            BigDecimal oldest = oldestMonth.getOrDefault(entry.getKey(), BigDecimal.ZERO);
+            if (recent.compareTo(BigDecimal.ZERO) > 0 && oldest.compareTo(BigDecimal.ZERO) > 0) {
                 BigDecimal growthRate = recent.divide(oldest, 4, BigDecimal.ROUND_HALF_UP)
                         .subtract(BigDecimal.ONE);
-                growthRates.put(category, growthRate);
+                growthRates.put(entry.getKey(), growthRate);
             }
         }
 
         return growthRates;
     }
 
+    /**
+     * 创建从开始月份起连续monthsCount个月、金额为0的结果映射
+     */
+    private static Map<YearMonth, BigDecimal> emptyMonths(YearMonth startMonth, int monthsCount) {
+        Map<YearMonth, BigDecimal> monthlyTotals = new LinkedHashMap<>();
+        for (int i = 0; i < monthsCount; i++) {
+            monthlyTotals.put(startMonth.plusMonths(i), BigDecimal.ZERO);
+        }
+        return monthlyTotals;
+    }
+
+    /**
+     * 创建当月之前monthsCount个月的空分组
+     */
+    private static Map<YearMonth, Map<Category, BigDecimal>> emptyMonthMaps(YearMonth currentMonth, int monthsCount) {
+        Map<YearMonth, Map<Category, BigDecimal>> monthly = new HashMap<>();
+        for (int i = 0; i < monthsCount; i++) {
+            monthly.put(currentMonth.minusMonths(i + 1), new HashMap<>());
+        }
+        return monthly;
+    }
+
+    private TransactionRollup requireRollup() {
+        if (rollup == null) {
+            throw new IllegalStateException("未配置交易汇总立方体");
+        }
+        return rollup;
+    }
+
     /**
      * 找出增长最快的前N个类别
      */
@@ -196,7 +285,7 @@ public class ExpenditureAnalysisService {
     /**
      * 识别潜在的节省机会
      */
-    private List<SavingSuggestion> identifyPotentialSavings(
+    static List<SavingSuggestion> identifyPotentialSavings(
             Map<Category, BigDecimal> averageMonthlyByCategory,
             Map<Category, BigDecimal> growthRates) {
 
@@ -0,0 +1,381 @@
+package com.example.software.financeapp.service.analysis;
+
+import com.example.software.financeapp.model.entity.Category;
+import com.example.software.financeapp.model.entity.Transaction;
+import com.example.software.financeapp.model.enums.TransactionType;
+import com.example.software.financeapp.util.FenAccumulator;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 交易列式快照 - 把一组交易按时间升序拆成并行的基本类型数组，供分析查询扫描
+ * 日期范围用二分查找定位，分组统计只读取需要的列并按分累加，不访问交易对象。
+ * 快照创建后不可变，可以被多个线程同时读取，交易变化后需要重新创建；
+ * 行数较多时分组统计在ForkJoin公共线程池中并行执行
+ */
+public class TransactionColumns {
+
+    // 1970-01-01是星期四，加3后按7取模得到周一为0的星期序号
+    private static final int EPOCH_DAY_OF_WEEK_OFFSET = 3;
+
+    // 扫描行数达到该值时并行汇总，以及每个并行任务扫描的行数
+    private static final int PARALLEL_THRESHOLD = 16_384;
+    private static final int PARALLEL_CHUNK_SIZE = 4_096;
+
+    private final int size;
+
+    // 距1970-01-01的天数(升序)和当天的秒数
+    private final int[] epochDays;
+    private final int[] secondsOfDay;
+
+    // 年 * 12 + 月 - 1
+    private final int[] epochMonths;
+
+    // 类别序号，未分类为-1；序号 -> 类别
+    private final short[] categoryIndexes;
+    private final Category[] categories;
+
+    // 按交易类型(ordinal)划分的行集合
+    private final BitSet[] typeRows;
+
+    // 金额(分)和原小数位数；无法用分表示的金额为NOT_FEN，原值在exactAmounts中
+    private final long[] amountFen;
+    private final byte[] amountScales;
+    private final Map<Integer, BigDecimal> exactAmounts;
+
+    private TransactionColumns(int size, Category[] categories) {
+        this.size = size;
+        this.epochDays = new int[size];
+        this.secondsOfDay = new int[size];
+        this.epochMonths = new int[size];
+        this.categoryIndexes = new short[size];
+        this.amountFen = new long[size];
+        this.amountScales = new byte[size];
+        this.exactAmounts = new HashMap<>();
+        this.typeRows = new BitSet[TransactionType.values().length];
+        for (int i = 0; i < typeRows.length; i++) {
+            typeRows[i] = new BitSet(size);
+        }
+        this.categories = categories;
+    }
+
+    /**
+     * 从交易列表创建快照，缺少日期、金额或类型的交易不计入
+     */
+    public static TransactionColumns of(Collection<Transaction> transactions) {
+        List<Transaction> sorted = new ArrayList<>(transactions.size());
+        for (Transaction t : transactions) {
+            if (t.getTransactionDate() != null && t.getAmount() != null && t.getType() != null) {
+                sorted.add(t);
+            }
+        }
+        sorted.sort(Comparator.comparing(Transaction::getTransactionDate));
+
+        // 按首次出现的顺序为类别编号
+        Map<Category, Integer> categoryIndexes = new HashMap<>();
+        List<Category> categories = new ArrayList<>();
+        for (Transaction t : sorted) {
+            Category category = t.getCategory();
+            if (category != null && !categoryIndexes.containsKey(category)) {
+                if (categories.size() > Short.MAX_VALUE) {
+                    throw new IllegalStateException("类别数量超出列式快照的上限");
+                }
+                categoryIndexes.put(category, categories.size());
+                categories.add(category);
+            }
+        }
+
+        TransactionColumns columns = new TransactionColumns(sorted.size(), categories.toArray(new Category[0]));
+        for (int row = 0; row < sorted.size(); row++) {
+            Transaction t = sorted.get(row);
+            LocalDateTime dateTime = t.getTransactionDate();
+            columns.epochDays[row] = (int) dateTime.toLocalDate().toEpochDay();
+            columns.secondsOfDay[row] = dateTime.toLocalTime().toSecondOfDay();
+            columns.epochMonths[row] = dateTime.getYear() * 12 + dateTime.getMonthValue() - 1;
+            columns.categoryIndexes[row] = t.getCategory() != null
+                    ? categoryIndexes.get(t.getCategory()).shortValue()
+                    : -1;
+
+            columns.typeRows[t.getType().ordinal()].set(row);
+
+            long fen = FenAccumulator.toFen(t.getAmount());
+            columns.amountFen[row] = fen;
+            if (fen == FenAccumulator.NOT_FEN) {
+                columns.exactAmounts.put(row, t.getAmount());
+            } else {
+                columns.amountScales[row] = (byte) t.getAmount().scale();
+            }
+        }
+
+        return columns;
+    }
+
+    /**
+     * 行数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 类别数量，类别序号为 0 到 getCategoryCount() - 1
+     */
+    public int getCategoryCount() {
+        return categories.length;
+    }
+
+    /**
+     * 获取类别序号对应的类别
+     */
+    public Category getCategory(int categoryIndex) {
+        return categories[categoryIndex];
+    }
+
+    /**
+     * 指定日期范围内指定类型交易的笔数
+     */
+    public int count(TransactionType type, LocalDate from, LocalDate to) {
+        BitSet rows = typeRows[type.ordinal()];
+        int end = upperBound(to);
+        int count = 0;
+        for (int row = rows.nextSetBit(lowerBound(from)); row >= 0 && row < end; row = rows.nextSetBit(row + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 指定日期范围内指定类型交易的最大单笔金额，没有交易时为0
+     */
+    public BigDecimal max(TransactionType type, LocalDate from, LocalDate to) {
+        BitSet rows = typeRows[type.ordinal()];
+        int end = upperBound(to);
+        // 分表示的金额直接比较long，只在最后转换一次
+        long maxFen = 0;
+        int maxFenRow = -1;
+        BigDecimal maxExact = BigDecimal.ZERO;
+        for (int row = rows.nextSetBit(lowerBound(from)); row >= 0 && row < end; row = rows.nextSetBit(row + 1)) {
+            long fen = amountFen[row];
+            if (fen == FenAccumulator.NOT_FEN) {
+                BigDecimal amount = exactAmounts.get(row);
+                if (amount.compareTo(maxExact) > 0) {
+                    maxExact = amount;
+                }
+            } else if (fen > maxFen) {
+                maxFen = fen;
+                maxFenRow = row;
+            }
+        }
+
+        BigDecimal max = maxFenRow >= 0 ? FenAccumulator.toBigDecimal(maxFen, amountScales[maxFenRow]) : BigDecimal.ZERO;
+        return maxExact.compareTo(max) > 0 ? maxExact : max;
+    }
+
+    /**
+     * 指定日期范围内指定类型交易的合计
+     */
+    public BigDecimal sum(TransactionType type, LocalDate from, LocalDate to) {
+        return aggregate(type, lowerBound(from), upperBound(to), 1, (totals, rows, start, end) -> {
+            for (int row = rows.nextSetBit(start); row >= 0 && row < end; row = rows.nextSetBit(row + 1)) {
+                addAmount(totals, 0, row);
+            }
+        }).get(0);
+    }
+
+    /**
+     * 按日汇总，分组序号为距开始日期的天数
+     */
+    public FenAccumulator sumByDay(TransactionType type, LocalDate from, LocalDate to) {
+        int fromDay = (int) from.toEpochDay();
+        int days = (int) (to.toEpochDay() - fromDay) + 1;
+        return aggregate(type, lowerBound(from), upperBound(to), days, (totals, rows, start, end) -> {
+            for (int row = rows.nextSetBit(start); row >= 0 && row < end; row = rows.nextSetBit(row + 1)) {
+                addAmount(totals, epochDays[row] - fromDay, row);
+            }
+        });
+    }
+
+    /**
+     * 按周汇总，分组序号为距开始日期所在周(周一开始)的周数
+     */
+    public FenAccumulator sumByWeek(TransactionType type, LocalDate from, LocalDate to) {
+        int startWeekDay = (int) from.with(DayOfWeek.MONDAY).toEpochDay();
+        int weeks = (int) (to.toEpochDay() - startWeekDay) / 7 + 1;
+        return aggregate(type, lowerBound(from), upperBound(to), weeks, (totals, rows, start, end) -> {
+            for (int row = rows.nextSetBit(start); row >= 0 && row < end; row = rows.nextSetBit(row + 1)) {
+                addAmount(totals, (epochDays[row] - startWeekDay) / 7, row);
+            }
+        });
+    }
+
+    /**
+     * 按月汇总，分组序号为距开始月份的月数
+     */
+    public FenAccumulator sumByMonth(TransactionType type, YearMonth from, YearMonth to) {
+        int fromMonth = epochMonth(from);
+        int months = epochMonth(to) - fromMonth + 1;
+        return aggregate(type, lowerBound(from.atDay(1)), upperBound(to.atEndOfMonth()), months, (totals, rows, start, end) -> {
+            for (int row = rows.nextSetBit(start); row >= 0 && row < end; row = rows.nextSetBit(row + 1)) {
+                addAmount(totals, epochMonths[row] - fromMonth, row);
+            }
+        });
+    }
+
+    /**
+     * 按类别汇总(不含未分类交易)，分组序号为类别序号
+     */
+    public FenAccumulator sumByCategory(TransactionType type, LocalDate from, LocalDate to) {
+        return aggregate(type, lowerBound(from), upperBound(to), categories.length, (totals, rows, start, end) -> {
+            for (int row = rows.nextSetBit(start); row >= 0 && row < end; row = rows.nextSetBit(row + 1)) {
+                int category = categoryIndexes[row];
+                if (category >= 0) {
+                    addAmount(totals, category, row);
+                }
+            }
+        });
+    }
+
+    /**
+     * 按月和类别汇总(不含未分类交易)，分组序号为 类别序号 * 月数 + 距开始月份的月数
+     */
+    public FenAccumulator sumByMonthAndCategory(TransactionType type, YearMonth from, YearMonth to) {
+        int fromMonth = epochMonth(from);
+        int months = epochMonth(to) - fromMonth + 1;
+        int buckets = categories.length * Math.max(0, months);
+        return aggregate(type, lowerBound(from.atDay(1)), upperBound(to.atEndOfMonth()), buckets, (totals, rows, start, end) -> {
+            for (int row = rows.nextSetBit(start); row >= 0 && row < end; row = rows.nextSetBit(row + 1)) {
+                int category = categoryIndexes[row];
+                if (category >= 0) {
+                    addAmount(totals, category * months + epochMonths[row] - fromMonth, row);
+                }
+            }
+        });
+    }
+
+    /**
+     * 按星期和小时汇总，分组序号为 星期序号(周一为0) * 24 + 小时
+     */
+    public FenAccumulator sumByDayOfWeekAndHour(TransactionType type, LocalDate from, LocalDate to) {
+        return aggregate(type, lowerBound(from), upperBound(to), 7 * 24, (totals, rows, start, end) -> {
+            for (int row = rows.nextSetBit(start); row >= 0 && row < end; row = rows.nextSetBit(row + 1)) {
+                int dayOfWeek = Math.floorMod(epochDays[row] + EPOCH_DAY_OF_WEEK_OFFSET, 7);
+                addAmount(totals, dayOfWeek * 24 + secondsOfDay[row] / 3600, row);
+            }
+        });
+    }
+
+    /**
+     * 扫描[start, end)范围内指定类型的行
+     * 行数达到并行阈值时拆分成若干段在ForkJoin公共线程池中扫描，每段使用各自的累加器，
+     * 再按段的顺序两两合并；金额累加是精确的，结果与顺序扫描完全相同
+     */
+    private FenAccumulator aggregate(TransactionType type, int start, int end, int buckets, RangeScan scan) {
+        BitSet rows = typeRows[type.ordinal()];
+        if (end - start < PARALLEL_THRESHOLD) {
+            FenAccumulator totals = new FenAccumulator(buckets);
+            if (start < end) {
+                scan.scan(totals, rows, start, end);
+            }
+            return totals;
+        }
+        return ForkJoinPool.commonPool().invoke(new ScanTask(rows, start, end, buckets, scan));
+    }
+
+    /**
+     * 第一条日期不早于date的行
+     */
+    private int lowerBound(LocalDate date) {
+        long day = date.toEpochDay();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 第一条日期晚于date的行
+     */
+    private int upperBound(LocalDate date) {
+        return lowerBound(date.plusDays(1));
+    }
+
+    private void addAmount(FenAccumulator totals, int bucket, int row) {
+        long fen = amountFen[row];
+        if (fen == FenAccumulator.NOT_FEN) {
+            totals.add(bucket, exactAmounts.get(row));
+        } else {
+            totals.add(bucket, fen, amountScales[row]);
+        }
+    }
+
+    private static int epochMonth(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    /**
+     * 把一段行累加到累加器中
+     */
+    @FunctionalInterface
+    private interface RangeScan {
+        void scan(FenAccumulator totals, BitSet rows, int start, int end);
+    }
+
+    /**
+     * 并行扫描任务 - 对半拆分直到每段不超过PARALLEL_CHUNK_SIZE行
+     * 任务只在ForkJoin线程池中执行，不会被序列化
+     */
+    @SuppressWarnings("serial")
+    private static class ScanTask extends RecursiveTask<FenAccumulator> {
+        private final BitSet rows;
+        private final int start;
+        private final int end;
+        private final int buckets;
+        private final RangeScan scan;
+
+        ScanTask(BitSet rows, int start, int end, int buckets, RangeScan scan) {
+            this.rows = rows;
+            this.start = start;
+            this.end = end;
+            this.buckets = buckets;
+            this.scan = scan;
+        }
+
+        @Override
+        protected FenAccumulator compute() {
+            if (end - start <= PARALLEL_CHUNK_SIZE) {
+                FenAccumulator totals = new FenAccumulator(buckets);
+                scan.scan(totals, rows, start, end);
+                return totals;
+            }
+
+            int mid = (start + end) >>> 1;
+            ScanTask left = new ScanTask(rows, start, mid, buckets, scan);
+            ScanTask right = new ScanTask(rows, mid, end, buckets, scan);
+            left.fork();
+            FenAccumulator rightTotals = right.compute();
+            FenAccumulator totals = left.join();
+            totals.addAll(rightTotals);
+            return totals;
+        }
+    }
+}
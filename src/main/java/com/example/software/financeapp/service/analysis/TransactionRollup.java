@@ -0,0 +1,405 @@
+package com.example.software.financeapp.service.analysis;
+
+import com.example.software.financeapp.model.entity.Category;
+import com.example.software.financeapp.model.entity.Transaction;
+import com.example.software.financeapp.model.enums.TransactionType;
+import com.example.software.financeapp.service.store.EntityTable;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * 交易汇总立方体 - 按(用户, 月份, 类别, 类型)预聚合的金额合计、笔数和最大值
+ * 作为交易表的监听器随写入、更新、删除增量维护，每次变更为O(log 月份数 + log 单元格内不同金额数)
+ * (单元格按金额计数，删除最大的一笔交易后直接取下一个金额作为最大值)；
+ * 分析查询只遍历所选月份的汇总单元格，与交易笔数无关。
+ * 单元格变化时通知 {@link ChangeListener}，供需要增量维护的分析结果使用
+ */
+public class TransactionRollup implements EntityTable.Listener<Transaction> {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 用户ID -> 月份 -> (类别, 类型) -> 汇总单元格
+    private final Map<Long, TreeMap<YearMonth, Map<CellKey, Cell>>> cube = new HashMap<>();
+
+    // 交易ID -> 该交易计入的单元格和金额；交易对象可能已被外部修改，移除时按此扣除
+    private final Map<Long, Contribution> contributions = new HashMap<>();
+
+    // 类别ID -> 类别(最近一次写入的交易引用的对象)
+    private final Map<Long, Category> categories = new HashMap<>();
+
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 注册单元格变化监听器
+     */
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void onPut(Transaction transaction) {
+        if (transaction.getId() == null || transaction.getUser() == null || transaction.getUser().getId() == null
+                || transaction.getTransactionDate() == null || transaction.getAmount() == null
+                || transaction.getType() == null) {
+            return;
+        }
+
+        Category category = transaction.getCategory();
+        Long categoryId = category != null ? category.getId() : null;
+        Contribution contribution = new Contribution(
+                transaction.getUser().getId(),
+                YearMonth.from(transaction.getTransactionDate()),
+                new CellKey(categoryId, transaction.getType()),
+                transaction.getAmount());
+
+        lock.writeLock().lock();
+        try {
+            // 交易表更新实体时已先回调onRemove，这里只在直接写入时扣除旧值
+            Contribution previous = contributions.remove(transaction.getId());
+            if (previous != null) {
+                subtract(previous);
+            }
+            contributions.put(transaction.getId(), contribution);
+            if (category != null) {
+                categories.put(categoryId, category);
+            }
+
+            cube.computeIfAbsent(contribution.userId, k -> new TreeMap<>())
+                    .computeIfAbsent(contribution.month, k -> new HashMap<>())
+                    .computeIfAbsent(contribution.key, k -> new Cell())
+                    .add(contribution.amount);
+            fireChange(contribution, contribution.amount, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onRemove(Long id) {
+        lock.writeLock().lock();
+        try {
+            Contribution previous = contributions.remove(id);
+            if (previous != null) {
+                subtract(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 在读锁内执行查询，期间汇总不会变化
+     * 监听器在写锁内被调用，需要同时访问汇总和自身状态的组件通过本方法保持 汇总锁 -> 自身锁 的加锁顺序
+     */
+    <T> T read(Supplier<T> query) {
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按月汇总
+     * @param userId 用户ID
+     * @param type 交易类型
+     * @param from 开始月份(含)
+     * @param to 结束月份(含)
+     * @return 月份 -> 汇总值，按月份升序，没有交易的月份不出现
+     */
+    public Map<YearMonth, RollupValue> monthlyTotals(Long userId, TransactionType type, YearMonth from, YearMonth to) {
+        lock.readLock().lock();
+        try {
+            Map<YearMonth, RollupValue> result = new LinkedHashMap<>();
+            for (Map.Entry<YearMonth, Map<CellKey, Cell>> month : months(userId, from, to).entrySet()) {
+                Accumulator accumulator = new Accumulator();
+                for (Map.Entry<CellKey, Cell> cell : month.getValue().entrySet()) {
+                    if (cell.getKey().type == type) {
+                        accumulator.add(cell.getValue());
+                    }
+                }
+                if (accumulator.count > 0) {
+                    result.put(month.getKey(), accumulator.toValue());
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按类别汇总(不含未分类交易)
+     * @param userId 用户ID
+     * @param type 交易类型
+     * @param from 开始月份(含)
+     * @param to 结束月份(含)
+     * @return 类别 -> 汇总值
+     */
+    public Map<Category, RollupValue> categoryTotals(Long userId, TransactionType type, YearMonth from, YearMonth to) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Accumulator> byCategory = new HashMap<>();
+            for (Map.Entry<YearMonth, Map<CellKey, Cell>> month : months(userId, from, to).entrySet()) {
+                for (Map.Entry<CellKey, Cell> cell : month.getValue().entrySet()) {
+                    CellKey key = cell.getKey();
+                    if (key.type == type && key.categoryId != null) {
+                        byCategory.computeIfAbsent(key.categoryId, k -> new Accumulator())
+                                .add(cell.getValue());
+                    }
+                }
+            }
+            return toCategoryMap(byCategory);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按月和类别汇总(不含未分类交易)
+     * @return 月份 -> 类别 -> 汇总值，所选范围内的每个月份都有记录
+     */
+    public Map<YearMonth, Map<Category, RollupValue>> monthlyCategoryTotals(Long userId, TransactionType type,
+                                                                           YearMonth from, YearMonth to) {
+        lock.readLock().lock();
+        try {
+            Map<YearMonth, Map<Category, RollupValue>> result = new LinkedHashMap<>();
+            NavigableMap<YearMonth, Map<CellKey, Cell>> months = months(userId, from, to);
+            for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+                Map<Long, Accumulator> byCategory = new HashMap<>();
+                Map<CellKey, Cell> cells = months.get(month);
+                if (cells != null) {
+                    for (Map.Entry<CellKey, Cell> cell : cells.entrySet()) {
+                        CellKey key = cell.getKey();
+                        if (key.type == type && key.categoryId != null) {
+                            byCategory.computeIfAbsent(key.categoryId, k -> new Accumulator())
+                                    .add(cell.getValue());
+                        }
+                    }
+                }
+                result.put(month, toCategoryMap(byCategory));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 所选月份范围的合计
+     */
+    public RollupValue total(Long userId, TransactionType type, YearMonth from, YearMonth to) {
+        lock.readLock().lock();
+        try {
+            Accumulator accumulator = new Accumulator();
+            for (Map.Entry<YearMonth, Map<CellKey, Cell>> month : months(userId, from, to).entrySet()) {
+                for (Map.Entry<CellKey, Cell> cell : month.getValue().entrySet()) {
+                    if (cell.getKey().type == type) {
+                        accumulator.add(cell.getValue());
+                    }
+                }
+            }
+            return accumulator.toValue();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private NavigableMap<YearMonth, Map<CellKey, Cell>> months(Long userId, YearMonth from, YearMonth to) {
+        TreeMap<YearMonth, Map<CellKey, Cell>> userMonths = cube.get(userId);
+        if (userMonths == null || from.isAfter(to)) {
+            return new TreeMap<>();
+        }
+        return userMonths.subMap(from, true, to, true);
+    }
+
+    private Map<Category, RollupValue> toCategoryMap(Map<Long, Accumulator> byCategory) {
+        Map<Category, RollupValue> result = new HashMap<>();
+        for (Map.Entry<Long, Accumulator> entry : byCategory.entrySet()) {
+            result.put(categories.get(entry.getKey()), entry.getValue().toValue());
+        }
+        return result;
+    }
+
+    /**
+     * 从单元格中扣除一笔交易(已从contributions中移除)，单元格清空后移除
+     */
+    private void subtract(Contribution contribution) {
+        TreeMap<YearMonth, Map<CellKey, Cell>> userMonths = cube.get(contribution.userId);
+        Map<CellKey, Cell> cells = userMonths.get(contribution.month);
+        Cell cell = cells.get(contribution.key);
+
+        cell.remove(contribution.amount);
+        if (cell.count == 0) {
+            cells.remove(contribution.key);
+            if (cells.isEmpty()) {
+                userMonths.remove(contribution.month);
+                if (userMonths.isEmpty()) {
+                    cube.remove(contribution.userId);
+                }
+            }
+        }
+        fireChange(contribution, contribution.amount.negate(), -1);
+    }
+
+    private void fireChange(Contribution contribution, BigDecimal amountDelta, int countDelta) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        Category category = contribution.key.categoryId != null ? categories.get(contribution.key.categoryId) : null;
+        for (ChangeListener listener : listeners) {
+            listener.onCellChanged(contribution.userId, contribution.month, category, contribution.key.type,
+                    amountDelta, countDelta);
+        }
+    }
+
+    /**
+     * 单元格变化监听器，在汇总的写锁内调用，实现中不能再修改交易
+     */
+    public interface ChangeListener {
+        /**
+         * @param userId 用户ID
+         * @param month 月份
+         * @param category 类别，未分类为null
+         * @param type 交易类型
+         * @param amountDelta 金额变化
+         * @param countDelta 笔数变化(+1或-1)
+         */
+        void onCellChanged(Long userId, YearMonth month, Category category, TransactionType type,
+                           BigDecimal amountDelta, int countDelta);
+    }
+
+    /**
+     * 汇总值
+     */
+    public static class RollupValue {
+        private final BigDecimal sum;
+        private final int count;
+        private final BigDecimal max;
+
+        RollupValue(BigDecimal sum, int count, BigDecimal max) {
+            this.sum = sum;
+            this.count = count;
+            this.max = max;
+        }
+
+        public BigDecimal getSum() {
+            return sum;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * 最大单笔金额，没有交易时为0
+         */
+        public BigDecimal getMax() {
+            return max;
+        }
+    }
+
+    /**
+     * 查询时合并多个单元格
+     */
+    private static class Accumulator {
+        private BigDecimal sum = BigDecimal.ZERO;
+        private int count;
+        private BigDecimal max;
+
+        void add(Cell cell) {
+            sum = sum.add(cell.sum);
+            count += cell.count;
+            if (max == null || cell.max.compareTo(max) > 0) {
+                max = cell.max;
+            }
+        }
+
+        RollupValue toValue() {
+            return new RollupValue(sum, count, max != null ? max : BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * 汇总单元格
+     */
+    private static class Cell {
+        private BigDecimal sum = BigDecimal.ZERO;
+        private int count;
+        private BigDecimal max;
+
+        // 金额 -> 笔数(按数值比较)，删除最大的一笔后从这里取新的最大值
+        private final TreeMap<BigDecimal, Integer> amounts = new TreeMap<>();
+
+        void add(BigDecimal amount) {
+            sum = sum.add(amount);
+            count++;
+            amounts.merge(amount, 1, Integer::sum);
+            if (max == null || amount.compareTo(max) > 0) {
+                max = amount;
+            }
+        }
+
+        void remove(BigDecimal amount) {
+            sum = sum.subtract(amount);
+            count--;
+            amounts.computeIfPresent(amount, (k, n) -> n > 1 ? n - 1 : null);
+            max = amounts.isEmpty() ? null : amounts.lastKey();
+        }
+    }
+
+    /**
+     * 单元格键
+     */
+    private static class CellKey {
+        private final Long categoryId;
+        private final TransactionType type;
+
+        CellKey(Long categoryId, TransactionType type) {
+            this.categoryId = categoryId;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CellKey)) return false;
+            CellKey other = (CellKey) o;
+            return type == other.type && Objects.equals(categoryId, other.categoryId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(categoryId, type);
+        }
+    }
+
+    /**
+     * 一笔交易计入的单元格和金额
+     */
+    private static class Contribution {
+        private final Long userId;
+        private final YearMonth month;
+        private final CellKey key;
+        private final BigDecimal amount;
+
+        Contribution(Long userId, YearMonth month, CellKey key, BigDecimal amount) {
+            this.userId = userId;
+            this.month = month;
+            this.key = key;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.software.financeapp.service.fraud;
+
+import com.example.software.financeapp.model.entity.Transaction;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * 重复交易检测器 - 基于滑动时间窗口的流式检测
+ * 交易按(商家, 金额区间)分组，每组内按时间排序，新交易只在本组和相邻金额区间内
+ * 从自身时间向前、向后查找，每个方向找到第一笔符合条件的交易即停止，只与时间最近的一笔构成重复交易对；
+ * 连续k笔相同的交易只产生k-1对。本组内的交易金额差总在允许范围内，查找为O(log w)，
+ * 相邻区间还需跳过金额差超出范围的交易。
+ * 既可以对历史交易批量检测，也可以在交易到达时逐条检测。
+ * 检测器不是线程安全的，每个用户使用单独的实例
+ */
+public class DuplicateTransactionDetector {
+
+    // 短时间内(2小时)重复交易窗口
+    public static final int DEFAULT_WINDOW_MINUTES = 120;
+
+    // 金额差异允许范围
+    public static final BigDecimal DEFAULT_AMOUNT_TOLERANCE = new BigDecimal("1.00");
+
+    // 每处理多少条交易清理一次窗口外的数据
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private final int windowMinutes;
+    private final BigDecimal amountTolerance;
+
+    // (商家, 金额区间) -> 按时间(秒)排序的窗口内交易
+    private final Map<WindowKey, NavigableMap<Long, List<Transaction>>> windows = new HashMap<>();
+
+    // 已处理交易的最晚时间(秒)
+    private long watermark = Long.MIN_VALUE;
+
+    private int processedSinceSweep;
+
+    public DuplicateTransactionDetector() {
+        this(DEFAULT_WINDOW_MINUTES, DEFAULT_AMOUNT_TOLERANCE);
+    }
+
+    /**
+     * @param windowMinutes 时间窗口(分钟)
+     * @param amountTolerance 金额差异允许范围，同时作为金额区间的宽度
+     */
+    public DuplicateTransactionDetector(int windowMinutes, BigDecimal amountTolerance) {
+        this.windowMinutes = windowMinutes;
+        this.amountTolerance = amountTolerance;
+    }
+
+    /**
+     * 批量检测交易列表中的重复交易
+     * @param transactions 交易列表(任意顺序)
+     * @return 重复交易对
+     */
+    public static List<DuplicateMatch> detect(List<Transaction> transactions) {
+        List<Transaction> sorted = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (isCheckable(transaction)) {
+                sorted.add(transaction);
+            }
+        }
+        sorted.sort(Comparator.comparing(Transaction::getTransactionDate));
+
+        DuplicateTransactionDetector detector = new DuplicateTransactionDetector();
+        List<DuplicateMatch> matches = new ArrayList<>();
+        for (Transaction transaction : sorted) {
+            matches.addAll(detector.accept(transaction));
+        }
+        return matches;
+    }
+
+    /**
+     * 处理一条新交易
+     * @param transaction 交易
+     * @return 与窗口内时间最近的已有交易构成的重复交易对，没有时返回空列表
+     */
+    public List<DuplicateMatch> accept(Transaction transaction) {
+        if (!isCheckable(transaction)) {
+            return List.of();
+        }
+
+        String merchant = merchantOf(transaction);
+        long second = epochSecond(transaction);
+        long bucket = bucketOf(transaction.getAmount());
+
+        // 分钟数按截断计算，窗口边界多留59秒后再精确比较
+        long range = windowMinutes * 60L + 59;
+        DuplicateMatch nearest = null;
+        long nearestDistance = Long.MAX_VALUE;
+
+        for (long b = bucket - 1; b <= bucket + 1; b++) {
+            NavigableMap<Long, List<Transaction>> window = windows.get(new WindowKey(merchant, b));
+            if (window == null) {
+                continue;
+            }
+
+            // 先向前找，乱序到达时再向后找
+            DuplicateMatch earlier = firstMatch(
+                    window.subMap(second - range, true, second, true).descendingMap(), transaction, merchant);
+            DuplicateMatch later = firstMatch(
+                    window.subMap(second, false, second + range, true), transaction, merchant);
+            for (DuplicateMatch match : new DuplicateMatch[]{earlier, later}) {
+                if (match == null) {
+                    continue;
+                }
+                long distance = epochSecond(match.getLater()) - epochSecond(match.getEarlier());
+                if (distance < nearestDistance) {
+                    nearest = match;
+                    nearestDistance = distance;
+                }
+            }
+        }
+
+        windows.computeIfAbsent(new WindowKey(merchant, bucket), k -> new TreeMap<>())
+                .computeIfAbsent(second, k -> new ArrayList<>(1))
+                .add(transaction);
+        watermark = Math.max(watermark, second);
+
+        if (++processedSinceSweep >= SWEEP_INTERVAL) {
+            sweep();
+        }
+        return nearest != null ? List.of(nearest) : List.of();
+    }
+
+    /**
+     * 获取窗口内的交易数
+     */
+    public int getWindowSize() {
+        int size = 0;
+        for (NavigableMap<Long, List<Transaction>> window : windows.values()) {
+            for (List<Transaction> transactions : window.values()) {
+                size += transactions.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 按时间顺序查找第一笔与新交易重复的交易
+     * @param candidates 按与新交易的时间距离由近到远排列的候选交易
+     */
+    private DuplicateMatch firstMatch(Map<Long, List<Transaction>> candidates, Transaction incoming, String merchant) {
+        for (List<Transaction> transactions : candidates.values()) {
+            for (Transaction candidate : transactions) {
+                DuplicateMatch match = match(candidate, incoming, merchant);
+                if (match != null) {
+                    return match;
+                }
+            }
+        }
+        return null;
+    }
+
+    private DuplicateMatch match(Transaction existing, Transaction incoming, String merchant) {
+        BigDecimal amountDiff = existing.getAmount().subtract(incoming.getAmount()).abs();
+        if (amountDiff.compareTo(amountTolerance) > 0) {
+            return null;
+        }
+
+        boolean incomingIsLater = !incoming.getTransactionDate().isBefore(existing.getTransactionDate());
+        Transaction earlier = incomingIsLater ? existing : incoming;
+        Transaction later = incomingIsLater ? incoming : existing;
+
+        long minutesBetween = ChronoUnit.MINUTES.between(earlier.getTransactionDate(), later.getTransactionDate());
+        if (minutesBetween > windowMinutes) {
+            return null;
+        }
+        return new DuplicateMatch(earlier, later, merchant, minutesBetween);
+    }
+
+    /**
+     * 清理早于窗口的交易，乱序到达的旧交易仍可与窗口内的交易比较
+     */
+    private void sweep() {
+        processedSinceSweep = 0;
+        long cutoff = watermark - windowMinutes * 60L - 59;
+
+        Iterator<NavigableMap<Long, List<Transaction>>> iterator = windows.values().iterator();
+        while (iterator.hasNext()) {
+            NavigableMap<Long, List<Transaction>> window = iterator.next();
+            window.headMap(cutoff, false).clear();
+            if (window.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static long epochSecond(Transaction transaction) {
+        return transaction.getTransactionDate().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private long bucketOf(BigDecimal amount) {
+        return amount.divide(amountTolerance, 0, RoundingMode.FLOOR).longValue();
+    }
+
+    private static boolean isCheckable(Transaction transaction) {
+        return transaction.getTransactionDate() != null
+                && transaction.getAmount() != null
+                && merchantOf(transaction) != null;
+    }
+
+    /**
+     * 获取商家名称，没有商家信息时使用描述
+     */
+    private static String merchantOf(Transaction transaction) {
+        String merchant = transaction.getMerchant();
+        if (merchant != null && !merchant.isEmpty()) {
+            return merchant;
+        }
+        return transaction.getDescription();
+    }
+
+    /**
+     * 窗口分组键
+     */
+    private static class WindowKey {
+        private final String merchant;
+        private final long amountBucket;
+
+        WindowKey(String merchant, long amountBucket) {
+            this.merchant = merchant;
+            this.amountBucket = amountBucket;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof WindowKey)) return false;
+            WindowKey other = (WindowKey) o;
+            return amountBucket == other.amountBucket && merchant.equals(other.merchant);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(merchant, amountBucket);
+        }
+    }
+
+    /**
+     * 重复交易对
+     */
+    public static class DuplicateMatch {
+        private final Transaction earlier;
+        private final Transaction later;
+        private final String merchant;
+        private final long minutesBetween;
+
+        public DuplicateMatch(Transaction earlier, Transaction later, String merchant, long minutesBetween) {
+            this.earlier = earlier;
+            this.later = later;
+            this.merchant = merchant;
+            this.minutesBetween = minutesBetween;
+        }
+
+        public Transaction getEarlier() {
+            return earlier;
+        }
+
+        public Transaction getLater() {
+            return later;
+        }
+
+        public String getMerchant() {
+            return merchant;
+        }
+
+        public long getMinutesBetween() {
+            return minutesBetween;
+        }
+
+        /**
+         * 生成可疑原因描述
+         */
+        public String getReason() {
+            return String.format("短时间内重复交易: %s, ¥%.2f, 间隔%d分钟",
+                    merchant, later.getAmount(), minutesBetween);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.software.financeapp.service.fraud;
+
+import com.example.software.financeapp.model.entity.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 实时风控预警 - 一笔交易在入库时命中的规则
+ */
+public class FraudAlert {
+    private final RiskAssessment assessment;
+    private final LocalDateTime detectedAt;
+
+    public FraudAlert(Transaction transaction, List<RuleHit> hits) {
+        this.assessment = new RiskAssessment(transaction, hits);
+        this.detectedAt = LocalDateTime.now();
+    }
+
+    public Transaction getTransaction() {
+        return assessment.getTransaction();
+    }
+
+    public List<RuleHit> getHits() {
+        return assessment.getHits();
+    }
+
+    public List<String> getReasons() {
+        return assessment.getReasons();
+    }
+
+    public int getRiskLevel() {
+        return assessment.getRiskLevel();
+    }
+
+    public LocalDateTime getDetectedAt() {
+        return detectedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "FraudAlert{" +
+                "transactionId=" + getTransaction().getId() +
+                ", riskLevel=" + getRiskLevel() +
+                ", hits=" + getHits() +
+                '}';
+    }
+}
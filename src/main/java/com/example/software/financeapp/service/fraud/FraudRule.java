@@ -0,0 +1,176 @@
+package com.example.software.financeapp.service.fraud;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 欺诈规则定义 - 以数据形式声明的一条规则
+ * 规则由类型和参数组成，由 {@link RulePlan#compile(List)} 编译成检测计划后使用；
+ * 默认规则集保存在类路径的 fraud-rules.json 中
+ */
+public class FraudRule {
+
+    private static final String DEFAULT_RULES_FILE = "fraud-rules.json";
+
+    /**
+     * 规则类型
+     */
+    public enum Type {
+        // 金额与用户基线比较
+        AMOUNT,
+        // 同商家短时间内金额相近的交易
+        DUPLICATE,
+        // 短时间内在不同商家交易
+        MERCHANT_SWITCH,
+        // 短时间内交易笔数过多
+        VELOCITY,
+        // 商家关键词
+        MERCHANT_KEYWORD,
+        // 首次出现的商家且金额明显偏高
+        NEW_MERCHANT_AMOUNT,
+        // 特定时段的大额交易
+        TIME_OF_DAY
+    }
+
+    private final String id;
+    private final Type type;
+    private final String name;
+    private final boolean enabled;
+    private final int score;
+    private final JSONObject parameters;
+
+    private FraudRule(String id, Type type, String name, boolean enabled, int score, JSONObject parameters) {
+        this.id = id;
+        this.type = type;
+        this.name = name;
+        this.enabled = enabled;
+        this.score = score;
+        this.parameters = parameters;
+    }
+
+    /**
+     * 从JSON对象解析一条规则
+     * @throws IllegalArgumentException 缺少id或类型不支持时
+     */
+    public static FraudRule fromJson(JSONObject json) {
+        String id = json.optString("id", "");
+        if (id.isEmpty()) {
+            throw new IllegalArgumentException("规则缺少id: " + json);
+        }
+
+        Type type;
+        try {
+            type = Type.valueOf(json.optString("type", ""));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("规则" + id + "的类型不支持: " + json.optString("type"));
+        }
+
+        return new FraudRule(id, type,
+                json.optString("name", id),
+                json.optBoolean("enabled", true),
+                json.optInt("score", 0),
+                json);
+    }
+
+    /**
+     * 解析规则集
+     * @param json 形如 {"rules": [...]} 的JSON文本
+     */
+    public static List<FraudRule> parse(String json) {
+        try {
+            JSONArray array = new JSONObject(json).getJSONArray("rules");
+            List<FraudRule> rules = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                rules.add(fromJson(array.getJSONObject(i)));
+            }
+            return rules;
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("规则集格式错误: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 加载默认规则集
+     * @throws IllegalStateException 规则文件不存在或无法解析时
+     */
+    public static List<FraudRule> loadDefaults() {
+        try (InputStream input = FraudRule.class.getClassLoader().getResourceAsStream(DEFAULT_RULES_FILE)) {
+            if (input == null) {
+                throw new IllegalStateException("找不到欺诈规则文件: " + DEFAULT_RULES_FILE);
+            }
+            return parse(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("无法加载欺诈规则: " + e.getMessage(), e);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 命中时附加的风险分
+     */
+    public int getScore() {
+        return score;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        return parameters.optInt(key, defaultValue);
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        return parameters.optDouble(key, defaultValue);
+    }
+
+    public String getString(String key, String defaultValue) {
+        return parameters.optString(key, defaultValue);
+    }
+
+    public BigDecimal getDecimal(String key, BigDecimal defaultValue) {
+        return parameters.has(key) ? parameters.getBigDecimal(key) : defaultValue;
+    }
+
+    public List<String> getStringList(String key) {
+        JSONArray array = parameters.optJSONArray(key);
+        if (array == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> values = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            values.add(array.getString(i));
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return "FraudRule{" +
+                "id='" + id + '\'' +
+                ", type=" + type +
+                ", enabled=" + enabled +
+                '}';
+    }
+}
@@ -0,0 +1,392 @@
+package com.example.software.financeapp.service.fraud;
+
+import com.example.software.financeapp.model.entity.Transaction;
+import com.example.software.financeapp.model.enums.TransactionType;
+import com.example.software.financeapp.service.MockDataService;
+import com.example.software.financeapp.service.store.EntityTable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * 实时风控引擎 - 交易入库时逐条检测
+ * 使用与批量检测相同的规则计划，每个用户一个检测会话，会话保存规则的滚动状态(时间窗口、近期商家和金额基线)，
+ * 新交易只与这些状态比较，不需要重新扫描历史交易。
+ * 会话由历史交易预热(登录后在后台线程上，或该用户第一次有交易入库时)，预热过程不产生预警。
+ * 作为交易表的监听器跟踪已有交易的修改和删除：规则用到的字段变化后，该用户的会话在后台重新预热，
+ * 预热完成前新交易仍用原会话检测，完成后补入新会话。
+ * 已入库但尚未检测的交易不参与预热，每笔交易在会话中只出现一次
+ */
+public class OnlineFraudEngine implements EntityTable.Listener<Transaction> {
+
+    private static OnlineFraudEngine instance;
+
+    // 保留的近期预警数
+    private static final int RECENT_ALERT_CAPACITY = 10000;
+
+    private final RulePlan rulePlan = RulePlan.getDefault();
+
+    // 用户ID -> 检测会话
+    private final Map<Long, UserSession> userSessions = new ConcurrentHashMap<>();
+
+    // 交易ID -> 规则用到的字段；交易对象可能已被外部修改，移除时按此判断是否影响会话
+    private final Map<Long, RuleInputs> ruleInputs = new ConcurrentHashMap<>();
+
+    // 会话需要重新预热的用户
+    private final Set<Long> staleUsers = ConcurrentHashMap.newKeySet();
+
+    // 已入库、尚未检测的交易ID，由检测负责计入会话
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+
+    // 执行后台预热，默认在调用线程上执行
+    private volatile Executor warmUpExecutor = Runnable::run;
+
+    // 最近一次移除的交易，交易表更新实体时紧接着回调onPut；只在交易表的写锁内访问
+    private Long removedId;
+    private RuleInputs removedInputs;
+    private boolean removedMarkedStale;
+
+    // 交易ID -> 近期预警
+    private final Map<Long, FraudAlert> recentAlerts = new LinkedHashMap<Long, FraudAlert>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, FraudAlert> eldest) {
+            return size() > RECENT_ALERT_CAPACITY;
+        }
+    };
+
+    private final List<Consumer<FraudAlert>> alertListeners = new CopyOnWriteArrayList<>();
+
+    private OnlineFraudEngine() {
+    }
+
+    /**
+     * 获取实时风控引擎单例
+     */
+    public static synchronized OnlineFraudEngine getInstance() {
+        if (instance == null) {
+            instance = new OnlineFraudEngine();
+        }
+        return instance;
+    }
+
+    /**
+     * 检测一批新入库的交易
+     * 同一用户的交易按时间顺序处理，命中规则的交易生成预警并通知监听器
+     * @param transactions 已入库(已分配ID)的交易
+     * @return 本批产生的预警
+     */
+    public List<FraudAlert> process(Collection<Transaction> transactions) {
+        long startTime = System.nanoTime();
+
+        // 按用户分组
+        Map<Long, List<Transaction>> byUser = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getUser() == null || transaction.getTransactionDate() == null
+                    || transaction.getAmount() == null) {
+                pendingIds.remove(transaction.getId());
+                continue;
+            }
+            byUser.computeIfAbsent(transaction.getUser().getId(), k -> new ArrayList<>()).add(transaction);
+        }
+
+        List<FraudAlert> alerts = new ArrayList<>();
+        for (Map.Entry<Long, List<Transaction>> entry : byUser.entrySet()) {
+            UserSession userSession = userSessions.computeIfAbsent(entry.getKey(), userId -> new UserSession());
+
+            List<Transaction> sorted = new ArrayList<>(entry.getValue());
+            sorted.sort(Comparator.comparing(Transaction::getTransactionDate));
+
+            synchronized (userSession) {
+                RulePlan.Session session = prepare(entry.getKey(), userSession);
+                for (Transaction transaction : sorted) {
+                    List<RuleHit> hits = session.evaluate(transaction);
+                    if (!hits.isEmpty()) {
+                        alerts.add(new FraudAlert(transaction, hits));
+                    }
+                    // 正在预热的新会话没有读到的交易，预热完成后补入
+                    if (userSession.warming) {
+                        userSession.evaluatedDuringWarmUp.add(transaction);
+                    }
+                    pendingIds.remove(transaction.getId());
+                }
+            }
+        }
+
+        if (!alerts.isEmpty()) {
+            synchronized (recentAlerts) {
+                for (FraudAlert alert : alerts) {
+                    recentAlerts.put(alert.getTransaction().getId(), alert);
+                }
+            }
+            for (FraudAlert alert : alerts) {
+                alertListeners.forEach(listener -> listener.accept(alert));
+            }
+            System.out.println("实时风控: 检测" + transactions.size() + "笔交易, 预警" + alerts.size() + "笔, 耗时" +
+                    (System.nanoTime() - startTime) / 1000 + "微秒");
+        }
+        return alerts;
+    }
+
+    /**
+     * 查找交易对应的近期预警
+     * @param transactions 交易列表
+     * @return 命中预警的交易及原因
+     */
+    public List<FraudAlert> findAlerts(Collection<Transaction> transactions) {
+        List<FraudAlert> alerts = new ArrayList<>();
+        synchronized (recentAlerts) {
+            for (Transaction transaction : transactions) {
+                FraudAlert alert = transaction.getId() != null ? recentAlerts.get(transaction.getId()) : null;
+                if (alert != null) {
+                    alerts.add(alert);
+                }
+            }
+        }
+        return alerts;
+    }
+
+    /**
+     * 添加预警监听器
+     */
+    public void addAlertListener(Consumer<FraudAlert> listener) {
+        alertListeners.add(listener);
+    }
+
+    /**
+     * 移除预警监听器
+     */
+    public void removeAlertListener(Consumer<FraudAlert> listener) {
+        alertListeners.remove(listener);
+    }
+
+    /**
+     * 设置执行后台预热的线程池
+     * @param executor 执行预热任务，排队已满时可以拒绝
+     */
+    public void setWarmUpExecutor(Executor executor) {
+        this.warmUpExecutor = executor;
+    }
+
+    /**
+     * 在后台预热用户的检测会话，之后入库的交易不需要在调用线程上回放历史交易
+     * @param userId 用户ID
+     */
+    public void warmUpInBackground(Long userId) {
+        UserSession userSession = userSessions.computeIfAbsent(userId, k -> new UserSession());
+        synchronized (userSession) {
+            if (userSession.session == null || staleUsers.contains(userId)) {
+                scheduleWarmUp(userId, userSession);
+            }
+        }
+    }
+
+    /**
+     * 把已入库的交易都视为已检测，用于存储恢复和创建示例数据之后
+     */
+    public void markAllProcessed() {
+        pendingIds.clear();
+    }
+
+    @Override
+    public void onPut(Transaction transaction) {
+        if (transaction.getId() == null) {
+            return;
+        }
+        RuleInputs inputs = new RuleInputs(transaction);
+        ruleInputs.put(transaction.getId(), inputs);
+
+        // 新交易：检测之前不参与预热
+        if (!transaction.getId().equals(removedId)) {
+            pendingIds.add(transaction.getId());
+        }
+
+        // 更新：规则用到的字段都没变(如只修改了类别)时撤销移除时的标记
+        if (transaction.getId().equals(removedId)) {
+            if (inputs.equals(removedInputs)) {
+                if (removedMarkedStale) {
+                    staleUsers.remove(removedInputs.userId);
+                }
+            } else if (inputs.userId != null) {
+                staleUsers.add(inputs.userId);
+            }
+            removedId = null;
+            removedInputs = null;
+        }
+    }
+
+    @Override
+    public void onRemove(Long id) {
+        // 删除或更新前的移除，先按修改处理，随后的onPut可能撤销
+        RuleInputs previous = ruleInputs.remove(id);
+        removedId = id;
+        removedInputs = previous;
+        removedMarkedStale = previous != null && previous.userId != null && staleUsers.add(previous.userId);
+    }
+
+    /**
+     * 获取可用的检测会话，调用方持有userSession的锁
+     * 会话已过期时仍返回原会话并在后台重新预热；还没有会话时等待正在进行的预热，或在调用线程上预热
+     */
+    private RulePlan.Session prepare(Long userId, UserSession userSession) {
+        if (userSession.session == null) {
+            while (userSession.warming) {
+                try {
+                    userSession.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (userSession.session == null) {
+            staleUsers.remove(userId);
+            userSession.session = warmUp(userId, new HashSet<>());
+        } else if (staleUsers.contains(userId)) {
+            scheduleWarmUp(userId, userSession);
+        }
+        return userSession.session;
+    }
+
+    /**
+     * 安排后台预热，已在预热时不重复安排，调用方持有userSession的锁
+     */
+    private void scheduleWarmUp(Long userId, UserSession userSession) {
+        if (userSession.warming) {
+            return;
+        }
+        userSession.warming = true;
+        userSession.evaluatedDuringWarmUp = new ArrayList<>();
+        try {
+            warmUpExecutor.execute(() -> rebuild(userId, userSession));
+        } catch (RejectedExecutionException e) {
+            // 下次检测时再安排
+            userSession.warming = false;
+            userSession.evaluatedDuringWarmUp = null;
+            System.err.println("实时风控会话预热被拒绝: 用户ID=" + userId + ", " + e.getMessage());
+        }
+    }
+
+    /**
+     * 在不持有会话锁的情况下重建会话，完成后补入预热期间检测的交易并替换原会话
+     */
+    private void rebuild(Long userId, UserSession userSession) {
+        long startTime = System.currentTimeMillis();
+        RulePlan.Session session = null;
+        try {
+            // 先清除标记再读取历史交易，读取期间的修改会重新标记
+            staleUsers.remove(userId);
+            Set<Long> replayedIds = new HashSet<>();
+            session = warmUp(userId, replayedIds);
+
+            synchronized (userSession) {
+                for (Transaction transaction : userSession.evaluatedDuringWarmUp) {
+                    if (!replayedIds.contains(transaction.getId())) {
+                        session.evaluate(transaction);
+                    }
+                }
+                userSession.session = session;
+            }
+            System.out.println("实时风控会话预热完成: 用户ID=" + userId + ", 耗时"
+                    + (System.currentTimeMillis() - startTime) + "ms");
+        } finally {
+            synchronized (userSession) {
+                userSession.warming = false;
+                userSession.evaluatedDuringWarmUp = null;
+                userSession.notifyAll();
+                if (session == null) {
+                    // 预热失败，下次检测时重试
+                    staleUsers.add(userId);
+                }
+            }
+        }
+    }
+
+    /**
+     * 用历史交易预热用户的检测会话(不产生预警)
+     * 已入库但尚未检测的交易由检测计入，不在此回放
+     * @param replayedIds 记录回放的交易ID
+     */
+    private RulePlan.Session warmUp(Long userId, Set<Long> replayedIds) {
+        RulePlan.Session session = rulePlan.newSession();
+
+        List<Transaction> history = new ArrayList<>();
+        for (Transaction transaction : MockDataService.getMockTransactionsForUser(userId)) {
+            if (!pendingIds.contains(transaction.getId()) && transaction.getTransactionDate() != null
+                    && transaction.getAmount() != null) {
+                history.add(transaction);
+                replayedIds.add(transaction.getId());
+            }
+        }
+        history.sort(Comparator.comparing(Transaction::getTransactionDate));
+
+        for (Transaction transaction : history) {
+            session.evaluate(transaction);
+        }
+        return session;
+    }
+
+    /**
+     * 用户的检测会话，同一用户的预热和检测在此对象上同步
+     */
+    private static class UserSession {
+        private RulePlan.Session session;
+
+        // 正在后台预热，期间检测的交易记录下来补入新会话
+        private boolean warming;
+        private List<Transaction> evaluatedDuringWarmUp;
+    }
+
+    /**
+     * 规则用到的交易字段
+     */
+    private static class RuleInputs {
+        private final Long userId;
+        private final LocalDateTime transactionDate;
+        private final BigDecimal amount;
+        private final TransactionType type;
+        private final String merchant;
+        private final String description;
+
+        RuleInputs(Transaction transaction) {
+            this.userId = transaction.getUser() != null ? transaction.getUser().getId() : null;
+            this.transactionDate = transaction.getTransactionDate();
+            this.amount = transaction.getAmount();
+            this.type = transaction.getType();
+            this.merchant = transaction.getMerchant();
+            this.description = transaction.getDescription();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RuleInputs)) return false;
+            RuleInputs other = (RuleInputs) o;
+            return Objects.equals(userId, other.userId)
+                    && Objects.equals(transactionDate, other.transactionDate)
+                    && (amount == null ? other.amount == null
+                        : other.amount != null && amount.compareTo(other.amount) == 0)
+                    && type == other.type
+                    && Objects.equals(merchant, other.merchant)
+                    && Objects.equals(description, other.description);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, transactionDate, type, merchant, description);
+        }
+    }
+}
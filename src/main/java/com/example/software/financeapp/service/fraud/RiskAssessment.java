@@ -0,0 +1,64 @@
+package com.example.software.financeapp.service.fraud;
+
+import com.example.software.financeapp.model.entity.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 交易风险评估 - 一笔交易命中的全部规则及风险等级
+ */
+public class RiskAssessment {
+
+    // 最高风险等级
+    public static final int MAX_RISK_LEVEL = 5;
+
+    private final Transaction transaction;
+    private final List<RuleHit> hits;
+    private final int riskLevel;
+
+    public RiskAssessment(Transaction transaction, List<RuleHit> hits) {
+        this.transaction = transaction;
+        this.hits = hits;
+        this.riskLevel = calculateRiskLevel(hits);
+    }
+
+    /**
+     * 计算风险等级(1-5, 5为最高风险)
+     * 有命中时基础为2，按命中数最多加2，再加上各命中的风险分
+     */
+    public static int calculateRiskLevel(List<RuleHit> hits) {
+        if (hits.isEmpty()) {
+            return 1; // 无风险
+        }
+
+        int risk = 2 + Math.min(2, hits.size());
+        for (RuleHit hit : hits) {
+            risk += hit.getScore();
+        }
+        return Math.min(MAX_RISK_LEVEL, risk);
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public List<RuleHit> getHits() {
+        return hits;
+    }
+
+    public int getRiskLevel() {
+        return riskLevel;
+    }
+
+    /**
+     * 获取原因描述列表
+     */
+    public List<String> getReasons() {
+        List<String> reasons = new ArrayList<>(hits.size());
+        for (RuleHit hit : hits) {
+            reasons.add(hit.getReason());
+        }
+        return reasons;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.software.financeapp.service.fraud;
+
+import com.example.software.financeapp.model.entity.Transaction;
+
+/**
+ * 规则命中结果
+ */
+public class RuleHit {
+    private final String ruleId;
+    private final FraudRule.Type type;
+    private final int score;
+    private final String reason;
+    private final Transaction related;
+
+    public RuleHit(FraudRule rule, int score, String reason, Transaction related) {
+        this.ruleId = rule.getId();
+        this.type = rule.getType();
+        this.score = score;
+        this.reason = reason;
+        this.related = related;
+    }
+
+    public String getRuleId() {
+        return ruleId;
+    }
+
+    public FraudRule.Type getType() {
+        return type;
+    }
+
+    /**
+     * 该命中附加的风险分
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * 显示给用户的原因描述
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * 与本次命中相关的另一笔交易(重复交易、不同商家交易)，没有时为null
+     */
+    public Transaction getRelated() {
+        return related;
+    }
+
+    @Override
+    public String toString() {
+        return ruleId + ": " + reason;
+    }
+}
@@ -0,0 +1,500 @@
+package com.example.software.financeapp.service.fraud;
+
+import com.example.software.financeapp.model.entity.Transaction;
+import com.example.software.financeapp.model.enums.TransactionType;
+import com.example.software.financeapp.service.analysis.AmountBaseline;
+import com.example.software.financeapp.service.analysis.AmountBaselines;
+import com.example.software.financeapp.service.store.LocalDataStore;
+
+import java.math.BigDecimal;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * 欺诈检测计划 - 由规则定义编译而成
+ * 编译时解析规则参数、加载可疑词典；检测时每笔交易按顺序经过全部规则一次。
+ * 计划本身只读，可以共享；有状态的规则(时间窗口、金额基线)的状态保存在 {@link Session} 中，
+ * 每个交易流(一般是一个用户)使用一个会话，交易按时间顺序送入
+ */
+public class RulePlan {
+
+    private static RulePlan defaultPlan;
+
+    // 每条启用的规则对应一个评估器工厂，无状态的规则总是返回同一个评估器
+    private final List<Supplier<Evaluator>> evaluatorFactories;
+    private final int ruleCount;
+
+    private RulePlan(List<Supplier<Evaluator>> evaluatorFactories) {
+        this.evaluatorFactories = evaluatorFactories;
+        this.ruleCount = evaluatorFactories.size();
+    }
+
+    /**
+     * 获取由默认规则集编译的计划
+     */
+    public static synchronized RulePlan getDefault() {
+        if (defaultPlan == null) {
+            defaultPlan = compile(FraudRule.loadDefaults());
+        }
+        return defaultPlan;
+    }
+
+    /**
+     * 编译规则集，跳过未启用的规则
+     */
+    public static RulePlan compile(List<FraudRule> rules) {
+        List<Supplier<Evaluator>> factories = new ArrayList<>();
+        for (FraudRule rule : rules) {
+            if (rule.isEnabled()) {
+                factories.add(compileRule(rule));
+            }
+        }
+        return new RulePlan(factories);
+    }
+
+    private static Supplier<Evaluator> compileRule(FraudRule rule) {
+        switch (rule.getType()) {
+            case AMOUNT: {
+                Evaluator evaluator = new AmountEvaluator(rule);
+                return () -> evaluator;
+            }
+            case DUPLICATE:
+                return () -> new DuplicateEvaluator(rule);
+            case MERCHANT_SWITCH:
+                return () -> new MerchantSwitchEvaluator(rule);
+            case VELOCITY:
+                return () -> new VelocityEvaluator(rule);
+            case MERCHANT_KEYWORD: {
+                Evaluator evaluator = new KeywordEvaluator(rule);
+                return () -> evaluator;
+            }
+            case NEW_MERCHANT_AMOUNT:
+                return () -> new NewMerchantEvaluator(rule);
+            case TIME_OF_DAY: {
+                Evaluator evaluator = new TimeOfDayEvaluator(rule);
+                return () -> evaluator;
+            }
+            default:
+                throw new IllegalArgumentException("不支持的规则类型: " + rule.getType());
+        }
+    }
+
+    /**
+     * 创建检测会话
+     */
+    public Session newSession() {
+        return new Session();
+    }
+
+    /**
+     * 批量评估交易
+     * 按用户分组后按时间顺序检测；与另一笔交易相关的命中(重复交易、不同商家交易)同时计入两笔交易
+     * @param transactions 交易列表(任意顺序)
+     * @return 有命中的交易评估，按风险等级从高到低、时间从新到旧排序
+     */
+    public List<RiskAssessment> assess(List<Transaction> transactions) {
+        Map<Long, List<Transaction>> byUser = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.getTransactionDate() == null || transaction.getAmount() == null) {
+                continue;
+            }
+            Long userId = transaction.getUser() != null ? transaction.getUser().getId() : null;
+            byUser.computeIfAbsent(userId, k -> new ArrayList<>()).add(transaction);
+        }
+
+        Map<Transaction, List<RuleHit>> hitsByTransaction = new IdentityHashMap<>();
+        for (List<Transaction> userTransactions : byUser.values()) {
+            userTransactions.sort(Comparator.comparing(Transaction::getTransactionDate));
+
+            Session session = newSession();
+            for (Transaction transaction : userTransactions) {
+                for (RuleHit hit : session.evaluate(transaction)) {
+                    hitsByTransaction.computeIfAbsent(transaction, k -> new ArrayList<>()).add(hit);
+                    if (hit.getRelated() != null) {
+                        hitsByTransaction.computeIfAbsent(hit.getRelated(), k -> new ArrayList<>()).add(hit);
+                    }
+                }
+            }
+        }
+
+        List<RiskAssessment> assessments = new ArrayList<>(hitsByTransaction.size());
+        for (Map.Entry<Transaction, List<RuleHit>> entry : hitsByTransaction.entrySet()) {
+            assessments.add(new RiskAssessment(entry.getKey(), entry.getValue()));
+        }
+        assessments.sort(Comparator.comparingInt(RiskAssessment::getRiskLevel).reversed()
+                .thenComparing(assessment -> assessment.getTransaction().getTransactionDate(),
+                        Comparator.reverseOrder()));
+        return assessments;
+    }
+
+    /**
+     * 获取启用的规则数
+     */
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * 检测会话 - 一个交易流的规则状态，不是线程安全的
+     */
+    public class Session {
+        private final Evaluator[] evaluators = new Evaluator[ruleCount];
+
+        // 金额基线由金额规则和新商家规则共用，交易经过全部规则后才计入
+        private final AmountBaselines amounts = new AmountBaselines();
+
+        private Session() {
+            for (int i = 0; i < ruleCount; i++) {
+                evaluators[i] = evaluatorFactories.get(i).get();
+            }
+        }
+
+        /**
+         * 检测一笔交易并更新状态
+         * @return 命中结果，没有时为空列表
+         */
+        public List<RuleHit> evaluate(Transaction transaction) {
+            if (transaction.getTransactionDate() == null || transaction.getAmount() == null) {
+                return List.of();
+            }
+
+            List<RuleHit> hits = new ArrayList<>(2);
+            for (Evaluator evaluator : evaluators) {
+                evaluator.evaluate(transaction, amounts, hits);
+            }
+            amounts.add(transaction);
+            return hits;
+        }
+    }
+
+    /**
+     * 规则评估器
+     */
+    private interface Evaluator {
+        /**
+         * 检测交易，命中时加入结果列表
+         * @param amounts 尚未计入本笔交易的金额基线
+         */
+        void evaluate(Transaction transaction, AmountBaselines amounts, List<RuleHit> hits);
+    }
+
+    private static boolean hasMerchant(Transaction transaction) {
+        return transaction.getMerchant() != null && !transaction.getMerchant().isEmpty();
+    }
+
+    private static long epochSecond(Transaction transaction) {
+        return transaction.getTransactionDate().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * 异常金额：与用户基线比较，基线样本不足时使用固定阈值
+     */
+    private static class AmountEvaluator implements Evaluator {
+        private final FraudRule rule;
+        private final BigDecimal fallbackThreshold;
+        private final BigDecimal escalateAbove;
+        private final int escalateScore;
+
+        AmountEvaluator(FraudRule rule) {
+            this.rule = rule;
+            this.fallbackThreshold = rule.getDecimal("fallbackThreshold", new BigDecimal("1000.00"));
+            this.escalateAbove = rule.getDecimal("escalateAbove", null);
+            this.escalateScore = rule.getInt("escalateScore", 0);
+        }
+
+        @Override
+        public void evaluate(Transaction transaction, AmountBaselines amounts, List<RuleHit> hits) {
+            // 只检测支出类交易
+            if (transaction.getType() != TransactionType.EXPENSE) {
+                return;
+            }
+
+            String reason = null;
+            AmountBaselines.AmountScore score = amounts.score(transaction);
+            if (score != null) {
+                if (score.isAnomalous()) {
+                    reason = score.getReason();
+                }
+            } else if (transaction.getAmount().compareTo(fallbackThreshold) > 0) {
+                reason = String.format("%s: ¥%.2f", rule.getName(), transaction.getAmount());
+            }
+            if (reason == null) {
+                return;
+            }
+
+            int hitScore = rule.getScore();
+            if (escalateAbove != null && transaction.getAmount().compareTo(escalateAbove) > 0) {
+                hitScore += escalateScore;
+            }
+            hits.add(new RuleHit(rule, hitScore, reason, null));
+        }
+    }
+
+    /**
+     * 重复交易：同商家、金额相近、时间窗口内
+     */
+    private static class DuplicateEvaluator implements Evaluator {
+        private final FraudRule rule;
+        private final DuplicateTransactionDetector detector;
+
+        DuplicateEvaluator(FraudRule rule) {
+            this.rule = rule;
+            this.detector = new DuplicateTransactionDetector(
+                    rule.getInt("windowMinutes", DuplicateTransactionDetector.DEFAULT_WINDOW_MINUTES),
+                    rule.getDecimal("amountTolerance", DuplicateTransactionDetector.DEFAULT_AMOUNT_TOLERANCE));
+        }
+
+        @Override
+        public void evaluate(Transaction transaction, AmountBaselines amounts, List<RuleHit> hits) {
+            for (DuplicateTransactionDetector.DuplicateMatch match : detector.accept(transaction)) {
+                Transaction related = match.getLater() == transaction ? match.getEarlier() : match.getLater();
+                hits.add(new RuleHit(rule, rule.getScore(), match.getReason(), related));
+            }
+        }
+    }
+
+    /**
+     * 商家异常：与时间上相邻的前后两笔商家交易间隔过短且商家不同
+     */
+    private static class MerchantSwitchEvaluator implements Evaluator {
+        private final FraudRule rule;
+        private final int windowMinutes;
+
+        // 近期有商家信息的交易，按时间(秒)排序
+        private final NavigableMap<Long, List<Transaction>> timeline = new TreeMap<>();
+
+        // 已处理交易的最晚时间(秒)
+        private long watermark = Long.MIN_VALUE;
+
+        MerchantSwitchEvaluator(FraudRule rule) {
+            this.rule = rule;
+            this.windowMinutes = rule.getInt("windowMinutes", 60);
+        }
+
+        @Override
+        public void evaluate(Transaction transaction, AmountBaselines amounts, List<RuleHit> hits) {
+            if (!hasMerchant(transaction)) {
+                return;
+            }
+            long second = epochSecond(transaction);
+
+            Map.Entry<Long, List<Transaction>> previous = timeline.floorEntry(second);
+            if (previous != null) {
+                List<Transaction> candidates = previous.getValue();
+                check(candidates.get(candidates.size() - 1), transaction, transaction, hits);
+            }
+            Map.Entry<Long, List<Transaction>> next = timeline.higherEntry(second);
+            if (next != null) {
+                check(transaction, next.getValue().get(0), transaction, hits);
+            }
+
+            timeline.computeIfAbsent(second, k -> new ArrayList<>(1)).add(transaction);
+            watermark = Math.max(watermark, second);
+
+            // 只保留窗口内的交易
+            long cutoff = watermark - windowMinutes * 60L - 59;
+            while (!timeline.isEmpty() && timeline.firstKey() < cutoff) {
+                timeline.pollFirstEntry();
+            }
+        }
+
+        private void check(Transaction earlier, Transaction later, Transaction current, List<RuleHit> hits) {
+            if (earlier.getMerchant().equals(later.getMerchant())) {
+                return;
+            }
+
+            long minutesBetween = Math.abs(ChronoUnit.MINUTES.between(
+                    earlier.getTransactionDate(),
+                    later.getTransactionDate()));
+            if (minutesBetween < windowMinutes) {
+                String reason = String.format(
+                        "商家异常: %d分钟内在不同商家(%s和%s)有交易记录",
+                        minutesBetween,
+                        earlier.getMerchant(),
+                        later.getMerchant());
+                hits.add(new RuleHit(rule, rule.getScore(), reason, earlier == current ? later : earlier));
+            }
+        }
+    }
+
+    /**
+     * 高频交易：时间窗口内的支出笔数超过上限
+     */
+    private static class VelocityEvaluator implements Evaluator {
+        private final FraudRule rule;
+        private final int windowMinutes;
+        private final int maxCount;
+
+        // 时间(秒) -> 该时刻的支出笔数
+        private final NavigableMap<Long, Integer> counts = new TreeMap<>();
+        private long watermark = Long.MIN_VALUE;
+
+        VelocityEvaluator(FraudRule rule) {
+            this.rule = rule;
+            this.windowMinutes = rule.getInt("windowMinutes", 10);
+            this.maxCount = rule.getInt("maxCount", 5);
+        }
+
+        @Override
+        public void evaluate(Transaction transaction, AmountBaselines amounts, List<RuleHit> hits) {
+            if (transaction.getType() != TransactionType.EXPENSE) {
+                return;
+            }
+            long second = epochSecond(transaction);
+            long range = windowMinutes * 60L;
+
+            counts.merge(second, 1, Integer::sum);
+            watermark = Math.max(watermark, second);
+
+            int count = 0;
+            for (int value : counts.subMap(second - range, true, second, true).values()) {
+                count += value;
+            }
+            if (count > maxCount) {
+                hits.add(new RuleHit(rule, rule.getScore(),
+                        String.format("%s: %d分钟内%d笔支出", rule.getName(), windowMinutes, count), null));
+            }
+
+            long cutoff = watermark - range;
+            while (!counts.isEmpty() && counts.firstKey() < cutoff) {
+                counts.pollFirstEntry();
+            }
+        }
+    }
+
+    /**
+     * 可疑商家：商家或描述中包含可疑词典中的词
+     */
+    private static class KeywordEvaluator implements Evaluator {
+        private final FraudRule rule;
+        private final SuspiciousTermDictionary dictionary;
+
+        KeywordEvaluator(FraudRule rule) {
+            this.rule = rule;
+
+            // 规则中声明的关键词作为内置词表，高风险关键词附加风险分
+            int highRiskScore = rule.getInt("highRiskScore", 0);
+            List<String> highRiskKeywords = new ArrayList<>();
+            for (String keyword : rule.getStringList("highRiskKeywords")) {
+                highRiskKeywords.add(keyword.toLowerCase());
+            }
+            Map<String, Integer> defaultTerms = new LinkedHashMap<>();
+            for (String keyword : rule.getStringList("keywords")) {
+                String lower = keyword.toLowerCase();
+                defaultTerms.put(lower, highRiskKeywords.contains(lower) ? highRiskScore : 0);
+            }
+
+            String fileName = rule.getString("dictionaryFile", "suspicious-terms.txt");
+            this.dictionary = new SuspiciousTermDictionary(
+                    LocalDataStore.getDataDirectory().resolve(fileName), defaultTerms);
+        }
+
+        @Override
+        public void evaluate(Transaction transaction, AmountBaselines amounts, List<RuleHit> hits) {
+            SuspiciousTermDictionary.TermMatch match = dictionary.match(transaction);
+            if (match == null) {
+                return;
+            }
+
+            String subject = transaction.getDescription() != null && !transaction.getDescription().isEmpty()
+                    ? transaction.getDescription() : transaction.getMerchant();
+            hits.add(new RuleHit(rule, rule.getScore() + match.getScore(),
+                    String.format("%s: %s", rule.getName(), subject), null));
+        }
+    }
+
+    /**
+     * 新商家异常金额：首次出现的商家且金额明显高于该用户的支出水平
+     */
+    private static class NewMerchantEvaluator implements Evaluator {
+        private final FraudRule rule;
+        private final double sigma;
+
+        // 近期商家(最近使用的在后)
+        private final Map<String, Boolean> recentMerchants;
+
+        NewMerchantEvaluator(FraudRule rule) {
+            this.rule = rule;
+            this.sigma = rule.getDouble("sigma", 3.0);
+
+            int capacity = rule.getInt("recentMerchants", 500);
+            this.recentMerchants = new LinkedHashMap<String, Boolean>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        @Override
+        public void evaluate(Transaction transaction, AmountBaselines amounts, List<RuleHit> hits) {
+            if (!hasMerchant(transaction)) {
+                return;
+            }
+            boolean known = recentMerchants.put(transaction.getMerchant(), Boolean.TRUE) != null;
+            if (known || transaction.getType() != TransactionType.EXPENSE || transaction.getUser() == null) {
+                return;
+            }
+
+            AmountBaseline baseline = amounts.getUserBaseline(transaction.getUser().getId(), TransactionType.EXPENSE);
+            if (baseline == null || baseline.getCount() < AmountBaselines.MIN_SAMPLES) {
+                return;
+            }
+
+            double amount = transaction.getAmount().doubleValue();
+            if (baseline.zScore(amount) > sigma
+                    && amount >= baseline.getMedian() * AmountBaselines.MIN_MEDIAN_RATIO) {
+                hits.add(new RuleHit(rule, rule.getScore(),
+                        String.format("%s: %s, ¥%.2f (平时中位数¥%.2f)",
+                                rule.getName(), transaction.getMerchant(), transaction.getAmount(),
+                                baseline.getMedian()),
+                        null));
+            }
+        }
+    }
+
+    /**
+     * 特定时段的大额交易，时段为[开始小时, 结束小时)，开始大于结束时跨越午夜
+     */
+    private static class TimeOfDayEvaluator implements Evaluator {
+        private final FraudRule rule;
+        private final int startHour;
+        private final int endHour;
+        private final BigDecimal minAmount;
+
+        TimeOfDayEvaluator(FraudRule rule) {
+            this.rule = rule;
+            this.startHour = rule.getInt("startHour", 1);
+            this.endHour = rule.getInt("endHour", 5);
+            this.minAmount = rule.getDecimal("minAmount", BigDecimal.ZERO);
+        }
+
+        @Override
+        public void evaluate(Transaction transaction, AmountBaselines amounts, List<RuleHit> hits) {
+            if (transaction.getType() != TransactionType.EXPENSE
+                    || transaction.getAmount().compareTo(minAmount) < 0) {
+                return;
+            }
+
+            int hour = transaction.getTransactionDate().getHour();
+            boolean inRange = startHour <= endHour
+                    ? hour >= startHour && hour < endHour
+                    : hour >= startHour || hour < endHour;
+            if (inRange) {
+                hits.add(new RuleHit(rule, rule.getScore(),
+                        String.format("%s: %02d:%02d, ¥%.2f", rule.getName(),
+                                hour, transaction.getTransactionDate().getMinute(), transaction.getAmount()),
+                        null));
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.software.financeapp.service.fraud;
+
+import com.example.software.financeapp.model.entity.Transaction;
+import com.example.software.financeapp.util.KeywordAutomaton;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 可疑词典 - 可疑商家关键词，编译成忽略大小写的多关键词自动机
+ * 词典文件每行一个词，可用制表符分隔附加的风险分，#开头的行为注释；
+ * 文件不存在时使用内置词表。查询时按固定间隔检查文件的修改时间和大小，变化后重新编译，
+ * 编译好的词表整体替换，查询线程不会看到一半更新的状态；新文件无法读取时保留原词表
+ */
+public class SuspiciousTermDictionary {
+
+    // 两次检查词典文件之间的最短间隔(毫秒)
+    private static final long RELOAD_CHECK_INTERVAL_MS = 2000;
+
+    private final Path file;
+    private final Map<String, Integer> defaultTerms;
+
+    private volatile CompiledTerms compiled;
+    private volatile long nextCheckAt;
+
+    /**
+     * @param file 词典文件
+     * @param defaultTerms 文件不存在时使用的内置词表(词 -> 风险分)
+     */
+    public SuspiciousTermDictionary(Path file, Map<String, Integer> defaultTerms) {
+        this.file = file;
+        this.defaultTerms = new LinkedHashMap<>(defaultTerms);
+        this.compiled = load();
+        this.nextCheckAt = System.currentTimeMillis() + RELOAD_CHECK_INTERVAL_MS;
+    }
+
+    /**
+     * 在商家和描述中查找可疑词，两段文本一次扫描
+     * @param transaction 交易
+     * @return 命中结果，没有命中时返回null
+     */
+    public TermMatch match(Transaction transaction) {
+        String merchant = transaction.getMerchant();
+        String description = transaction.getDescription();
+        if ((merchant == null || merchant.isEmpty()) && (description == null || description.isEmpty())) {
+            return null;
+        }
+
+        CompiledTerms terms = current();
+        if (terms.automaton.getKeywordCount() == 0) {
+            return null;
+        }
+
+        // 换行符不会出现在词中，自动机在分隔处回到初始状态，不会跨字段匹配
+        StringBuilder text = new StringBuilder();
+        if (merchant != null) {
+            text.append(merchant);
+        }
+        text.append('\n');
+        if (description != null) {
+            text.append(description);
+        }
+
+        BitSet matched = new BitSet();
+        terms.automaton.scan(text, matched::set);
+        if (matched.isEmpty()) {
+            return null;
+        }
+
+        List<String> matchedTerms = new ArrayList<>(matched.cardinality());
+        int score = 0;
+        for (int id = matched.nextSetBit(0); id >= 0; id = matched.nextSetBit(id + 1)) {
+            matchedTerms.add(terms.terms[id]);
+            score = Math.max(score, terms.scores[id]);
+        }
+        return new TermMatch(matchedTerms, score);
+    }
+
+    /**
+     * 获取当前词数
+     */
+    public int getTermCount() {
+        return current().automaton.getKeywordCount();
+    }
+
+    /**
+     * 立即检查词典文件，有变化时重新编译
+     */
+    public void reloadIfChanged() {
+        CompiledTerms terms = compiled;
+        long[] stamp = stampOf(file);
+        if (stamp[0] != terms.lastModified || stamp[1] != terms.size) {
+            synchronized (this) {
+                if (compiled == terms) {
+                    compiled = load();
+                }
+            }
+        }
+        nextCheckAt = System.currentTimeMillis() + RELOAD_CHECK_INTERVAL_MS;
+    }
+
+    private CompiledTerms current() {
+        if (System.currentTimeMillis() >= nextCheckAt) {
+            reloadIfChanged();
+        }
+        return compiled;
+    }
+
+    /**
+     * 读取并编译词典，文件不存在时使用内置词表，读取失败时保留当前词表
+     */
+    private CompiledTerms load() {
+        long[] stamp = stampOf(file);
+        if (stamp[0] < 0) {
+            return compile(defaultTerms, stamp);
+        }
+
+        try {
+            Map<String, Integer> terms = new LinkedHashMap<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+
+                int tab = trimmed.indexOf('\t');
+                String term = tab >= 0 ? trimmed.substring(0, tab).trim() : trimmed;
+                int score = 0;
+                if (tab >= 0) {
+                    try {
+                        score = Integer.parseInt(trimmed.substring(tab + 1).trim());
+                    } catch (NumberFormatException e) {
+                        System.err.println("可疑词典风险分格式错误, 按0处理: " + line);
+                    }
+                }
+                if (!term.isEmpty()) {
+                    terms.merge(term.toLowerCase(), score, Math::max);
+                }
+            }
+
+            System.out.println("已加载可疑词典: " + file + ", " + terms.size() + "个词");
+            return compile(terms, stamp);
+        } catch (IOException e) {
+            System.err.println("读取可疑词典失败: " + e.getMessage());
+            CompiledTerms previous = compiled;
+            return previous != null ? previous.withStamp(stamp) : compile(defaultTerms, stamp);
+        }
+    }
+
+    private static CompiledTerms compile(Map<String, Integer> termScores, long[] stamp) {
+        KeywordAutomaton.Builder builder = KeywordAutomaton.builder().ignoreCase();
+        String[] terms = new String[termScores.size()];
+        int[] scores = new int[termScores.size()];
+
+        for (Map.Entry<String, Integer> entry : termScores.entrySet()) {
+            int id = builder.add(entry.getKey());
+            terms[id] = entry.getKey();
+            scores[id] = entry.getValue();
+        }
+        return new CompiledTerms(builder.build(), terms, scores, stamp[0], stamp[1]);
+    }
+
+    /**
+     * 获取文件的修改时间和大小，文件不存在时为-1
+     */
+    private static long[] stampOf(Path file) {
+        try {
+            if (Files.isRegularFile(file)) {
+                return new long[]{Files.getLastModifiedTime(file).toMillis(), Files.size(file)};
+            }
+        } catch (IOException e) {
+            System.err.println("无法读取可疑词典状态: " + e.getMessage());
+        }
+        return new long[]{-1, -1};
+    }
+
+    /**
+     * 编译好的词表
+     */
+    private static class CompiledTerms {
+        private final KeywordAutomaton automaton;
+        private final String[] terms;
+        private final int[] scores;
+        private final long lastModified;
+        private final long size;
+
+        CompiledTerms(KeywordAutomaton automaton, String[] terms, int[] scores, long lastModified, long size) {
+            this.automaton = automaton;
+            this.terms = terms;
+            this.scores = scores;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        CompiledTerms withStamp(long[] stamp) {
+            return new CompiledTerms(automaton, terms, scores, stamp[0], stamp[1]);
+        }
+    }
+
+    /**
+     * 词典命中结果
+     */
+    public static class TermMatch {
+        private final List<String> terms;
+        private final int score;
+
+        TermMatch(List<String> terms, int score) {
+            this.terms = terms;
+            this.score = score;
+        }
+
+        /**
+         * 命中的词(小写)
+         */
+        public List<String> getTerms() {
+            return terms;
+        }
+
+        /**
+         * 命中词中最高的风险分
+         */
+        public int getScore() {
+            return score;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.example.software.financeapp.model.entity.User;
 import com.example.software.financeapp.model.enums.SavingsPriority;
 import com.example.software.financeapp.model.enums.TransactionType;
 import com.example.software.financeapp.service.ApiService;
+import com.example.software.financeapp.util.FenAccumulator;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -14,7 +15,6 @@ import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 智能储蓄计划服务 - 提供分层储蓄建议和管理
@@ -121,27 +121,22 @@ public class SavingsPlanService {
             // 获取用户最近几个月的交易记录
             LocalDate endDate = LocalDate.now();
             LocalDate startDate = endDate.minusMonths(months);
-            List<Transaction> transactions = apiService.getTransactions(userId, 0, 1000);
+            // 只查询指定日期范围内的记录
+            List<Transaction> filteredTransactions = apiService.getTransactionsBetween(userId, startDate, endDate);
 
-            // 过滤交易记录，只保留指定日期范围内的记录
-            List<Transaction> filteredTransactions = transactions.stream()
-                    .filter(t -> {
-                        LocalDate transactionDate = t.getTransactionDate().toLocalDate();
-                        return !transactionDate.isBefore(startDate) && !transactionDate.isAfter(endDate);
-                    })
-                    .collect(Collectors.toList());
-
-            // 计算月均收入和支出
-            BigDecimal totalIncome = BigDecimal.ZERO;
-            BigDecimal totalExpense = BigDecimal.ZERO;
+            // 计算收入和支出总额，按分累加
+            FenAccumulator incomeTotal = new FenAccumulator();
+            FenAccumulator expenseTotal = new FenAccumulator();
 
             for (Transaction transaction : filteredTransactions) {
                 if (transaction.getType() == TransactionType.INCOME) {
-                    totalIncome = totalIncome.add(transaction.getAmount());
+                    incomeTotal.add(transaction.getAmount());
                 } else if (transaction.getType() == TransactionType.EXPENSE) {
-                    totalExpense = totalExpense.add(transaction.getAmount());
+                    expenseTotal.add(transaction.getAmount());
                 }
             }
+            BigDecimal totalIncome = incomeTotal.get(0);
+            BigDecimal totalExpense = expenseTotal.get(0);
 
             // 计算月均收入和支出
             BigDecimal monthlyIncome = totalIncome.divide(BigDecimal.valueOf(months), 2, RoundingMode.HALF_UP);
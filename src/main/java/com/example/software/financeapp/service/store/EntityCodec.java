@@ -0,0 +1,24 @@
+package com.example.software.financeapp.service.store;
+
+import org.json.JSONObject;
+
+/**
+ * 实体编解码器 - 负责实体与日志记录(JSON)之间的相互转换
+ * @param <T> 实体类型
+ */
+public interface EntityCodec<T> {
+
+    /**
+     * 将实体编码为JSON对象
+     * @param entity 实体
+     * @return JSON对象
+     */
+    JSONObject encode(T entity);
+
+    /**
+     * 从JSON对象解码实体
+     * @param json JSON对象
+     * @return 实体
+     */
+    T decode(JSONObject json);
+}
@@ -0,0 +1,168 @@
+package com.example.software.financeapp.service.store;
+
+import com.example.software.financeapp.model.entity.Category;
+import com.example.software.financeapp.model.entity.SavingsGoal;
+import com.example.software.financeapp.model.entity.SavingsTier;
+import com.example.software.financeapp.model.entity.Transaction;
+import com.example.software.financeapp.model.entity.User;
+import com.example.software.financeapp.model.enums.SavingsPriority;
+import com.example.software.financeapp.model.enums.TransactionType;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * 实体编解码器集合
+ * 关联实体(类别、用户、储蓄层级)只保存ID，解码时通过传入的查找函数还原
+ */
+public final class EntityCodecs {
+
+    private EntityCodecs() {
+    }
+
+    /**
+     * 交易编解码器
+     * @param categoryLookup 类别查找函数
+     * @param userLookup 用户查找函数
+     */
+    public static EntityCodec<Transaction> transactions(Function<Long, Category> categoryLookup,
+                                                        Function<Long, User> userLookup) {
+        return new EntityCodec<>() {
+            @Override
+            public JSONObject encode(Transaction t) {
+                JSONObject json = new JSONObject();
+                json.put("id", t.getId());
+                json.putOpt("amount", toText(t.getAmount()));
+                json.putOpt("type", t.getType() != null ? t.getType().name() : null);
+                json.putOpt("description", t.getDescription());
+                json.putOpt("transactionDate", toText(t.getTransactionDate()));
+                json.putOpt("categoryId", t.getCategory() != null ? t.getCategory().getId() : null);
+                json.putOpt("userId", t.getUser() != null ? t.getUser().getId() : null);
+                json.putOpt("source", t.getSource());
+                json.putOpt("merchant", t.getMerchant());
+                json.putOpt("rawData", t.getRawData());
+                json.putOpt("aiConfidenceScore", toText(t.getAiConfidenceScore()));
+                json.put("categoryConfirmed", t.isCategoryConfirmed());
+                json.putOpt("createdAt", toText(t.getCreatedAt()));
+                json.putOpt("updatedAt", toText(t.getUpdatedAt()));
+                json.putOpt("location", t.getLocation());
+                json.put("fraudulent", t.isFraudulent());
+                json.put("verified", t.isVerified());
+                return json;
+            }
+
+            @Override
+            public Transaction decode(JSONObject json) {
+                return Transaction.builder()
+                        .id(json.getLong("id"))
+                        .amount(toDecimal(json.optString("amount", null)))
+                        .type(json.has("type") ? TransactionType.valueOf(json.getString("type")) : null)
+                        .description(json.optString("description", null))
+                        .transactionDate(toDateTime(json.optString("transactionDate", null)))
+                        .category(json.has("categoryId") ? categoryLookup.apply(json.getLong("categoryId")) : null)
+                        .user(json.has("userId") ? userLookup.apply(json.getLong("userId")) : null)
+                        .source(json.optString("source", null))
+                        .merchant(json.optString("merchant", null))
+                        .rawData(json.optString("rawData", null))
+                        .aiConfidenceScore(toDecimal(json.optString("aiConfidenceScore", null)))
+                        .categoryConfirmed(json.optBoolean("categoryConfirmed"))
+                        .createdAt(toDateTime(json.optString("createdAt", null)))
+                        .updatedAt(toDateTime(json.optString("updatedAt", null)))
+                        .location(json.optString("location", null))
+                        .fraudulent(json.optBoolean("fraudulent"))
+                        .verified(json.optBoolean("verified"))
+                        .build();
+            }
+        };
+    }
+
+    /**
+     * 储蓄层级编解码器
+     */
+    public static EntityCodec<SavingsTier> savingsTiers() {
+        return new EntityCodec<>() {
+            @Override
+            public JSONObject encode(SavingsTier tier) {
+                JSONObject json = new JSONObject();
+                json.put("id", tier.getId());
+                json.putOpt("userId", tier.getUserId());
+                json.putOpt("name", tier.getName());
+                json.putOpt("description", tier.getDescription());
+                json.putOpt("priority", tier.getPriority() != null ? tier.getPriority().name() : null);
+                json.putOpt("allocationPercentage", toText(tier.getAllocationPercentage()));
+                json.put("active", tier.isActive());
+                return json;
+            }
+
+            @Override
+            public SavingsTier decode(JSONObject json) {
+                return new SavingsTier(
+                        json.getLong("id"),
+                        json.has("userId") ? json.getLong("userId") : null,
+                        json.optString("name", null),
+                        json.optString("description", null),
+                        json.has("priority") ? SavingsPriority.valueOf(json.getString("priority")) : null,
+                        toDecimal(json.optString("allocationPercentage", null)),
+                        json.optBoolean("active"));
+            }
+        };
+    }
+
+    /**
+     * 储蓄目标编解码器
+     * @param tierLookup 储蓄层级查找函数
+     */
+    public static EntityCodec<SavingsGoal> savingsGoals(Function<Long, SavingsTier> tierLookup) {
+        return new EntityCodec<>() {
+            @Override
+            public JSONObject encode(SavingsGoal goal) {
+                JSONObject json = new JSONObject();
+                json.put("id", goal.getId());
+                json.putOpt("userId", goal.getUserId());
+                json.putOpt("name", goal.getName());
+                json.putOpt("description", goal.getDescription());
+                json.putOpt("targetAmount", toText(goal.getTargetAmount()));
+                json.putOpt("currentAmount", toText(goal.getCurrentAmount()));
+                json.putOpt("targetDate", goal.getTargetDate() != null ? goal.getTargetDate().toString() : null);
+                json.putOpt("tierId", goal.getTier() != null ? goal.getTier().getId() : null);
+                json.put("completed", goal.isCompleted());
+                return json;
+            }
+
+            @Override
+            public SavingsGoal decode(JSONObject json) {
+                String targetDate = json.optString("targetDate", null);
+                BigDecimal currentAmount = toDecimal(json.optString("currentAmount", null));
+                return new SavingsGoal(
+                        json.getLong("id"),
+                        json.has("userId") ? json.getLong("userId") : null,
+                        json.optString("name", null),
+                        json.optString("description", null),
+                        toDecimal(json.optString("targetAmount", null)),
+                        currentAmount != null ? currentAmount : BigDecimal.ZERO,
+                        targetDate != null ? LocalDate.parse(targetDate) : null,
+                        json.has("tierId") ? tierLookup.apply(json.getLong("tierId")) : null,
+                        json.optBoolean("completed"));
+            }
+        };
+    }
+
+    private static String toText(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
+
+    private static String toText(LocalDateTime value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static BigDecimal toDecimal(String text) {
+        return text != null ? new BigDecimal(text) : null;
+    }
+
+    private static LocalDateTime toDateTime(String text) {
+        return text != null ? LocalDateTime.parse(text) : null;
+    }
+}
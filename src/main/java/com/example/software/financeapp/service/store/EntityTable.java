@@ -0,0 +1,494 @@
+package com.example.software.financeapp.service.store;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * 实体表 - 带主键索引和按用户有序索引的嵌入式存储
+ * 主键查找为O(1)，按用户查找为O(log n + k)；
+ * 配置了日志文件时，每次写操作都会追加到本地磁盘，启动时重放恢复
+ * @param <T> 实体类型
+ */
+public class EntityTable<T> {
+
+    // 失效记录超过有效记录的倍数时触发压缩
+    private static final int COMPACTION_RATIO = 2;
+    private static final int COMPACTION_MIN_RECORDS = 1000;
+
+    private final String name;
+    private final Function<T, Long> idOf;
+    private final Function<T, Long> ownerOf;
+    private final ToLongFunction<T> sortValueOf;
+    private final Comparator<IndexKey> keyOrder;
+    private final EntityCodec<T> codec;
+    private final JournalFile journal;
+
+    // 主键索引
+    private final Map<Long, Slot<T>> primaryIndex = new HashMap<>();
+
+    // 按用户的有序索引
+    private final Map<Long, TreeMap<IndexKey, T>> ownerIndex = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 变更监听器(在写锁内回调)
+    private final List<Listener<T>> listeners = new CopyOnWriteArrayList<>();
+
+    private long maxId;
+
+    /**
+     * 构造函数
+     * @param name 表名(用于日志输出)
+     * @param idOf 主键提取函数
+     * @param ownerOf 所属用户提取函数
+     * @param sortValueOf 用户索引内的排序值提取函数
+     * @param newestFirst 是否按排序值降序排列
+     * @param codec 编解码器
+     * @param journal 日志文件，为null时仅保存在内存中
+     */
+    public EntityTable(String name,
+                       Function<T, Long> idOf,
+                       Function<T, Long> ownerOf,
+                       ToLongFunction<T> sortValueOf,
+                       boolean newestFirst,
+                       EntityCodec<T> codec,
+                       JournalFile journal) {
+        this.name = name;
+        this.idOf = idOf;
+        this.ownerOf = ownerOf;
+        this.sortValueOf = sortValueOf;
+        this.keyOrder = newestFirst ? Comparator.<IndexKey>naturalOrder().reversed() : Comparator.naturalOrder();
+        this.codec = codec;
+        this.journal = journal;
+    }
+
+    /**
+     * 添加变更监听器，需在 {@link #open()} 之前添加才能收到恢复的数据
+     */
+    public void addListener(Listener<T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 从日志文件恢复数据
+     */
+    public void open() {
+        if (journal == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            journal.replay(record -> {
+                if ("del".equals(record.getString("op"))) {
+                    removeFromIndexes(record.getLong("id"));
+                } else {
+                    addToIndexes(codec.decode(record.getJSONObject("data")));
+                }
+            });
+            System.out.println("已从本地存储加载" + name + ": " + primaryIndex.size() + " 条记录");
+            compactIfNeeded();
+        } catch (IOException e) {
+            System.err.println("加载本地存储失败(" + name + "): " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 根据主键查找
+     */
+    public T get(Long id) {
+        if (id == null) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            Slot<T> slot = primaryIndex.get(id);
+            return slot != null ? slot.value : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取指定用户的全部实体(按索引顺序)
+     */
+    public List<T> findByOwner(Long owner) {
+        lock.readLock().lock();
+        try {
+            TreeMap<IndexKey, T> entries = ownerIndex.get(owner);
+            return entries != null ? new ArrayList<>(entries.values()) : new ArrayList<>();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取指定用户的实体数量
+     */
+    public int countByOwner(Long owner) {
+        lock.readLock().lock();
+        try {
+            TreeMap<IndexKey, T> entries = ownerIndex.get(owner);
+            return entries != null ? entries.size() : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按偏移量分页获取指定用户的实体
+     * 跳过前面的记录需要O(offset)，深分页请使用 {@link #findPageByOwnerBetweenAfter}
+     * @param owner 用户ID
+     * @param pageIndex 页码(从0开始)
+     * @param pageSize 每页大小
+     */
+    public Page<T> findPageByOwner(Long owner, int pageIndex, int pageSize) {
+        if (pageIndex < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid page: index=" + pageIndex + ", size=" + pageSize);
+        }
+
+        lock.readLock().lock();
+        try {
+            TreeMap<IndexKey, T> entries = ownerIndex.get(owner);
+            if (entries == null) {
+                return new Page<>(new ArrayList<>(), 0, pageIndex, pageSize, false);
+            }
+
+            long offset = (long) pageIndex * pageSize;
+            List<T> items = new ArrayList<>(Math.min(pageSize, entries.size()));
+            long position = 0;
+            for (T entity : entries.values()) {
+                if (position++ < offset) {
+                    continue;
+                }
+                if (items.size() == pageSize) {
+                    break;
+                }
+                items.add(entity);
+            }
+            boolean hasNext = offset + items.size() < entries.size();
+            return new Page<>(items, entries.size(), pageIndex, pageSize, hasNext);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取指定用户排序值在[from, to]区间内的实体(按索引顺序)，耗时O(log n + k)
+     */
+    public List<T> findByOwnerBetween(Long owner, long fromSortValue, long toSortValue) {
+        lock.readLock().lock();
+        try {
+            TreeMap<IndexKey, T> entries = ownerIndex.get(owner);
+            if (entries == null || fromSortValue > toSortValue) {
+                return new ArrayList<>();
+            }
+
+            return new ArrayList<>(range(entries, fromSortValue, toSortValue).values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按游标(键集)分页获取指定用户排序值在[from, to]区间内且满足条件的实体
+     * 从游标处按索引顺序检查，凑满一页即停止，只保留一页数据；不统计总数
+     * @param owner 用户ID
+     * @param fromSortValue 排序值下限(含)
+     * @param toSortValue 排序值上限(含)
+     * @param filter 过滤条件
+     * @param afterSortValue 上一页最后一条记录的排序值
+     * @param afterId 上一页最后一条记录的主键，为null时从区间内第一条开始
+     * @param pageSize 每页大小
+     */
+    public Page<T> findPageByOwnerBetweenAfter(Long owner, long fromSortValue, long toSortValue,
+                                               Predicate<? super T> filter,
+                                               long afterSortValue, Long afterId, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+
+        lock.readLock().lock();
+        try {
+            TreeMap<IndexKey, T> entries = ownerIndex.get(owner);
+            if (entries == null || fromSortValue > toSortValue) {
+                return new Page<>(new ArrayList<>(), Page.UNKNOWN_COUNT, Page.NO_PAGE_INDEX, pageSize, false);
+            }
+
+            NavigableMap<IndexKey, T> remaining = range(entries, fromSortValue, toSortValue);
+            if (afterId != null) {
+                remaining = remaining.tailMap(new IndexKey(afterSortValue, afterId), false);
+            }
+            List<T> items = new ArrayList<>(Math.min(pageSize, entries.size()));
+            boolean hasNext = false;
+            for (T entity : remaining.values()) {
+                if (!filter.test(entity)) {
+                    continue;
+                }
+                if (items.size() == pageSize) {
+                    hasNext = true;
+                    break;
+                }
+                items.add(entity);
+            }
+            return new Page<>(items, Page.UNKNOWN_COUNT, Page.NO_PAGE_INDEX, pageSize, hasNext);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按索引顺序遍历指定用户排序值在[from, to]区间内的实体，不复制结果，耗时O(log n + k)
+     * 回调在读锁内执行，不能修改本表
+     */
+    public void forEachByOwnerBetween(Long owner, long fromSortValue, long toSortValue, Consumer<? super T> action) {
+        lock.readLock().lock();
+        try {
+            TreeMap<IndexKey, T> entries = ownerIndex.get(owner);
+            if (entries == null || fromSortValue > toSortValue) {
+                return;
+            }
+            range(entries, fromSortValue, toSortValue).values().forEach(action);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 排序值在[from, to]区间内的索引视图
+     */
+    private NavigableMap<IndexKey, T> range(TreeMap<IndexKey, T> entries, long fromSortValue, long toSortValue) {
+        IndexKey low = new IndexKey(fromSortValue, Long.MIN_VALUE);
+        IndexKey high = new IndexKey(toSortValue, Long.MAX_VALUE);
+        return keyOrder.compare(low, high) <= 0
+                ? entries.subMap(low, true, high, true)
+                : entries.subMap(high, true, low, true);
+    }
+
+    /**
+     * 获取全部实体
+     */
+    public List<T> values() {
+        lock.readLock().lock();
+        try {
+            List<T> result = new ArrayList<>(primaryIndex.size());
+            for (Slot<T> slot : primaryIndex.values()) {
+                result.add(slot.value);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 插入或更新实体
+     */
+    public T put(T entity) {
+        putAll(Collections.singletonList(entity));
+        return entity;
+    }
+
+    /**
+     * 批量插入或更新实体，整批只写一次磁盘
+     */
+    public void putAll(Collection<T> entities) {
+        lock.writeLock().lock();
+        try {
+            List<JSONObject> records = new ArrayList<>(entities.size());
+            for (T entity : entities) {
+                addToIndexes(entity);
+                if (journal != null) {
+                    records.add(new JSONObject().put("op", "put").put("data", codec.encode(entity)));
+                }
+            }
+            writeJournal(records);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除实体
+     * @return 是否删除成功
+     */
+    public boolean remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            if (!removeFromIndexes(id)) {
+                return false;
+            }
+            if (journal != null) {
+                writeJournal(Collections.singletonList(new JSONObject().put("op", "del").put("id", id)));
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 分配下一个主键
+     */
+    public long nextId() {
+        lock.writeLock().lock();
+        try {
+            return ++maxId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 获取实体数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return primaryIndex.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addToIndexes(T entity) {
+        Long id = idOf.apply(entity);
+        if (id == null) {
+            throw new IllegalArgumentException("Cannot store " + name + " without ID");
+        }
+
+        // 实体可能已被外部修改，先按旧索引键移除
+        removeFromIndexes(id);
+
+        Long owner = ownerOf.apply(entity);
+        IndexKey key = new IndexKey(sortValueOf.applyAsLong(entity), id);
+        primaryIndex.put(id, new Slot<>(entity, owner, key));
+        if (owner != null) {
+            ownerIndex.computeIfAbsent(owner, k -> new TreeMap<>(keyOrder)).put(key, entity);
+        }
+        maxId = Math.max(maxId, id);
+
+        for (Listener<T> listener : listeners) {
+            listener.onPut(entity);
+        }
+    }
+
+    private boolean removeFromIndexes(Long id) {
+        Slot<T> slot = primaryIndex.remove(id);
+        if (slot == null) {
+            return false;
+        }
+
+        if (slot.owner != null) {
+            TreeMap<IndexKey, T> entries = ownerIndex.get(slot.owner);
+            if (entries != null) {
+                entries.remove(slot.key);
+                if (entries.isEmpty()) {
+                    ownerIndex.remove(slot.owner);
+                }
+            }
+        }
+
+        for (Listener<T> listener : listeners) {
+            listener.onRemove(id);
+        }
+        return true;
+    }
+
+    private void writeJournal(List<JSONObject> records) {
+        if (journal == null || records.isEmpty()) {
+            return;
+        }
+
+        try {
+            journal.append(records);
+            compactIfNeeded();
+        } catch (IOException e) {
+            System.err.println("写入本地存储失败(" + name + "): " + e.getMessage());
+        }
+    }
+
+    private void compactIfNeeded() throws IOException {
+        long recordCount = journal.getRecordCount();
+        if (recordCount < COMPACTION_MIN_RECORDS || recordCount <= (long) primaryIndex.size() * COMPACTION_RATIO) {
+            return;
+        }
+
+        List<JSONObject> snapshot = new ArrayList<>(primaryIndex.size());
+        for (Slot<T> slot : primaryIndex.values()) {
+            snapshot.add(new JSONObject().put("op", "put").put("data", codec.encode(slot.value)));
+        }
+        journal.rewrite(snapshot);
+        System.out.println("已压缩本地存储(" + name + "): " + recordCount + " -> " + snapshot.size() + " 条记录");
+    }
+
+    /**
+     * 变更监听器 - 用于维护派生数据
+     * 更新实体时先回调移除再回调写入；实体对象可能已被外部修改，监听器需自行记录移除时需要的旧值
+     */
+    public interface Listener<T> {
+        /**
+         * 实体写入后回调
+         */
+        void onPut(T entity);
+
+        /**
+         * 实体移除后回调
+         * @param id 主键
+         */
+        void onRemove(Long id);
+    }
+
+    /**
+     * 有序索引键 - 排序值相同时按主键排序
+     */
+    static final class IndexKey implements Comparable<IndexKey> {
+        final long sortValue;
+        final long id;
+
+        IndexKey(long sortValue, long id) {
+            this.sortValue = sortValue;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(IndexKey other) {
+            int result = Long.compare(sortValue, other.sortValue);
+            return result != 0 ? result : Long.compare(id, other.id);
+        }
+    }
+
+    /**
+     * 主键索引槽 - 记录实体入库时的索引键，便于更新时精确移除
+     */
+    private static final class Slot<T> {
+        final T value;
+        final Long owner;
+        final IndexKey key;
+
+        Slot(T value, Long owner, IndexKey key) {
+            this.value = value;
+            this.owner = owner;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.software.financeapp.service.store;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * 追加写日志文件 - 每行一条JSON记录
+ * 写入只追加到文件末尾，启动时按顺序重放即可恢复全部数据；
+ * 失效记录过多时通过 {@link #rewrite(Collection)} 压缩为快照
+ */
+public class JournalFile {
+
+    private final Path path;
+
+    // 追加写入器，延迟打开
+    private BufferedWriter writer;
+
+    // 当前文件中的记录数(含已失效的记录)
+    private long recordCount;
+
+    public JournalFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * 按顺序重放日志中的全部记录
+     * @param handler 记录处理器
+     * @throws IOException 读取异常
+     */
+    public synchronized void replay(Consumer<JSONObject> handler) throws IOException {
+        recordCount = 0;
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    handler.accept(new JSONObject(line));
+                    recordCount++;
+                } catch (JSONException e) {
+                    // 最后一行可能因异常退出而写了一半，跳过即可
+                    System.err.println("跳过损坏的日志记录: " + path.getFileName() + " 第" + lineNumber + "行");
+                }
+            }
+        }
+    }
+
+    /**
+     * 批量追加记录，整批只刷盘一次
+     * @param records 记录列表
+     * @throws IOException 写入异常
+     */
+    public synchronized void append(Collection<JSONObject> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        BufferedWriter out = openWriter();
+        for (JSONObject record : records) {
+            out.write(record.toString());
+            out.newLine();
+        }
+        out.flush();
+        recordCount += records.size();
+    }
+
+    /**
+     * 用给定的记录集合重写日志(压缩)
+     * 先写入临时文件再原子替换，避免中途失败丢失数据
+     * @param records 当前有效记录
+     * @throws IOException 写入异常
+     */
+    public synchronized void rewrite(Collection<JSONObject> records) throws IOException {
+        close();
+
+        Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (JSONObject record : records) {
+                out.write(record.toString());
+                out.newLine();
+            }
+        }
+        Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        recordCount = records.size();
+    }
+
+    /**
+     * 获取日志中的记录数
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * 关闭写入器
+     */
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private BufferedWriter openWriter() throws IOException {
+        if (writer == null) {
+            Files.createDirectories(path.getParent());
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        return writer;
+    }
+}
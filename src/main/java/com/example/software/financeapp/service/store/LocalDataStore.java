@@ -0,0 +1,35 @@
+package com.example.software.financeapp.service.store;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 本地数据存储配置
+ * 数据目录默认为 ~/.financeapp/data，可通过系统属性 financeapp.data.dir 覆盖
+ */
+public final class LocalDataStore {
+
+    private static final String DATA_DIR_PROPERTY = "financeapp.data.dir";
+
+    private LocalDataStore() {
+    }
+
+    /**
+     * 获取数据目录
+     */
+    public static Path getDataDirectory() {
+        String configured = System.getProperty(DATA_DIR_PROPERTY);
+        if (configured != null && !configured.isBlank()) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".financeapp", "data");
+    }
+
+    /**
+     * 获取数据目录下的日志文件
+     * @param fileName 文件名
+     */
+    public static JournalFile journal(String fileName) {
+        return new JournalFile(getDataDirectory().resolve(fileName));
+    }
+}
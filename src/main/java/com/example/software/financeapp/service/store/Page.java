@@ -0,0 +1,76 @@
+package com.example.software.financeapp.service.store;
+
+import java.util.List;
+
+/**
+ * 分页查询结果
+ * @param <T> 实体类型
+ */
+public class Page<T> {
+
+    // 按游标分页时没有页码
+    public static final int NO_PAGE_INDEX = -1;
+
+    // 带过滤条件按游标分页时不统计总数
+    public static final long UNKNOWN_COUNT = -1;
+
+    private final List<T> items;
+    private final long totalCount;
+    private final int pageIndex;
+    private final int pageSize;
+    private final boolean hasNext;
+
+    public Page(List<T> items, long totalCount, int pageIndex, int pageSize, boolean hasNext) {
+        this.items = items;
+        this.totalCount = totalCount;
+        this.pageIndex = pageIndex;
+        this.pageSize = pageSize;
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * 获取本页数据
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * 获取总记录数，未统计时为 {@link #UNKNOWN_COUNT}
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 获取页码(从0开始)，按游标分页时为 {@link #NO_PAGE_INDEX}
+     */
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * 获取总页数
+     */
+    public int getTotalPages() {
+        return (int) ((totalCount + pageSize - 1) / pageSize);
+    }
+
+    /**
+     * 是否还有下一页
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /**
+     * 获取本页最后一条记录，可作为下一页的游标
+     */
+    public T getLast() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+}
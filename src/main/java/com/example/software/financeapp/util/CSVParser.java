@@ -7,21 +7,29 @@ import com.example.software.financeapp.model.enums.TransactionType;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDate;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 
 /**
  * CSV文件解析器
@@ -37,11 +45,27 @@ public class CSVParser {
         CUSTOM    // 自定义格式
     }
 
+    // 编码探测读取的文件头字节数
+    private static final int CHARSET_SNIFF_BYTES = 64 * 1024;
+
+    // 流式读取缓冲区大小
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    // 并行解析时分块大小的上下限，小于两个分块的文件直接使用流式解析
+    private static final int MIN_CHUNK_BYTES = 1024 * 1024;
+    private static final int MAX_CHUNK_BYTES = 64 * 1024 * 1024;
+
+    // 并行解析时每个工作线程分到的分块数，便于负载均衡
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // 导入报告中最多保留的错误明细数，避免错误行过多时占用大量内存
+    private static final int MAX_REPORTED_ERRORS = 100;
+
     // CSV文件列索引映射
     private Map<String, Integer> columnMapping;
 
-    // 日期时间格式
-    private DateTimeFormatter dateFormatter;
+    // 日期时间解析器，首次解析时根据前几行确定解析方式
+    private TransactionDateParser dateParser = new TransactionDateParser(null);
 
     // CSV源类型
     private CSVSourceType sourceType;
@@ -139,77 +163,300 @@ public class CSVParser {
     public List<Transaction> parseFile(File file) throws Exception {
         List<Transaction> transactions = new ArrayList<>();
 
-        // 尝试不同的字符集，优先使用GBK，因为CSV文件经常以GBK编码保存
-        Charset[] charsets = {Charset.forName("GBK"), StandardCharsets.UTF_8, Charset.forName("GB18030")};
+        parseFile(file, transactions::add);
+
+        if (transactions.isEmpty()) {
+            System.err.println("无法解析CSV文件，请检查文件格式和编码");
+        }
+
+        return transactions;
+    }
+
+    /**
+     * 流式解析CSV文件
+     * 编码只在开始时根据文件头探测一次，逐行解析并立即交给sink处理，
+     * 内存占用与文件大小无关；单行出错只记录到报告中，不会中断整个文件
+     * @param file CSV文件
+     * @param sink 交易记录接收者
+     * @return 导入报告
+     * @throws IOException 读取异常
+     */
+    public ImportReport parseFile(File file, Consumer<Transaction> sink) throws IOException {
+        Charset charset = detectCharset(file);
+        ImportReport report = new ImportReport(charset);
 
-        for (Charset charset : charsets) {
-            transactions.clear();
-            boolean success = true;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), charset), READ_BUFFER_SIZE)) {
 
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(new FileInputStream(file), charset))) {
+            String line;
+            int lineNumber = 0;
 
-                String line;
-                boolean isFirstLine = true;
-                int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
 
-                while ((line = reader.readLine()) != null) {
-                    lineNumber++;
+                // 跳过CSV头行和空行
+                if (lineNumber == 1 || line.isBlank()) {
+                    continue;
+                }
 
-                    // 跳过CSV头行
-                    if (isFirstLine) {
-                        isFirstLine = false;
-                        continue;
-                    }
+                Transaction transaction;
+                try {
+                    transaction = parseLine(line);
+                } catch (Exception e) {
+                    report.addError(lineNumber, line, e.getMessage());
+                    continue;
+                }
 
-                    try {
-                        // 解析CSV行为字段数组
-                        String[] fields = parseCsvLine(line);
-
-                        // 根据源类型解析交易记录
-                        Transaction transaction = null;
-                        switch (sourceType) {
-                            case ALIPAY:
-                                transaction = parseAlipayTransaction(fields);
-                                break;
-                            case WECHAT:
-                                transaction = parseWechatTransaction(fields);
-                                break;
-                            case BANK:
-                                transaction = parseBankTransaction(fields);
-                                break;
-                            default:
-                                // 自定义格式，需要实现
-                                break;
-                        }
-
-                        if (transaction != null) {
-                            transactions.add(transaction);
-                            System.out.println("成功解析第" + lineNumber + "行交易记录");
-                        }
-                    } catch (Exception e) {
-                        System.err.println("解析第" + lineNumber + "行时出错: " + line);
-                        System.err.println("错误信息: " + e.getMessage());
-                        success = false;
-                        break;
-                    }
+                if (transaction != null) {
+                    sink.accept(transaction);
+                    report.parsedRows++;
+                } else {
+                    report.skippedRows++;
                 }
+            }
+        }
+
+        System.out.println("使用" + charset.name() + "编码解析完成: 成功" + report.getParsedRows() +
+                "条, 跳过" + report.getSkippedRows() + "条, 错误" + report.getErrorCount() + "条");
+        return report;
+    }
 
-                if (success && !transactions.isEmpty()) {
-                    System.out.println("成功使用" + charset.name() + "编码解析 " + transactions.size() + " 条交易记录");
-                    return transactions;
+    /**
+     * 多线程分块解析CSV文件
+     * 文件按换行符(忽略引号内的换行)切分为多个字节区间，每个区间通过内存映射读取，
+     * 在ForkJoin线程池上并行解析，再按文件顺序合并，sink始终在调用线程上按原始行序被调用；
+     * 只有一个分块时直接在调用线程上解析
+     * @param file CSV文件
+     * @param sink 交易记录接收者
+     * @return 导入报告
+     * @throws IOException 读取异常
+     */
+    public ImportReport parseFileParallel(File file, Consumer<Transaction> sink) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        Charset charset = detectCharset(file);
+        ImportReport report = new ImportReport(charset);
+        boolean[] mappedColumns = getMappedColumns();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[] boundaries = findChunkBoundaries(channel, pool.getParallelism() * CHUNKS_PER_THREAD);
+            boolean parallel = boundaries.length > 2 && pool.getParallelism() > 1;
+
+            // 提交所有分块
+            List<ForkJoinTask<ChunkResult>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.length; i++) {
+                long start = boundaries[i];
+                long end = boundaries[i + 1];
+                ForkJoinTask<ChunkResult> task = ForkJoinTask.adapt(
+                        () -> parseChunk(channel, start, end, charset, mappedColumns));
+                tasks.add(parallel ? pool.submit(task) : task);
+            }
+
+            // 按文件顺序合并结果，行号从头行之后开始累计
+            int lineOffset = 1;
+            for (ForkJoinTask<ChunkResult> task : tasks) {
+                ChunkResult chunk = parallel ? task.join() : task.invoke();
+                chunk.transactions.forEach(sink);
+                report.merge(chunk.report, lineOffset);
+                lineOffset += chunk.recordCount;
+            }
+        } catch (RuntimeException e) {
+            // 分块读取失败时ForkJoinTask会把IOException包装为非受检异常
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+
+        System.out.println("使用" + charset.name() + "编码分块解析完成: 成功" + report.getParsedRows() +
+                "条, 跳过" + report.getSkippedRows() + "条, 错误" + report.getErrorCount() + "条");
+        return report;
+    }
+
+    /**
+     * 计算分块边界
+     * 顺序扫描一遍字节并跟踪引号状态，只在引号外的换行符之后切分；
+     * GBK/GB18030和UTF-8的多字节字符都不会包含引号和换行符的字节值，因此可以直接按字节扫描
+     * @param channel 文件通道
+     * @param chunkCount 期望的分块数
+     * @return 分块起始位置数组，最后一个元素为文件大小；第一个分块从头行之后开始
+     */
+    private long[] findChunkBoundaries(FileChannel channel, int chunkCount) throws IOException {
+        long size = channel.size();
+        long chunkSize = Math.min(MAX_CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES, size / chunkCount));
+
+        List<Long> boundaries = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        boolean inQuotes = false;
+        long nextBoundary = -1;
+        long position = 0;
+
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            for (int i = 0; i < read; i++) {
+                byte b = bytes[i];
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    long recordStart = position + i + 1;
+                    if (nextBoundary < 0 || recordStart >= nextBoundary) {
+                        // 第一个边界在头行之后
+                        boundaries.add(recordStart);
+                        nextBoundary = recordStart + chunkSize;
+                    }
                 }
+            }
+            position += read;
+            buffer.clear();
+        }
+
+        if (boundaries.isEmpty() || boundaries.get(boundaries.size() - 1) < size) {
+            boundaries.add(size);
+        }
+        if (boundaries.size() == 1) {
+            // 只有头行
+            boundaries.add(0, size);
+        }
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * 解析一个分块
+     * 分块通过内存映射读取，字段只记录偏移，仅为列映射中用到的列生成字符串
+     * @param channel 文件通道
+     * @param start 起始位置(含)
+     * @param end 结束位置(不含)
+     * @param charset 文件编码
+     * @param mappedColumns 需要生成字符串的列
+     */
+    private ChunkResult parseChunk(FileChannel channel, long start, long end, Charset charset,
+                                   boolean[] mappedColumns) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        CsvTokenizer tokenizer = new CsvTokenizer(buffer);
+        ChunkResult result = new ChunkResult(charset);
+
+        // 字段数组在行之间复用
+        String[] fields = new String[0];
+
+        while (tokenizer.nextRecord()) {
+            result.recordCount++;
+            if (tokenizer.isBlankRecord()) {
+                continue;
+            }
+
+            int fieldCount = tokenizer.getFieldCount();
+            if (fields.length != fieldCount) {
+                fields = new String[fieldCount];
+            }
+            for (int i = 0; i < fieldCount; i++) {
+                fields[i] = i < mappedColumns.length && mappedColumns[i] ? tokenizer.field(i, charset) : "";
+            }
+            String line = tokenizer.recordText(charset);
+
+            Transaction transaction;
+            try {
+                transaction = parseFields(fields, line);
             } catch (Exception e) {
-                System.err.println("使用" + charset.name() + "编码解析文件时出错: " + e.getMessage());
+                result.report.addError(result.recordCount, line, e.getMessage());
+                continue;
+            }
+
+            if (transaction != null) {
+                result.transactions.add(transaction);
+                result.report.parsedRows++;
+            } else {
+                result.report.skippedRows++;
             }
         }
 
-        // 如果所有字符集都尝试失败
-        if (transactions.isEmpty()) {
-            System.err.println("无法解析CSV文件，请检查文件格式和编码");
+        return result;
+    }
+
+    /**
+     * 获取列映射中用到的列
+     * @return 按列索引标记是否需要生成字符串
+     */
+    private boolean[] getMappedColumns() {
+        int maxIndex = -1;
+        for (Integer index : columnMapping.values()) {
+            maxIndex = Math.max(maxIndex, index);
         }
 
-        return transactions;
+        boolean[] mapped = new boolean[maxIndex + 1];
+        for (Integer index : columnMapping.values()) {
+            if (index >= 0) {
+                mapped[index] = true;
+            }
+        }
+        return mapped;
+    }
+
+    /**
+     * 根据文件头探测文件编码
+     * 带BOM或能按UTF-8严格解码的文件视为UTF-8，否则按GB18030(兼容GBK)处理
+     * @param file CSV文件
+     * @return 文件编码
+     * @throws IOException 读取异常
+     */
+    public static Charset detectCharset(File file) throws IOException {
+        byte[] head;
+        try (InputStream in = new FileInputStream(file)) {
+            head = in.readNBytes(CHARSET_SNIFF_BYTES);
+        }
+
+        // UTF-8 BOM
+        if (head.length >= 3 && head[0] == (byte) 0xEF && head[1] == (byte) 0xBB && head[2] == (byte) 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+        // 未读到文件末尾时，末尾被截断的多字节字符不算错误
+        boolean endOfInput = head.length < CHARSET_SNIFF_BYTES;
+        CoderResult result = decoder.decode(ByteBuffer.wrap(head), CharBuffer.allocate(head.length), endOfInput);
+        if (!result.isError()) {
+            return StandardCharsets.UTF_8;
+        }
+
+        return Charset.forName("GB18030");
+    }
+
+    /**
+     * 解析一行CSV文本为交易记录
+     * @param line CSV行文本
+     * @return 交易对象，不是交易的行返回null
+     * @throws IllegalArgumentException 行格式错误，由调用方记入导入报告
+     */
+    private Transaction parseLine(String line) {
+        return parseFields(parseCsvLine(line), line);
+    }
+
+    /**
+     * 根据源类型把字段数组解析为交易记录
+     * @param fields 字段数组
+     * @param line 原始行文本
+     * @return 交易对象，不是交易的行返回null
+     * @throws IllegalArgumentException 行格式错误，由调用方记入导入报告
+     */
+    private Transaction parseFields(String[] fields, String line) {
+        switch (sourceType) {
+            case ALIPAY:
+                return parseAlipayTransaction(fields, line);
+            case WECHAT:
+                return parseWechatTransaction(fields, line);
+            case BANK:
+                return parseBankTransaction(fields, line);
+            default:
+                // 自定义格式，需要实现
+                return null;
+        }
     }
 
     /**
@@ -256,65 +503,9 @@ public class CSVParser {
             return LocalDateTime.now();
         }
 
-        dateStr = dateStr.trim();
-
-        // 常见日期格式
-        String[] patterns = {
-                "yyyy/M/d HH:mm",
-                "yyyy/M/d H:mm",
-                "yyyy/MM/dd HH:mm",
-                "yyyy/MM/dd H:mm",
-                "yyyy-M-d HH:mm",
-                "yyyy-M-d H:mm",
-                "yyyy-MM-dd HH:mm",
-                "yyyy-MM-dd H:mm",
-                "yyyy/M/d",
-                "yyyy/MM/dd",
-                "yyyy-M-d",
-                "yyyy-MM-dd"
-        };
-
-        // 尝试使用各种格式解析
-        for (String pattern : patterns) {
-            try {
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern);
-
-                // 如果格式不包含时间，添加默认时间
-                if (!pattern.contains("H")) {
-                    LocalDate date = LocalDate.parse(dateStr, formatter);
-                    return LocalDateTime.of(date, LocalTime.of(0, 0));
-                } else {
-                    return LocalDateTime.parse(dateStr, formatter);
-                }
-            } catch (DateTimeParseException e) {
-                // 继续尝试下一个格式
-            }
-        }
-
-        // 尝试使用正则表达式提取日期时间
-        try {
-            Pattern datePattern = Pattern.compile("(\\d{4})[-/](\\d{1,2})[-/](\\d{1,2})(?:\\s+(\\d{1,2}):(\\d{1,2})(?::(\\d{1,2}))?)?");
-            Matcher matcher = datePattern.matcher(dateStr);
-
-            if (matcher.find()) {
-                int year = Integer.parseInt(matcher.group(1));
-                int month = Integer.parseInt(matcher.group(2));
-                int day = Integer.parseInt(matcher.group(3));
-
-                int hour = 0, minute = 0, second = 0;
-                if (matcher.group(4) != null) {
-                    hour = Integer.parseInt(matcher.group(4));
-                    minute = Integer.parseInt(matcher.group(5));
-                    if (matcher.group(6) != null) {
-                        second = Integer.parseInt(matcher.group(6));
-                    }
-                }
-
-                return LocalDateTime.of(year, month, day, hour, minute, second);
-            }
-        } catch (Exception e) {
-            // 如果正则匹配失败，记录错误但不抛出
-            System.err.println("通过正则提取日期失败: " + e.getMessage());
+        LocalDateTime dateTime = dateParser.parse(dateStr.trim());
+        if (dateTime != null) {
+            return dateTime;
         }
 
         // 所有方法都失败，返回当前时间
@@ -325,234 +516,215 @@ public class CSVParser {
     /**
      * 解析支付宝交易行
      * @param fields 字段数组
+     * @param line 原始行文本
      * @return 交易对象
+     * @throws IllegalArgumentException 字段数量不足或金额格式错误
      */
-    private Transaction parseAlipayTransaction(String[] fields) {
-        try {
-            // 检查字段数量是否足够
-            if (fields.length <= Math.max(
-                    columnMapping.get("date"),
-                    Math.max(columnMapping.get("amount"),
-                            Math.max(columnMapping.get("merchant"),
-                                    columnMapping.get("description"))))) {
-                System.err.println("字段数量不足，期望至少" +
-                        (Math.max(columnMapping.get("date"),
-                                Math.max(columnMapping.get("amount"),
-                                        Math.max(columnMapping.get("merchant"),
-                                                columnMapping.get("description"))) + 1) +
-                                "列，实际只有" + fields.length + "列"));
-                return null;
-            }
-
-            // 获取交易日期
-            String dateStr = fields[columnMapping.get("date")];
-            LocalDateTime transactionDate = parseDateTime(dateStr);
+    private Transaction parseAlipayTransaction(String[] fields, String line) {
+        // 检查字段数量是否足够
+        if (fields.length <= Math.max(
+                columnMapping.get("date"),
+                Math.max(columnMapping.get("amount"),
+                        Math.max(columnMapping.get("merchant"),
+                                columnMapping.get("description"))))) {
+            throw new IllegalArgumentException("字段数量不足，期望至少" +
+                    (Math.max(columnMapping.get("date"),
+                            Math.max(columnMapping.get("amount"),
+                                    Math.max(columnMapping.get("merchant"),
+                                            columnMapping.get("description"))) + 1) +
+                            "列，实际只有" + fields.length + "列"));
+        }
 
-            // 获取交易金额和类型
-            String amountStr = fields[columnMapping.get("amount")];
-            BigDecimal amount;
-            try {
-                amount = new BigDecimal(amountStr.replaceAll("[^\\d.-]", ""));
-            } catch (NumberFormatException e) {
-                System.err.println("金额解析错误: " + amountStr);
-                return null;
-            }
+        // 获取交易日期
+        String dateStr = fields[columnMapping.get("date")];
+        LocalDateTime transactionDate = parseDateTime(dateStr);
 
-            // 判断交易类型
-            TransactionType type = TransactionType.EXPENSE;
+        // 获取交易金额和类型
+        String amountStr = fields[columnMapping.get("amount")];
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(amountStr.replaceAll("[^\\d.-]", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("金额解析错误: " + amountStr);
+        }
 
-            // 首先尝试从收/支列判断
-            if (columnMapping.containsKey("income_expense")) {
-                int index = columnMapping.get("income_expense");
-                if (index < fields.length) {
-                    String incomeExpense = fields[index].trim();
-                    if ("收入".equals(incomeExpense)) {
-                        type = TransactionType.INCOME;
-                    }
-                }
-            }
+        // 判断交易类型
+        TransactionType type = TransactionType.EXPENSE;
 
-            // 如果金额是负数，则为支出
-            if (amount.compareTo(BigDecimal.ZERO) < 0) {
-                type = TransactionType.EXPENSE;
-                amount = amount.abs(); // 取绝对值
-            } else if (amount.compareTo(BigDecimal.ZERO) > 0) {
-                // 如果没有明确的类型指示，且金额为正，默认为收入
-                if (!columnMapping.containsKey("income_expense")) {
+        // 首先尝试从收/支列判断
+        if (columnMapping.containsKey("income_expense")) {
+            int index = columnMapping.get("income_expense");
+            if (index < fields.length) {
+                String incomeExpense = fields[index].trim();
+                if ("收入".equals(incomeExpense)) {
                     type = TransactionType.INCOME;
                 }
             }
+        }
 
-            // 获取商家和描述
-            String merchant = fields[columnMapping.get("merchant")];
-            String description = fields[columnMapping.get("description")];
-
-            // 如果有备注，添加到描述
-            if (columnMapping.containsKey("remark") &&
-                    columnMapping.get("remark") < fields.length &&
-                    !fields[columnMapping.get("remark")].isEmpty()) {
-                description += " (" + fields[columnMapping.get("remark")] + ")";
+        // 如果金额是负数，则为支出
+        if (amount.compareTo(BigDecimal.ZERO) < 0) {
+            type = TransactionType.EXPENSE;
+            amount = amount.abs(); // 取绝对值
+        } else if (amount.compareTo(BigDecimal.ZERO) > 0) {
+            // 如果没有明确的类型指示，且金额为正，默认为收入
+            if (!columnMapping.containsKey("income_expense")) {
+                type = TransactionType.INCOME;
             }
+        }
 
-            // 创建交易对象
-            return Transaction.builder()
-                    .amount(amount)
-                    .type(type)
-                    .description(description)
-                    .transactionDate(transactionDate)
-                    .merchant(merchant)
-                    .source("支付宝")
-                    .user(user)
-                    .rawData(String.join(",", fields))
-                    .build();
-        } catch (Exception e) {
-            System.err.println("解析支付宝交易时出现未处理异常: " + e.getMessage());
-            e.printStackTrace();
-            return null;
+        // 获取商家和描述
+        String merchant = fields[columnMapping.get("merchant")];
+        String description = fields[columnMapping.get("description")];
+
+        // 如果有备注，添加到描述
+        if (columnMapping.containsKey("remark") &&
+                columnMapping.get("remark") < fields.length &&
+                !fields[columnMapping.get("remark")].isEmpty()) {
+            description += " (" + fields[columnMapping.get("remark")] + ")";
         }
+
+        // 创建交易对象
+        return Transaction.builder()
+                .amount(amount)
+                .type(type)
+                .description(description)
+                .transactionDate(transactionDate)
+                .merchant(merchant)
+                .source("支付宝")
+                .user(user)
+                .rawData(line)
+                .build();
     }
 
     /**
      * 解析微信支付交易行
      * @param fields 字段数组
+     * @param line 原始行文本
      * @return 交易对象
+     * @throws IllegalArgumentException 字段数量不足或金额格式错误
      */
-    private Transaction parseWechatTransaction(String[] fields) {
-        try {
-            // 检查字段数量是否足够
-            int maxIndex = 0;
-            for (Integer index : columnMapping.values()) {
-                if (index > maxIndex) {
-                    maxIndex = index;
-                }
-            }
-
-            if (fields.length <= maxIndex) {
-                System.err.println("字段数量不足，期望至少" + (maxIndex + 1) + "列，实际只有" + fields.length + "列");
-                return null;
+    private Transaction parseWechatTransaction(String[] fields, String line) {
+        // 检查字段数量是否足够
+        int maxIndex = 0;
+        for (Integer index : columnMapping.values()) {
+            if (index > maxIndex) {
+                maxIndex = index;
             }
+        }
 
-            // 获取交易日期
-            String dateStr = fields[columnMapping.get("date")];
-            LocalDateTime transactionDate = parseDateTime(dateStr);
+        if (fields.length <= maxIndex) {
+            throw new IllegalArgumentException("字段数量不足，期望至少" + (maxIndex + 1) + "列，实际只有" + fields.length + "列");
+        }
 
-            // 获取交易金额和类型
-            String amountStr = fields[columnMapping.get("amount")];
-            BigDecimal amount;
-            try {
-                amount = new BigDecimal(amountStr.replaceAll("[^\\d.-]", ""));
-            } catch (NumberFormatException e) {
-                System.err.println("金额解析错误: " + amountStr);
-                return null;
-            }
+        // 获取交易日期
+        String dateStr = fields[columnMapping.get("date")];
+        LocalDateTime transactionDate = parseDateTime(dateStr);
 
-            // 判断交易类型 (微信账单中，支出通常标记为"-"，收入为"+")
-            TransactionType type = amountStr.contains("-")
-                    ? TransactionType.EXPENSE
-                    : TransactionType.INCOME;
-
-            // 取金额绝对值
-            amount = amount.abs();
-
-            // 获取商家和描述
-            String merchant = fields[columnMapping.get("merchant")];
-            String description = fields[columnMapping.get("description")];
-
-            // 创建交易对象
-            return Transaction.builder()
-                    .amount(amount)
-                    .type(type)
-                    .description(description)
-                    .transactionDate(transactionDate)
-                    .merchant(merchant)
-                    .source("微信支付")
-                    .user(user)
-                    .rawData(String.join(",", fields))
-                    .build();
-        } catch (Exception e) {
-            System.err.println("解析微信支付交易时出现未处理异常: " + e.getMessage());
-            e.printStackTrace();
-            return null;
+        // 获取交易金额和类型
+        String amountStr = fields[columnMapping.get("amount")];
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(amountStr.replaceAll("[^\\d.-]", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("金额解析错误: " + amountStr);
         }
+
+        // 判断交易类型 (微信账单中，支出通常标记为"-"，收入为"+")
+        TransactionType type = amountStr.contains("-")
+                ? TransactionType.EXPENSE
+                : TransactionType.INCOME;
+
+        // 取金额绝对值
+        amount = amount.abs();
+
+        // 获取商家和描述
+        String merchant = fields[columnMapping.get("merchant")];
+        String description = fields[columnMapping.get("description")];
+
+        // 创建交易对象
+        return Transaction.builder()
+                .amount(amount)
+                .type(type)
+                .description(description)
+                .transactionDate(transactionDate)
+                .merchant(merchant)
+                .source("微信支付")
+                .user(user)
+                .rawData(line)
+                .build();
     }
 
     /**
      * 解析银行交易行
      * @param fields 字段数组
+     * @param line 原始行文本
      * @return 交易对象
+     * @throws IllegalArgumentException 字段数量不足或金额格式错误
      */
-    private Transaction parseBankTransaction(String[] fields) {
-        try {
-            // 检查字段数量是否足够
-            int maxIndex = 0;
-            for (Integer index : columnMapping.values()) {
-                if (index > maxIndex) {
-                    maxIndex = index;
-                }
+    private Transaction parseBankTransaction(String[] fields, String line) {
+        // 检查字段数量是否足够
+        int maxIndex = 0;
+        for (Integer index : columnMapping.values()) {
+            if (index > maxIndex) {
+                maxIndex = index;
             }
+        }
 
-            if (fields.length <= maxIndex) {
-                System.err.println("字段数量不足，期望至少" + (maxIndex + 1) + "列，实际只有" + fields.length + "列");
-                return null;
-            }
+        if (fields.length <= maxIndex) {
+            throw new IllegalArgumentException("字段数量不足，期望至少" + (maxIndex + 1) + "列，实际只有" + fields.length + "列");
+        }
 
-            // 获取交易日期
-            String dateStr = fields[columnMapping.get("date")];
-            LocalDateTime transactionDate = parseDateTime(dateStr);
+        // 获取交易日期
+        String dateStr = fields[columnMapping.get("date")];
+        LocalDateTime transactionDate = parseDateTime(dateStr);
 
-            // 获取交易描述
-            String description = fields[columnMapping.get("description")];
+        // 获取交易描述
+        String description = fields[columnMapping.get("description")];
 
-            // 获取支出和收入金额
-            String expenseStr = fields[columnMapping.get("expense")];
-            String incomeStr = fields[columnMapping.get("income")];
+        // 获取支出和收入金额
+        String expenseStr = fields[columnMapping.get("expense")];
+        String incomeStr = fields[columnMapping.get("income")];
 
-            BigDecimal amount;
-            TransactionType type;
+        BigDecimal amount;
+        TransactionType type;
 
-            // 判断交易类型和金额
-            if (!expenseStr.isEmpty() && !expenseStr.equals("0") && !expenseStr.equals("0.00")) {
-                // 支出交易
-                try {
-                    amount = new BigDecimal(expenseStr.replaceAll("[^\\d.]", ""));
-                    type = TransactionType.EXPENSE;
-                } catch (NumberFormatException e) {
-                    System.err.println("支出金额解析错误: " + expenseStr);
-                    return null;
-                }
-            } else if (!incomeStr.isEmpty() && !incomeStr.equals("0") && !incomeStr.equals("0.00")) {
-                // 收入交易
-                try {
-                    amount = new BigDecimal(incomeStr.replaceAll("[^\\d.]", ""));
-                    type = TransactionType.INCOME;
-                } catch (NumberFormatException e) {
-                    System.err.println("收入金额解析错误: " + incomeStr);
-                    return null;
-                }
-            } else {
-                // 无效交易
-                return null;
+        // 判断交易类型和金额
+        if (!expenseStr.isEmpty() && !expenseStr.equals("0") && !expenseStr.equals("0.00")) {
+            // 支出交易
+            try {
+                amount = new BigDecimal(expenseStr.replaceAll("[^\\d.]", ""));
+                type = TransactionType.EXPENSE;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("支出金额解析错误: " + expenseStr);
             }
-
-            // 提取商家信息 (银行账单通常没有明确的商家字段，从描述中推断)
-            String merchant = extractMerchantFromDescription(description);
-
-            // 创建交易对象
-            return Transaction.builder()
-                    .amount(amount)
-                    .type(type)
-                    .description(description)
-                    .transactionDate(transactionDate)
-                    .merchant(merchant)
-                    .source("银行")
-                    .user(user)
-                    .rawData(String.join(",", fields))
-                    .build();
-        } catch (Exception e) {
-            System.err.println("解析银行交易时出现未处理异常: " + e.getMessage());
-            e.printStackTrace();
+        } else if (!incomeStr.isEmpty() && !incomeStr.equals("0") && !incomeStr.equals("0.00")) {
+            // 收入交易
+            try {
+                amount = new BigDecimal(incomeStr.replaceAll("[^\\d.]", ""));
+                type = TransactionType.INCOME;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("收入金额解析错误: " + incomeStr);
+            }
+        } else {
+            // 支出和收入都为空或为0的行不是交易(如余额行)，跳过
             return null;
         }
+
+        // 提取商家信息 (银行账单通常没有明确的商家字段，从描述中推断)
+        String merchant = extractMerchantFromDescription(description);
+
+        // 创建交易对象
+        return Transaction.builder()
+                .amount(amount)
+                .type(type)
+                .description(description)
+                .transactionDate(transactionDate)
+                .merchant(merchant)
+                .source("银行")
+                .user(user)
+                .rawData(line)
+                .build();
     }
 
     /**
@@ -580,6 +752,112 @@ public class CSVParser {
      * @param pattern 日期格式模式
      */
     public void setDateFormat(String pattern) {
-        this.dateFormatter = DateTimeFormatter.ofPattern(pattern);
+        this.dateParser = new TransactionDateParser(DateTimeFormatter.ofPattern(pattern));
+    }
+
+    /**
+     * 导入报告 - 记录一次流式解析的统计信息和出错行
+     */
+    public static class ImportReport {
+        private final Charset charset;
+        private final List<RowError> errors = new ArrayList<>();
+        private int parsedRows;
+        private int skippedRows;
+        private int errorCount;
+
+        public ImportReport(Charset charset) {
+            this.charset = charset;
+        }
+
+        void addError(int lineNumber, String line, String message) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(lineNumber, line, message));
+            }
+        }
+
+        /**
+         * 合并分块的解析报告
+         * @param other 分块报告
+         * @param lineOffset 分块第一行之前的行数
+         */
+        void merge(ImportReport other, int lineOffset) {
+            parsedRows += other.parsedRows;
+            skippedRows += other.skippedRows;
+            for (RowError error : other.errors) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(new RowError(lineOffset + error.getLineNumber(), error.getLine(), error.getMessage()));
+                }
+            }
+            errorCount += other.errorCount;
+        }
+
+        public Charset getCharset() {
+            return charset;
+        }
+
+        public int getParsedRows() {
+            return parsedRows;
+        }
+
+        public int getSkippedRows() {
+            return skippedRows;
+        }
+
+        public int getErrorCount() {
+            return errorCount;
+        }
+
+        /**
+         * 获取出错行明细(最多保留前100条)
+         */
+        public List<RowError> getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * 分块解析结果
+     */
+    private static class ChunkResult {
+        private final List<Transaction> transactions = new ArrayList<>();
+        private final ImportReport report;
+        private int recordCount;
+
+        ChunkResult(Charset charset) {
+            this.report = new ImportReport(charset);
+        }
+    }
+
+    /**
+     * 出错行信息
+     */
+    public static class RowError {
+        private final int lineNumber;
+        private final String line;
+        private final String message;
+
+        public RowError(int lineNumber, String line, String message) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.message = message;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "第" + lineNumber + "行: " + message;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,154 @@
+package com.example.software.financeapp.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * CSV字节切分器
+ * 直接在(内存映射的)字节缓冲区上切分记录和字段，只记录字段的起止偏移，
+ * 字符串只在调用 {@link #field(int, Charset)} 时才生成；
+ * 引号和换行符在GB18030和UTF-8中都不会出现在多字节字符内部，因此可以按字节判断
+ */
+class CsvTokenizer {
+
+    private static final int INITIAL_FIELD_CAPACITY = 16;
+
+    private final ByteBuffer buffer;
+    private final int limit;
+
+    // 下一条记录的起始位置
+    private int position;
+
+    // 当前记录的范围(不含换行符)
+    private int recordStart;
+    private int recordEnd;
+
+    // 当前记录各字段的起止偏移
+    private int[] fieldStarts = new int[INITIAL_FIELD_CAPACITY];
+    private int[] fieldEnds = new int[INITIAL_FIELD_CAPACITY];
+    private int fieldCount;
+
+    // 生成字符串时复用的字节数组
+    private byte[] scratch = new byte[256];
+
+    CsvTokenizer(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * 切分下一条记录，引号内的逗号和换行符不作为分隔符
+     * @return 没有更多记录时返回false
+     */
+    boolean nextRecord() {
+        if (position >= limit) {
+            return false;
+        }
+
+        recordStart = position;
+        fieldCount = 0;
+        boolean inQuotes = false;
+        int fieldStart = position;
+        int i = position;
+
+        for (; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (!inQuotes) {
+                if (b == ',') {
+                    addField(fieldStart, i);
+                    fieldStart = i + 1;
+                } else if (b == '\n') {
+                    break;
+                }
+            }
+        }
+
+        addField(fieldStart, i);
+        recordEnd = i;
+        position = i < limit ? i + 1 : limit;
+
+        // 去掉Windows换行符中的回车
+        if (recordEnd > recordStart && buffer.get(recordEnd - 1) == '\r') {
+            recordEnd--;
+            fieldEnds[fieldCount - 1] = recordEnd;
+        }
+        return true;
+    }
+
+    /**
+     * 当前记录是否为空白行
+     */
+    boolean isBlankRecord() {
+        for (int i = recordStart; i < recordEnd; i++) {
+            if ((buffer.get(i) & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * 生成字段字符串：去掉引号并去除首尾空白，与逐字符解析的结果一致
+     * @param index 字段索引
+     * @param charset 文件编码
+     */
+    String field(int index, Charset charset) {
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        ensureScratch(end - start);
+
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b != '"') {
+                scratch[length++] = b;
+            }
+        }
+
+        // 多字节字符的各个字节都大于空格，按字节去空白是安全的
+        int from = 0;
+        while (from < length && (scratch[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        while (length > from && (scratch[length - 1] & 0xFF) <= ' ') {
+            length--;
+        }
+        return from == length ? "" : new String(scratch, from, length - from, charset);
+    }
+
+    /**
+     * 生成当前记录的原始文本
+     * @param charset 文件编码
+     */
+    String recordText(Charset charset) {
+        int length = recordEnd - recordStart;
+        ensureScratch(length);
+        buffer.get(recordStart, scratch, 0, length);
+        return new String(scratch, 0, length, charset);
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            int capacity = fieldCount * 2;
+            fieldStarts = Arrays.copyOf(fieldStarts, capacity);
+            fieldEnds = Arrays.copyOf(fieldEnds, capacity);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private void ensureScratch(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+    }
+}
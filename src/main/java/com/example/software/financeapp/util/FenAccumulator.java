@@ -0,0 +1,200 @@
+package com.example.software.financeapp.util;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 定点金额累加器 - 按分(long)把金额累加到若干个分组中，累加过程不创建BigDecimal对象，
+ * 只在读取结果时转换为BigDecimal。
+ * 结果与从BigDecimal.ZERO开始逐笔BigDecimal.add完全相同(包括小数位数)：
+ * 每个分组记录出现过的最大小数位数，超过两位小数或累加会溢出的金额计入精确的BigDecimal余量。
+ * 分组数量按需增长。不是线程安全的，并行累加时每个线程使用各自的累加器，最后用 {@link #addAll} 合并
+ */
+public class FenAccumulator {
+
+    /**
+     * 无法用分精确表示的金额
+     */
+    public static final long NOT_FEN = Long.MIN_VALUE;
+
+    // 用long表示分时允许的最大精度，保证乘以100后不会溢出
+    private static final int MAX_FEN_PRECISION = 16;
+
+    private long[] fen;
+    private int[] scales;
+    private int[] counts;
+    private BigDecimal[] spill;
+    private int size;
+
+    public FenAccumulator() {
+        this(1);
+    }
+
+    /**
+     * @param buckets 初始分组数量
+     */
+    public FenAccumulator(int buckets) {
+        int capacity = Math.max(1, buckets);
+        this.fen = new long[capacity];
+        this.scales = new int[capacity];
+        this.counts = new int[capacity];
+        this.size = Math.max(0, buckets);
+    }
+
+    /**
+     * 把金额转换为分
+     * @return 分，超过两位小数或超出范围时返回 {@link #NOT_FEN}
+     */
+    public static long toFen(BigDecimal amount) {
+        int scale = amount.scale();
+        if (scale < 0 || scale > 2 || amount.precision() > MAX_FEN_PRECISION) {
+            return NOT_FEN;
+        }
+        long unscaled = amount.unscaledValue().longValue();
+        return scale == 2 ? unscaled : scale == 1 ? unscaled * 10 : unscaled * 100;
+    }
+
+    /**
+     * 把分转换为指定小数位数(0-2)的金额
+     */
+    public static BigDecimal toBigDecimal(long fen, int scale) {
+        return BigDecimal.valueOf(fen, 2).setScale(scale);
+    }
+
+    /**
+     * 累加到第一个分组
+     */
+    public void add(BigDecimal amount) {
+        add(0, amount);
+    }
+
+    /**
+     * 累加到指定分组
+     */
+    public void add(int bucket, BigDecimal amount) {
+        long amountFen = toFen(amount);
+        if (amountFen == NOT_FEN) {
+            ensureBucket(bucket);
+            counts[bucket]++;
+            addSpill(bucket, amount);
+        } else {
+            add(bucket, amountFen, amount.scale());
+        }
+    }
+
+    /**
+     * 累加以分表示的金额
+     * @param bucket 分组
+     * @param amountFen 金额(分)
+     * @param scale 原金额的小数位数(0-2)
+     */
+    public void add(int bucket, long amountFen, int scale) {
+        ensureBucket(bucket);
+        counts[bucket]++;
+        if (scale > scales[bucket]) {
+            scales[bucket] = scale;
+        }
+
+        long current = fen[bucket];
+        long sum = current + amountFen;
+        if (((current ^ sum) & (amountFen ^ sum)) < 0) {
+            // 溢出，这一笔计入余量
+            addSpill(bucket, toBigDecimal(amountFen, scale));
+        } else {
+            fen[bucket] = sum;
+        }
+    }
+
+    /**
+     * 获取分组的合计
+     */
+    public BigDecimal get(int bucket) {
+        if (bucket >= size) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal result = toBigDecimal(fen[bucket], scales[bucket]);
+        if (spill != null && spill[bucket] != null) {
+            result = result.add(spill[bucket]);
+        }
+        return result;
+    }
+
+    /**
+     * 获取分组累加的笔数
+     */
+    public int getCount(int bucket) {
+        return bucket < size ? counts[bucket] : 0;
+    }
+
+    /**
+     * 获取所有分组的合计
+     */
+    public BigDecimal total() {
+        return regroup(1, bucket -> 0).get(0);
+    }
+
+    /**
+     * 把另一个累加器按相同的分组序号合并进来
+     * 累加是精确的，合并顺序不影响结果，可用于合并各线程分别累加的部分结果
+     */
+    public void addAll(FenAccumulator other) {
+        for (int i = 0; i < other.size; i++) {
+            if (other.counts[i] > 0) {
+                merge(i, other, i);
+            }
+        }
+    }
+
+    /**
+     * 把分组合并成更粗的分组
+     * @param buckets 新的分组数量
+     * @param mapping 原分组序号 -> 新分组序号
+     */
+    public FenAccumulator regroup(int buckets, IntUnaryOperator mapping) {
+        FenAccumulator result = new FenAccumulator(buckets);
+        for (int i = 0; i < size; i++) {
+            if (counts[i] > 0) {
+                result.merge(mapping.applyAsInt(i), this, i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 分组数量
+     */
+    public int size() {
+        return size;
+    }
+
+    private void merge(int bucket, FenAccumulator source, int sourceBucket) {
+        add(bucket, source.fen[sourceBucket], source.scales[sourceBucket]);
+        counts[bucket] += source.counts[sourceBucket] - 1;
+        if (source.spill != null && source.spill[sourceBucket] != null) {
+            addSpill(bucket, source.spill[sourceBucket]);
+        }
+    }
+
+    private void ensureBucket(int bucket) {
+        if (bucket >= fen.length) {
+            int capacity = Math.max(bucket + 1, fen.length * 2);
+            fen = Arrays.copyOf(fen, capacity);
+            scales = Arrays.copyOf(scales, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            if (spill != null) {
+                spill = Arrays.copyOf(spill, capacity);
+            }
+        }
+        if (bucket >= size) {
+            size = bucket + 1;
+        }
+    }
+
+    private void addSpill(int bucket, BigDecimal amount) {
+        if (spill == null) {
+            spill = new BigDecimal[fen.length];
+        }
+        spill[bucket] = spill[bucket] == null ? amount : spill[bucket].add(amount);
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.software.financeapp.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * 多关键词匹配自动机(Aho-Corasick)
+ * 由全部关键词一次性构建，扫描文本时每个字符只处理一次，匹配耗时与关键词数量无关；
+ * 可选择忽略大小写(关键词和文本都按字符转为小写)，构建完成后只读，可被多个线程同时使用
+ */
+public class KeywordAutomaton {
+
+    // 每个状态的出边，按字符排序后二分查找
+    private final char[][] edgeLabels;
+    private final int[][] edgeTargets;
+
+    // 失配跳转
+    private final int[] fail;
+
+    // 每个状态结束的关键词编号(已包含后缀状态的输出)
+    private final int[][] outputs;
+
+    private final int keywordCount;
+
+    private final boolean ignoreCase;
+
+    private KeywordAutomaton(char[][] edgeLabels, int[][] edgeTargets, int[] fail, int[][] outputs, int keywordCount,
+                             boolean ignoreCase) {
+        this.edgeLabels = edgeLabels;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.outputs = outputs;
+        this.keywordCount = keywordCount;
+        this.ignoreCase = ignoreCase;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 扫描文本，每出现一次关键词回调一次
+     * @param text 文本(未设置忽略大小写时区分大小写)
+     * @param listener 接收匹配到的关键词编号
+     */
+    public void scan(CharSequence text, IntConsumer listener) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = ignoreCase ? Character.toLowerCase(text.charAt(i)) : text.charAt(i);
+
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next < 0 ? 0 : next;
+
+            for (int keyword : outputs[state]) {
+                listener.accept(keyword);
+            }
+        }
+    }
+
+    /**
+     * 判断文本中是否包含任一关键词
+     */
+    public boolean containsAny(CharSequence text) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = ignoreCase ? Character.toLowerCase(text.charAt(i)) : text.charAt(i);
+
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next < 0 ? 0 : next;
+
+            if (outputs[state].length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取关键词数量
+     */
+    public int getKeywordCount() {
+        return keywordCount;
+    }
+
+    private int transition(int state, char c) {
+        int index = Arrays.binarySearch(edgeLabels[state], c);
+        return index >= 0 ? edgeTargets[state][index] : -1;
+    }
+
+    /**
+     * 自动机构建器
+     */
+    public static class Builder {
+        private final List<Map<Character, Integer>> children = new ArrayList<>();
+        private final List<List<Integer>> terminals = new ArrayList<>();
+        private int keywordCount;
+        private boolean ignoreCase;
+
+        private Builder() {
+            newState();
+        }
+
+        /**
+         * 忽略大小写，需在添加关键词之前设置
+         */
+        public Builder ignoreCase() {
+            if (keywordCount > 0) {
+                throw new IllegalStateException("必须在添加关键词之前设置忽略大小写");
+            }
+            this.ignoreCase = true;
+            return this;
+        }
+
+        /**
+         * 添加关键词
+         * @param keyword 关键词，不能为空串
+         * @return 关键词编号(按添加顺序从0开始)
+         */
+        public int add(String keyword) {
+            if (keyword == null || keyword.isEmpty()) {
+                throw new IllegalArgumentException("关键词不能为空");
+            }
+
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = ignoreCase ? Character.toLowerCase(keyword.charAt(i)) : keyword.charAt(i);
+                Integer next = children.get(state).get(c);
+                if (next == null) {
+                    next = newState();
+                    children.get(state).put(c, next);
+                }
+                state = next;
+            }
+
+            int id = keywordCount++;
+            terminals.get(state).add(id);
+            return id;
+        }
+
+        /**
+         * 构建自动机：按广度优先计算失配跳转并合并输出
+         */
+        public KeywordAutomaton build() {
+            int stateCount = children.size();
+            int[] fail = new int[stateCount];
+            List<List<Integer>> merged = new ArrayList<>(terminals);
+
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int child : children.get(0).values()) {
+                queue.add(child);
+            }
+
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (Map.Entry<Character, Integer> edge : children.get(state).entrySet()) {
+                    char c = edge.getKey();
+                    int target = edge.getValue();
+
+                    int f = fail[state];
+                    while (f != 0 && !children.get(f).containsKey(c)) {
+                        f = fail[f];
+                    }
+                    Integer g = children.get(f).get(c);
+                    fail[target] = g != null && g != target ? g : 0;
+
+                    if (!merged.get(fail[target]).isEmpty()) {
+                        List<Integer> output = new ArrayList<>(merged.get(target));
+                        output.addAll(merged.get(fail[target]));
+                        merged.set(target, output);
+                    }
+                    queue.add(target);
+                }
+            }
+
+            // 转换为紧凑数组
+            char[][] labels = new char[stateCount][];
+            int[][] targets = new int[stateCount][];
+            int[][] outputs = new int[stateCount][];
+            for (int state = 0; state < stateCount; state++) {
+                Map<Character, Integer> edges = children.get(state);
+                labels[state] = new char[edges.size()];
+                targets[state] = new int[edges.size()];
+                int i = 0;
+                for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                    labels[state][i] = edge.getKey();
+                    targets[state][i] = edge.getValue();
+                    i++;
+                }
+                outputs[state] = merged.get(state).stream().mapToInt(Integer::intValue).toArray();
+            }
+
+            return new KeywordAutomaton(labels, targets, fail, outputs, keywordCount, ignoreCase);
+        }
+
+        private int newState() {
+            // TreeMap保证出边按字符有序
+            children.add(new TreeMap<>());
+            terminals.add(new ArrayList<>());
+            return children.size() - 1;
+        }
+    }
+}
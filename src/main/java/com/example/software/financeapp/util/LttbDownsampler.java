@@ -0,0 +1,72 @@
+package com.example.software.financeapp.util;
+
+/**
+ * LTTB(最大三角形三桶)降采样 - 从等间距的序列中选出指定数量的点，尽量保留序列的形状(峰值、谷值和趋势)
+ * 第一个点和最后一个点总是保留；中间的点按顺序分成 目标点数-2 个桶，
+ * 每个桶选出与上一个选中点、下一个桶的平均点构成的三角形面积最大的点。
+ * 点的横坐标是其序号，适用于按日/周/月汇总的时间序列
+ */
+public class LttbDownsampler {
+
+    /**
+     * 选出要保留的点
+     * @param values 序列的值
+     * @param threshold 目标点数，小于3或不小于序列长度时保留所有点
+     * @return 保留的点的序号(升序)
+     */
+    public static int[] select(double[] values, int threshold) {
+        int length = values.length;
+        if (threshold < 3 || threshold >= length) {
+            int[] all = new int[length];
+            for (int i = 0; i < length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        int[] selected = new int[threshold];
+        selected[0] = 0;
+
+        // 除首尾两点外每个桶的宽度
+        double bucketSize = (double) (length - 2) / (threshold - 2);
+        int previous = 0;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // 下一个桶的平均点，最后一个桶以末尾的点作为下一个桶
+            int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, length);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += i;
+                averageY += values[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            averageX /= nextCount;
+            averageY /= nextCount;
+
+            // 当前桶中与上一个选中点、下一个桶平均点构成最大三角形的点
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+            double previousX = previous;
+            double previousY = values[previous];
+            double maxArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                // 面积的2倍，只用于比较
+                double area = Math.abs((previousX - averageX) * (values[i] - previousY)
+                        - (previousX - i) * (averageY - previousY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+
+            selected[bucket + 1] = chosen;
+            previous = chosen;
+        }
+
+        selected[threshold - 1] = length - 1;
+        return selected;
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.software.financeapp.util;
+
+import java.util.Arrays;
+
+/**
+ * t-digest 分位数估计 (合并式实现)
+ * 新数据先写入缓冲区，缓冲区满时排序并与已有质心合并；质心大小受 arcsin 尺度函数限制，
+ * 两端的质心很小，因此中位数和高分位数都能在固定内存下保持较好的精度。
+ * 样本较少时每个样本都是一个质心，结果是精确的。
+ * 不是线程安全的
+ */
+public class TDigest {
+
+    // 默认压缩参数，质心数约为压缩参数的一半
+    private static final double DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+
+    // 按均值排序的质心
+    private double[] means = new double[0];
+    private double[] weights = new double[0];
+    private int centroidCount;
+
+    // 尚未合并的新数据
+    private final double[] buffer;
+    private int bufferCount;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compression 压缩参数，越大越精确、占用内存越多
+     */
+    public TDigest(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("压缩参数不能小于10: " + compression);
+        }
+        this.compression = compression;
+        this.buffer = new double[(int) (compression * 5)];
+    }
+
+    /**
+     * 添加一个数据
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("不能添加NaN");
+        }
+
+        buffer[bufferCount++] = value;
+        totalWeight++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+
+        if (bufferCount == buffer.length) {
+            merge();
+        }
+    }
+
+    /**
+     * 估计分位数
+     * @param q 分位(0-1)
+     * @return 分位数，没有数据时返回NaN
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("分位必须在0到1之间: " + q);
+        }
+        merge();
+        if (centroidCount == 0) {
+            return Double.NaN;
+        }
+        if (centroidCount == 1) {
+            return means[0];
+        }
+
+        // 每个质心的权重中心位于 累计权重 + 自身权重/2
+        double index = q * totalWeight;
+        if (index <= weights[0] / 2) {
+            return interpolate(min, means[0], index / (weights[0] / 2));
+        }
+
+        double weightSoFar = 0;
+        for (int i = 0; i < centroidCount - 1; i++) {
+            double center = weightSoFar + weights[i] / 2;
+            double gap = (weights[i] + weights[i + 1]) / 2;
+            if (index <= center + gap) {
+                return interpolate(means[i], means[i + 1], (index - center) / gap);
+            }
+            weightSoFar += weights[i];
+        }
+
+        double lastCenter = totalWeight - weights[centroidCount - 1] / 2;
+        return interpolate(means[centroidCount - 1], max,
+                (index - lastCenter) / (weights[centroidCount - 1] / 2));
+    }
+
+    /**
+     * 估计小于等于给定值的数据比例
+     * @param value 数值
+     * @return 比例(0-1)，没有数据时返回NaN
+     */
+    public double cdf(double value) {
+        merge();
+        if (centroidCount == 0) {
+            return Double.NaN;
+        }
+        if (value < min) {
+            return 0;
+        }
+        if (value >= max) {
+            return 1;
+        }
+
+        if (value < means[0]) {
+            return (weights[0] / 2) * (value - min) / (means[0] - min) / totalWeight;
+        }
+
+        double weightSoFar = 0;
+        for (int i = 0; i < centroidCount - 1; i++) {
+            if (value < means[i + 1]) {
+                double left = weightSoFar + weights[i] / 2;
+                double right = left + (weights[i] + weights[i + 1]) / 2;
+                double ratio = (value - means[i]) / (means[i + 1] - means[i]);
+                return interpolate(left, right, ratio) / totalWeight;
+            }
+            weightSoFar += weights[i];
+        }
+
+        double lastCenter = totalWeight - weights[centroidCount - 1] / 2;
+        double ratio = (value - means[centroidCount - 1]) / (max - means[centroidCount - 1]);
+        return interpolate(lastCenter, totalWeight, ratio) / totalWeight;
+    }
+
+    /**
+     * 获取数据个数
+     */
+    public long size() {
+        return (long) totalWeight;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * 获取质心数(合并缓冲区后)
+     */
+    public int getCentroidCount() {
+        merge();
+        return centroidCount;
+    }
+
+    /**
+     * 将缓冲区与已有质心按均值顺序合并，相邻数据在尺度函数允许的范围内合成一个质心
+     */
+    private void merge() {
+        if (bufferCount == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, bufferCount);
+
+        int capacity = centroidCount + bufferCount;
+        double[] mergedMeans = new double[capacity];
+        double[] mergedWeights = new double[capacity];
+        int count = 0;
+
+        double currentMean = 0;
+        double currentWeight = 0;
+        double weightSoFar = 0;
+        double weightLimit = 0;
+
+        int i = 0;
+        int j = 0;
+        while (i < centroidCount || j < bufferCount) {
+            double mean;
+            double weight;
+            if (j >= bufferCount || (i < centroidCount && means[i] <= buffer[j])) {
+                mean = means[i];
+                weight = weights[i];
+                i++;
+            } else {
+                mean = buffer[j];
+                weight = 1;
+                j++;
+            }
+
+            if (currentWeight > 0 && weightSoFar + currentWeight + weight <= weightLimit) {
+                currentWeight += weight;
+                currentMean += weight * (mean - currentMean) / currentWeight;
+                continue;
+            }
+
+            if (currentWeight > 0) {
+                mergedMeans[count] = currentMean;
+                mergedWeights[count] = currentWeight;
+                count++;
+                weightSoFar += currentWeight;
+            }
+            weightLimit = totalWeight * inverseScale(scale(weightSoFar / totalWeight) + 1);
+            currentMean = mean;
+            currentWeight = weight;
+        }
+        mergedMeans[count] = currentMean;
+        mergedWeights[count] = currentWeight;
+        count++;
+
+        means = mergedMeans;
+        weights = mergedWeights;
+        centroidCount = count;
+        bufferCount = 0;
+    }
+
+    /**
+     * 尺度函数 k(q) = δ/(2π)·asin(2q-1)，相邻质心的k值之差不超过1
+     */
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, q) - 1);
+    }
+
+    private double inverseScale(double k) {
+        double angle = k * 2 * Math.PI / compression;
+        if (angle >= Math.PI / 2) {
+            return 1;
+        }
+        return (Math.sin(angle) + 1) / 2;
+    }
+
+    private static double interpolate(double from, double to, double ratio) {
+        return from + (to - from) * Math.max(0, Math.min(1, ratio));
+    }
+}
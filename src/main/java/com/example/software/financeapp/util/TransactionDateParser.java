@@ -0,0 +1,282 @@
+package com.example.software.financeapp.util;
+
+import java.text.ParsePosition;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 交易日期解析器
+ * 根据文件前几行的日期确定解析方式，之后的行直接使用同一种方式，不再逐个尝试格式；
+ * 解析过程不依赖异常控制流程，账单中重复出现的日期字符串直接从缓存返回。
+ * 解析器可被多个解析线程共享
+ */
+class TransactionDateParser {
+
+    // 连续多少行使用同一种方式解析成功后锁定该方式
+    private static final int DETECTION_ROWS = 5;
+
+    // 缓存的日期字符串上限，超过后不再加入新的缓存项
+    private static final int MAX_CACHE_SIZE = 4096;
+
+    // 从任意文本中提取日期时间
+    private static final Pattern EMBEDDED_DATE_PATTERN =
+            Pattern.compile("(\\d{4})[-/](\\d{1,2})[-/](\\d{1,2})(?:\\s+(\\d{1,2}):(\\d{1,2})(?::(\\d{1,2}))?)?");
+
+    /**
+     * 解析方式
+     */
+    enum Strategy {
+        // 用户指定的日期格式
+        FORMATTER,
+        // 数字日期: yyyy[-/]M[-/]d [H:mm[:ss]]
+        DIGITS,
+        // 从文本中提取日期
+        EMBEDDED
+    }
+
+    // 用户指定的日期格式，可为null
+    private final DateTimeFormatter formatter;
+
+    private final Map<String, LocalDateTime> cache = new ConcurrentHashMap<>();
+
+    // 已锁定的解析方式，检测完成前为null
+    private volatile Strategy strategy;
+
+    // 检测阶段的状态
+    private Strategy candidate;
+    private int candidateRows;
+
+    TransactionDateParser(DateTimeFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+    /**
+     * 解析日期时间
+     * @param text 日期字符串(已去除首尾空白)
+     * @return 解析结果，无法解析时返回null
+     */
+    LocalDateTime parse(String text) {
+        LocalDateTime cached = cache.get(text);
+        if (cached != null) {
+            return cached;
+        }
+
+        LocalDateTime result = null;
+        Strategy locked = strategy;
+        if (locked != null) {
+            result = parseWith(locked, text);
+        }
+        if (result == null) {
+            // 未锁定或与锁定的方式不符时按顺序尝试全部方式
+            for (Strategy s : Strategy.values()) {
+                result = parseWith(s, text);
+                if (result != null) {
+                    if (locked == null) {
+                        detect(s);
+                    }
+                    break;
+                }
+            }
+        }
+
+        if (result != null && cache.size() < MAX_CACHE_SIZE) {
+            cache.put(text, result);
+        }
+        return result;
+    }
+
+    /**
+     * 获取已锁定的解析方式
+     */
+    Strategy getStrategy() {
+        return strategy;
+    }
+
+    private synchronized void detect(Strategy s) {
+        if (strategy != null) {
+            return;
+        }
+        if (s == candidate) {
+            candidateRows++;
+        } else {
+            candidate = s;
+            candidateRows = 1;
+        }
+        if (candidateRows >= DETECTION_ROWS) {
+            strategy = candidate;
+            System.out.println("日期解析方式: " + strategy);
+        }
+    }
+
+    private LocalDateTime parseWith(Strategy s, String text) {
+        switch (s) {
+            case FORMATTER:
+                return formatter != null ? parseFormatted(text) : null;
+            case DIGITS:
+                return parseDigits(text);
+            case EMBEDDED:
+                return parseEmbedded(text);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 使用用户指定的格式解析，先做不抛异常的匹配检查
+     */
+    private LocalDateTime parseFormatted(String text) {
+        ParsePosition position = new ParsePosition(0);
+        if (formatter.parseUnresolved(text, position) == null || position.getIndex() != text.length()) {
+            return null;
+        }
+
+        TemporalAccessor parsed = formatter.parse(text);
+        LocalDate date = parsed.query(TemporalQueries.localDate());
+        if (date == null) {
+            return null;
+        }
+        LocalTime time = parsed.query(TemporalQueries.localTime());
+        return LocalDateTime.of(date, time != null ? time : LocalTime.MIDNIGHT);
+    }
+
+    /**
+     * 逐字符解析数字日期，整个字符串必须符合格式
+     */
+    static LocalDateTime parseDigits(String text) {
+        int length = text.length();
+
+        // 年: 4位数字
+        if (length < 8 || digitsEnd(text, 0, 4) != 4) {
+            return null;
+        }
+        int year = number(text, 0, 4);
+
+        // 月、日: 1~2位数字，以-或/分隔
+        int i = 4;
+        if (!isDateSeparator(text.charAt(i))) {
+            return null;
+        }
+        int monthEnd = digitsEnd(text, i + 1, 2);
+        if (monthEnd == i + 1 || monthEnd >= length || !isDateSeparator(text.charAt(monthEnd))) {
+            return null;
+        }
+        int month = number(text, i + 1, monthEnd);
+        int dayEnd = digitsEnd(text, monthEnd + 1, 2);
+        if (dayEnd == monthEnd + 1) {
+            return null;
+        }
+        int day = number(text, monthEnd + 1, dayEnd);
+
+        if (dayEnd == length) {
+            return toDateTime(year, month, day, 0, 0, 0);
+        }
+
+        // 时间: 空白 + H:mm[:ss]
+        i = dayEnd;
+        while (i < length && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        if (i == dayEnd || i == length) {
+            return null;
+        }
+        int hourEnd = digitsEnd(text, i, 2);
+        if (hourEnd == i || hourEnd >= length || text.charAt(hourEnd) != ':') {
+            return null;
+        }
+        int hour = number(text, i, hourEnd);
+        int minuteEnd = digitsEnd(text, hourEnd + 1, 2);
+        if (minuteEnd == hourEnd + 1) {
+            return null;
+        }
+        int minute = number(text, hourEnd + 1, minuteEnd);
+
+        int second = 0;
+        if (minuteEnd < length) {
+            if (text.charAt(minuteEnd) != ':') {
+                return null;
+            }
+            int secondEnd = digitsEnd(text, minuteEnd + 1, 2);
+            if (secondEnd == minuteEnd + 1 || secondEnd != length) {
+                return null;
+            }
+            second = number(text, minuteEnd + 1, secondEnd);
+        }
+
+        return toDateTime(year, month, day, hour, minute, second);
+    }
+
+    /**
+     * 从文本中提取日期时间
+     */
+    private static LocalDateTime parseEmbedded(String text) {
+        Matcher matcher = EMBEDDED_DATE_PATTERN.matcher(text);
+        if (!matcher.find()) {
+            return null;
+        }
+
+        int year = Integer.parseInt(matcher.group(1));
+        int month = Integer.parseInt(matcher.group(2));
+        int day = Integer.parseInt(matcher.group(3));
+
+        int hour = 0, minute = 0, second = 0;
+        if (matcher.group(4) != null) {
+            hour = Integer.parseInt(matcher.group(4));
+            minute = Integer.parseInt(matcher.group(5));
+            if (matcher.group(6) != null) {
+                second = Integer.parseInt(matcher.group(6));
+            }
+        }
+
+        // 提取的日期不调整越界的日
+        if (month < 1 || month > 12 || day < 1 || day > LocalDate.of(year, month, 1).lengthOfMonth()) {
+            return null;
+        }
+        return toDateTime(year, month, day, hour, minute, second);
+    }
+
+    /**
+     * 校验各字段并生成日期时间，日超出当月天数时调整为月末(与DateTimeFormatter的SMART模式一致)
+     * @return 字段越界时返回null
+     */
+    private static LocalDateTime toDateTime(int year, int month, int day, int hour, int minute, int second) {
+        if (month < 1 || month > 12 || day < 1 || day > 31
+                || hour > 23 || minute > 59 || second > 59) {
+            return null;
+        }
+        LocalDate firstDay = LocalDate.of(year, month, 1);
+        return LocalDateTime.of(year, month, Math.min(day, firstDay.lengthOfMonth()), hour, minute, second);
+    }
+
+    private static boolean isDateSeparator(char c) {
+        return c == '-' || c == '/';
+    }
+
+    /**
+     * 从from开始最多读取max位数字
+     * @return 数字之后的位置
+     */
+    private static int digitsEnd(String text, int from, int max) {
+        int end = from;
+        int limit = Math.min(text.length(), from + max);
+        while (end < limit && text.charAt(end) >= '0' && text.charAt(end) <= '9') {
+            end++;
+        }
+        return end;
+    }
+
+    private static int number(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return value;
+    }
+}